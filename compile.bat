@@ -11,7 +11,7 @@ if not exist "build\classes" mkdir build\classes
 echo 🔨 Compiling Java source files...
 
 REM Find all Java files and compile them
-dir /s /b src\*.java > sources.txt
+dir /s /b src\main\java\*.java > sources.txt
 
 REM Compile with proper classpath
 javac -d build\classes -cp "src\main\java" @sources.txt
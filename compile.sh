@@ -11,7 +11,7 @@ mkdir -p build/classes
 echo "🔨 Compiling Java source files..."
 
 # Find all Java files and compile them
-find src -name "*.java" -type f > sources.txt
+find src/main/java -name "*.java" -type f > sources.txt
 
 # Compile with proper classpath
 javac -d build/classes -cp "src/main/java" @sources.txt
@@ -3,6 +3,7 @@ package com.indoor.navigation;
 import com.indoor.navigation.model.*;
 import com.indoor.navigation.service.*;
 import com.indoor.navigation.utils.EnhancedSampleDataInitializer;
+import java.util.List;
 import java.util.Scanner;
 import java.util.concurrent.CompletableFuture;
 
@@ -10,6 +11,8 @@ import java.util.concurrent.CompletableFuture;
  * Enhanced Indoor Navigation Application with comprehensive features
  */
 public class EnhancedIndoorNavigationApp {
+    private static final int DESTINATION_SUGGESTIONS = 8;
+    
     private NavigationGraph graph;
     private EnhancedNavigationService navigationService;
     private EnhancedAdminService adminService;
@@ -172,39 +175,66 @@ public class EnhancedIndoorNavigationApp {
         System.out.println("\n🧭 NAVIGATION TO DESTINATION");
         System.out.println("═══════════════════════════════════");
         
-        // Show available destinations by floor
-        showDestinationsByFloor();
+        // Nearby and popular destinations; typing narrows them down
+        List<Room> suggestions = graph.completeDestination("", navigationService.getCurrentLocation(),
+                                                           DESTINATION_SUGGESTIONS);
+        showDestinationSuggestions("Suggested destinations:", suggestions);
         
         // Show recent destinations
         navigationService.showNavigationHistory();
         
-        System.out.print("\nEnter destination (name, type, or room ID): ");
-        String destination = scanner.nextLine().trim();
-        
-        if (destination.isEmpty()) {
-            navigationService.getTtsService().speakError("No destination specified");
-            return;
+        while (true) {
+            System.out.print("\nEnter destination (name, type, room ID, the start of a name, or a number): ");
+            String destination = scanner.nextLine().trim();
+            
+            if (destination.isEmpty()) {
+                navigationService.getTtsService().speakError("No destination specified");
+                return;
+            }
+            
+            Room chosen = chooseSuggestion(destination, suggestions);
+            if (chosen != null) {
+                navigationService.navigateToDestination(chosen.getId());
+                return;
+            }
+            
+            suggestions = graph.completeDestination(destination, navigationService.getCurrentLocation(),
+                                                    DESTINATION_SUGGESTIONS);
+            if (suggestions.size() <= 1 || isExactMatch(destination, suggestions)) {
+                // A full name, a room type, or a search term: let the service resolve it
+                navigationService.navigateToDestination(suggestions.size() == 1 ? suggestions.get(0).getId() : destination);
+                return;
+            }
+            showDestinationSuggestions("Destinations starting with \"" + destination + "\":", suggestions);
         }
-        
-        navigationService.navigateToDestination(destination);
     }
     
-    private void showDestinationsByFloor() {
-        System.out.println("Available destinations by floor:");
-        
-        for (Integer floor : graph.getFloors().stream().sorted().toArray(Integer[]::new)) {
-            System.out.printf("\n🏢 FLOOR %d:%n", floor);
-            
-            graph.getRoomsOnFloor(floor).stream()
-                .filter(room -> !room.equals(navigationService.getCurrentLocation()))
-                .filter(room -> !room.isBlocked())
-                .forEach(room -> {
-                    String statusIcons = getStatusIcons(room);
-                    System.out.printf("  • %-25s (%s) %s%n", 
-                                    room.getName(), 
-                                    room.getRoomType().getDisplayName(),
-                                    statusIcons);
-                });
+    private Room chooseSuggestion(String input, List<Room> suggestions) {
+        try {
+            int choice = Integer.parseInt(input);
+            return choice >= 1 && choice <= suggestions.size() ? suggestions.get(choice - 1) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    private boolean isExactMatch(String input, List<Room> suggestions) {
+        return suggestions.stream().anyMatch(room -> room.getName().equalsIgnoreCase(input) ||
+                                                     room.getId().equalsIgnoreCase(input));
+    }
+    
+    private void showDestinationSuggestions(String title, List<Room> suggestions) {
+        if (suggestions.isEmpty()) return;
+        
+        System.out.println(title);
+        for (int i = 0; i < suggestions.size(); i++) {
+            Room room = suggestions.get(i);
+            System.out.printf("  %2d. %-25s (%s, floor %d) %s%n",
+                            i + 1,
+                            room.getName(),
+                            room.getRoomType().getDisplayName(),
+                            room.getFloor(),
+                            getStatusIcons(room));
         }
     }
     
@@ -663,17 +693,14 @@ public class EnhancedIndoorNavigationApp {
         System.out.printf("Description: %s%n", graph.getDescription());
         
         var stats = graph.getBuildingStats();
-        System.out.printf("Total Rooms: %d%n", stats.get("total_rooms"));
-        System.out.printf("Total Paths: %d%n", stats.get("total_paths"));
-        System.out.printf("Number of Floors: %d%n", stats.get("floors"));
-        System.out.printf("Emergency Exits: %d%n", 
-                         graph.getAllRooms().stream().mapToInt(r -> r.isEmergencyExit() ? 1 : 0).sum());
+        System.out.printf("Total Rooms: %d%n", stats.getTotalRooms());
+        System.out.printf("Total Paths: %d%n", stats.getTotalPaths());
+        System.out.printf("Number of Floors: %d%n", stats.getFloorCount());
+        System.out.printf("Emergency Exits: %d%n", stats.getEmergencyExits());
         
         navigationService.getTtsService().speak(
             String.format("This building has %d rooms across %d floors with %d emergency exits", 
-                         (Integer) stats.get("total_rooms"), 
-                         (Integer) stats.get("floors"),
-                         (int) graph.getAllRooms().stream().mapToInt(r -> r.isEmergencyExit() ? 1 : 0).sum())
+                         stats.getTotalRooms(), stats.getFloorCount(), stats.getEmergencyExits())
         );
     }
     
@@ -780,13 +807,13 @@ public class EnhancedIndoorNavigationApp {
         var stats = graph.getBuildingStats();
         
         System.out.println("📈 Building Statistics:");
-        stats.forEach((key, value) -> {
-            if (!key.equals("room_types")) {
-                System.out.printf("  %s: %s%n", 
-                                key.replace("_", " ").toUpperCase(), 
-                                value);
-            }
-        });
+        System.out.printf("  TOTAL ROOMS: %d%n", stats.getTotalRooms());
+        System.out.printf("  TOTAL PATHS: %d%n", stats.getTotalPaths());
+        System.out.printf("  FLOORS: %d%n", stats.getFloorCount());
+        System.out.printf("  ACCESSIBLE ROOMS: %d%n", stats.getAccessibleRooms());
+        System.out.printf("  BLOCKED ROOMS: %d%n", stats.getBlockedRooms());
+        System.out.printf("  BLOCKED PATHS: %d%n", stats.getBlockedPaths());
+        System.out.printf("  TEMPORARILY BLOCKED PATHS: %d%n", stats.getTemporarilyBlockedPaths());
         
         System.out.println("\n🎤 Voice Recognition:");
         System.out.printf("  Recent Commands: %d%n", navigationService.getVoiceService().getRecentCommands().size());
@@ -0,0 +1,366 @@
+package com.indoor.navigation.algorithm;
+
+import com.indoor.navigation.algorithm.EnhancedDijkstraPathfinder.PathResult;
+import com.indoor.navigation.model.*;
+import com.indoor.navigation.model.GraphSnapshot.RoomNode;
+import java.util.*;
+
+/**
+ * Pre-pruned overlay graphs, one per capacity class (beds, carts, wheelchairs): only the paths
+ * wide enough for the class, in CSR arrays by room index, with connected components so an
+ * unreachable destination is answered without a search, and an ALT index (distances from and
+ * to a few landmark rooms) whose triangle-inequality bounds steer A* on the pruned graph.
+ * Overlays are built on first use and dropped when the change feed reports a structural
+ * change (rooms or paths added, edited or removed), to be rebuilt on the next query. Blocks
+ * and edge class closures do not touch them: removing edges only lengthens routes, so the
+ * bounds stay admissible, and blocked edges are skipped while searching.
+ */
+public class CapacityOverlays {
+    public static final int DEFAULT_LANDMARKS = 8;
+    
+    private static class Overlay {
+        final int generation; // Index generation the room indices below belong to
+        final int[] offsets; // Usable edges leaving room i are at offsets[i] .. offsets[i + 1] - 1
+        final int[] targets;
+        final int[] edgeIds;
+        final int[] component; // Connected component by room index, -1 for removed rooms
+        final float[][] fromLandmark; // Meters along usable paths, by landmark then room index
+        final float[][] toLandmark;
+        
+        Overlay(int generation, int[] offsets, int[] targets, int[] edgeIds, int[] component,
+                float[][] fromLandmark, float[][] toLandmark) {
+            this.generation = generation;
+            this.offsets = offsets;
+            this.targets = targets;
+            this.edgeIds = edgeIds;
+            this.component = component;
+            this.fromLandmark = fromLandmark;
+            this.toLandmark = toLandmark;
+        }
+        
+        int capacity() { return component.length; }
+        
+        /**
+         * Lower bound on the meters from one room to another along usable paths
+         */
+        double lowerBound(int from, int to) {
+            double bound = 0.0;
+            for (int l = 0; l < fromLandmark.length; l++) {
+                bound = Math.max(bound, difference(fromLandmark[l][to], fromLandmark[l][from]));
+                bound = Math.max(bound, difference(toLandmark[l][from], toLandmark[l][to]));
+            }
+            return bound;
+        }
+        
+        private static double difference(float a, float b) {
+            return a != Float.POSITIVE_INFINITY && b != Float.POSITIVE_INFINITY ? a - b : 0.0;
+        }
+    }
+    
+    private static class IndexedNode implements Comparable<IndexedNode> {
+        final int index;
+        final double priority;
+        
+        IndexedNode(int index, double priority) {
+            this.index = index;
+            this.priority = priority;
+        }
+        
+        @Override
+        public int compareTo(IndexedNode other) {
+            return Double.compare(this.priority, other.priority);
+        }
+    }
+    
+    private final NavigationGraph graph;
+    private final EnhancedDijkstraPathfinder pathfinder;
+    private final int landmarkCount;
+    private final Map<CapacityClass, Overlay> overlays;
+    private final GraphChangeFeed.Subscription changes;
+    
+    public CapacityOverlays(NavigationGraph graph) {
+        this(graph, DEFAULT_LANDMARKS);
+    }
+    
+    public CapacityOverlays(NavigationGraph graph, int landmarkCount) {
+        this.graph = graph;
+        this.pathfinder = new EnhancedDijkstraPathfinder();
+        this.landmarkCount = landmarkCount;
+        this.overlays = new EnumMap<>(CapacityClass.class);
+        this.changes = graph.getChangeFeed().subscribe(this::onGraphChanges);
+    }
+    
+    /**
+     * Stop following graph changes; overlays are then only rebuilt after compaction
+     */
+    public void close() {
+        changes.cancel();
+    }
+    
+    private void onGraphChanges(List<GraphChangeEvent> events) {
+        for (GraphChangeEvent event : events) {
+            switch (event.getType()) {
+                case ROOM_ADDED:
+                case ROOM_UPDATED:
+                case ROOM_REMOVED:
+                case PATH_ADDED:
+                case PATH_UPDATED:
+                case PATH_REMOVED:
+                    clear();
+                    return;
+                default:
+                    break;
+            }
+        }
+    }
+    
+    /**
+     * Build overlays ahead of the first query, e.g. for beds and carts at startup
+     */
+    public void warmUp(CapacityClass... capacityClasses) {
+        GraphSnapshot snapshot = graph.getSnapshot();
+        for (CapacityClass capacityClass : capacityClasses) {
+            getOverlay(snapshot, capacityClass);
+        }
+    }
+    
+    /**
+     * Whether any route fits the class, ignoring temporary blocks: O(1) once the overlay exists
+     */
+    public boolean canReach(String fromRoomId, String toRoomId, CapacityClass capacityClass) {
+        GraphSnapshot snapshot = graph.getSnapshot();
+        Overlay overlay = getOverlay(snapshot, capacityClass);
+        int from = snapshot.getRoomIndex(fromRoomId);
+        int to = snapshot.getRoomIndex(toRoomId);
+        return sameComponent(overlay, from, to);
+    }
+    
+    /**
+     * Shortest route on which everything fits the capacity class: A* over the class's overlay
+     * with landmark bounds, honouring blocks, the mode and the preferences like a full search
+     */
+    public PathResult findShortestPath(String fromRoomId, String toRoomId, CapacityClass capacityClass,
+                                       NavigationMode mode, UserPreferences preferences) {
+        GraphSnapshot snapshot = graph.getSnapshot();
+        Overlay overlay = getOverlay(snapshot, capacityClass);
+        int start = snapshot.getRoomIndex(fromRoomId);
+        int goal = snapshot.getRoomIndex(toRoomId);
+        if (!sameComponent(overlay, start, goal)) return noRoute(snapshot, mode);
+        
+        double factor = pathfinder.heuristicFactor(mode, preferences);
+        int deniedAccess = EnhancedDijkstraPathfinder.deniedAccess(preferences);
+        int capacity = overlay.capacity();
+        double[] costs = new double[capacity];
+        int[] previousEdge = new int[capacity];
+        boolean[] closed = new boolean[capacity];
+        Arrays.fill(costs, Double.POSITIVE_INFINITY);
+        
+        PriorityQueue<IndexedNode> open = new PriorityQueue<>();
+        costs[start] = 0.0;
+        previousEdge[start] = -1;
+        open.offer(new IndexedNode(start, factor * overlay.lowerBound(start, goal)));
+        
+        while (!open.isEmpty()) {
+            int current = open.poll().index;
+            if (closed[current]) continue;
+            closed[current] = true;
+            if (current == goal) break;
+            
+            RoomNode node = snapshot.getNode(current);
+            if (!pathfinder.canExpand(node, preferences)) continue;
+            
+            for (int e = overlay.offsets[current]; e < overlay.offsets[current + 1]; e++) {
+                int next = overlay.targets[e];
+                int edgeId = overlay.edgeIds[e];
+                Path path = snapshot.getEdge(edgeId);
+                if (closed[next] || path == null || !capacityClass.fits(path)) continue;
+                
+                double weight = pathfinder.traversalCost(snapshot, path, edgeId, mode, preferences, deniedAccess);
+                double cost = costs[current] + weight;
+                if (cost < costs[next]) {
+                    costs[next] = cost;
+                    previousEdge[next] = edgeId;
+                    open.offer(new IndexedNode(next, cost + factor * overlay.lowerBound(next, goal)));
+                }
+            }
+        }
+        if (costs[goal] == Double.POSITIVE_INFINITY) return noRoute(snapshot, mode);
+        
+        LinkedList<Path> segments = new LinkedList<>();
+        for (int room = goal; room != start; room = snapshot.getEdgeSource(previousEdge[room])) {
+            segments.addFirst(snapshot.getEdge(previousEdge[room]));
+        }
+        
+        boolean useLandmarks = preferences == null || preferences.isUseLandmarkInstructions();
+        List<Room> rooms = new ArrayList<>();
+        List<String> instructions = new ArrayList<>();
+        List<String> landmarkInstructions = new ArrayList<>();
+        boolean accessible = true;
+        rooms.add(snapshot.getRoomByIndex(start));
+        for (Path segment : segments) {
+            rooms.add(segment.getToRoom());
+            instructions.add(useLandmarks ? segment.getLandmarkInstruction() : segment.getInstruction());
+            landmarkInstructions.add(segment.getLandmarkInstruction());
+            accessible &= mode.isPathAllowed(segment);
+        }
+        return new PathResult(rooms, instructions, landmarkInstructions, costs[goal], accessible, mode,
+                            new ArrayList<>(segments), 1.0, snapshot.getVersion());
+    }
+    
+    public synchronized void clear() {
+        overlays.clear();
+    }
+    
+    public synchronized int size() { return overlays.size(); }
+    
+    private static boolean sameComponent(Overlay overlay, int from, int to) {
+        return from >= 0 && to >= 0 && from < overlay.capacity() && to < overlay.capacity() &&
+               overlay.component[from] >= 0 && overlay.component[from] == overlay.component[to];
+    }
+    
+    private static PathResult noRoute(GraphSnapshot snapshot, NavigationMode mode) {
+        return new PathResult(Collections.emptyList(), Collections.emptyList(), Collections.emptyList(),
+                            Double.POSITIVE_INFINITY, false, mode, Collections.emptyList(),
+                            Double.POSITIVE_INFINITY, snapshot.getVersion());
+    }
+    
+    private synchronized Overlay getOverlay(GraphSnapshot snapshot, CapacityClass capacityClass) {
+        Overlay overlay = overlays.get(capacityClass);
+        if (overlay != null && overlay.generation == snapshot.getGeneration() &&
+            overlay.capacity() == snapshot.getRoomIndexCapacity()) {
+            return overlay;
+        }
+        
+        overlay = buildOverlay(snapshot, capacityClass);
+        overlays.put(capacityClass, overlay);
+        return overlay;
+    }
+    
+    private Overlay buildOverlay(GraphSnapshot snapshot, CapacityClass capacityClass) {
+        int capacity = snapshot.getRoomIndexCapacity();
+        
+        // Usable edges in CSR order, forwards and backwards
+        int[] offsets = new int[capacity + 1];
+        int[] reverseOffsets = new int[capacity + 1];
+        for (int i = 0; i < capacity; i++) {
+            RoomNode node = snapshot.getNode(i);
+            for (int k = 0; node != null && k < node.getPathCount(); k++) {
+                if (!capacityClass.fits(node.getPath(k))) continue;
+                offsets[i + 1]++;
+                reverseOffsets[snapshot.getEdgeTarget(node.getEdgeId(k)) + 1]++;
+            }
+        }
+        for (int i = 0; i < capacity; i++) {
+            offsets[i + 1] += offsets[i];
+            reverseOffsets[i + 1] += reverseOffsets[i];
+        }
+        int[] targets = new int[offsets[capacity]];
+        int[] edgeIds = new int[offsets[capacity]];
+        float[] lengths = new float[offsets[capacity]];
+        int[] sources = new int[offsets[capacity]];
+        float[] reverseLengths = new float[offsets[capacity]];
+        int[] reverseFill = Arrays.copyOf(reverseOffsets, capacity);
+        int fill = 0;
+        for (int i = 0; i < capacity; i++) {
+            RoomNode node = snapshot.getNode(i);
+            for (int k = 0; node != null && k < node.getPathCount(); k++) {
+                Path path = node.getPath(k);
+                if (!capacityClass.fits(path)) continue;
+                
+                int target = snapshot.getEdgeTarget(node.getEdgeId(k));
+                targets[fill] = target;
+                edgeIds[fill] = node.getEdgeId(k);
+                lengths[fill++] = (float) path.getDistance();
+                sources[reverseFill[target]] = i;
+                reverseLengths[reverseFill[target]++] = (float) path.getDistance();
+            }
+        }
+        
+        int[] component = components(snapshot, offsets, targets);
+        
+        // Landmarks by farthest-point selection; an unreached room is farthest of all, so
+        // every component up to the landmark budget gets one
+        List<float[]> fromLandmark = new ArrayList<>();
+        List<float[]> toLandmark = new ArrayList<>();
+        float[] nearestLandmark = new float[capacity];
+        Arrays.fill(nearestLandmark, Float.POSITIVE_INFINITY);
+        int landmark = -1;
+        for (int i = 0; i < capacity && landmark < 0; i++) {
+            if (component[i] >= 0) landmark = i;
+        }
+        while (landmark >= 0 && fromLandmark.size() < landmarkCount) {
+            float[] from = distances(landmark, offsets, targets, lengths);
+            fromLandmark.add(from);
+            toLandmark.add(distances(landmark, reverseOffsets, sources, reverseLengths));
+            
+            landmark = -1;
+            float farthest = 0f;
+            for (int i = 0; i < capacity; i++) {
+                if (component[i] < 0) continue;
+                nearestLandmark[i] = Math.min(nearestLandmark[i], from[i]);
+                if (nearestLandmark[i] > farthest) {
+                    farthest = nearestLandmark[i];
+                    landmark = i;
+                }
+            }
+        }
+        
+        return new Overlay(snapshot.getGeneration(), offsets, targets, edgeIds, component,
+                           fromLandmark.toArray(new float[0][]), toLandmark.toArray(new float[0][]));
+    }
+    
+    /**
+     * Component of every room over usable paths in either direction (union-find), -1 if removed
+     */
+    private static int[] components(GraphSnapshot snapshot, int[] offsets, int[] targets) {
+        int capacity = offsets.length - 1;
+        int[] parent = new int[capacity];
+        for (int i = 0; i < capacity; i++) parent[i] = i;
+        for (int i = 0; i < capacity; i++) {
+            for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+                int a = find(parent, i);
+                int b = find(parent, targets[e]);
+                if (a != b) parent[a] = b;
+            }
+        }
+        
+        int[] component = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            component[i] = snapshot.getNode(i) != null ? find(parent, i) : -1;
+        }
+        return component;
+    }
+    
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]]; // Path halving
+            i = parent[i];
+        }
+        return i;
+    }
+    
+    /**
+     * Dijkstra over CSR arrays, in meters
+     */
+    private static float[] distances(int source, int[] offsets, int[] targets, float[] lengths) {
+        float[] distances = new float[offsets.length - 1];
+        Arrays.fill(distances, Float.POSITIVE_INFINITY);
+        distances[source] = 0f;
+        
+        PriorityQueue<IndexedNode> queue = new PriorityQueue<>();
+        queue.offer(new IndexedNode(source, 0.0));
+        while (!queue.isEmpty()) {
+            IndexedNode current = queue.poll();
+            if (current.priority > distances[current.index]) continue;
+            
+            for (int e = offsets[current.index]; e < offsets[current.index + 1]; e++) {
+                float distance = distances[current.index] + lengths[e];
+                if (distance < distances[targets[e]]) {
+                    distances[targets[e]] = distance;
+                    queue.offer(new IndexedNode(targets[e], distance));
+                }
+            }
+        }
+        return distances;
+    }
+}
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.indoor.navigation.algorithm;
 
 import com.indoor.navigation.model.*;
+import com.indoor.navigation.model.GraphSnapshot.RoomNode;
 import java.util.*;
 
 /**
@@ -9,6 +10,8 @@ import java.util.*;
 public class EnhancedDijkstraPathfinder {
     
     public static class PathResult {
+        public static final long UNKNOWN_VERSION = -1;
+        
         private final List<Room> path;
         private final List<String> instructions;
         private final List<String> landmarkInstructions;
@@ -16,9 +19,24 @@ public class EnhancedDijkstraPathfinder {
         private final boolean isAccessible;
         private final NavigationMode mode;
         private final List<Path> pathSegments;
+        private final double suboptimalityBound; // totalDistance <= bound * optimal cost
+        private final long graphVersion; // Snapshot the route was computed on
         
         public PathResult(List<Room> path, List<String> instructions, List<String> landmarkInstructions,
                          double totalDistance, boolean isAccessible, NavigationMode mode, List<Path> pathSegments) {
+            this(path, instructions, landmarkInstructions, totalDistance, isAccessible, mode, pathSegments, 1.0);
+        }
+        
+        public PathResult(List<Room> path, List<String> instructions, List<String> landmarkInstructions,
+                         double totalDistance, boolean isAccessible, NavigationMode mode, List<Path> pathSegments,
+                         double suboptimalityBound) {
+            this(path, instructions, landmarkInstructions, totalDistance, isAccessible, mode, pathSegments,
+                 suboptimalityBound, UNKNOWN_VERSION);
+        }
+        
+        public PathResult(List<Room> path, List<String> instructions, List<String> landmarkInstructions,
+                         double totalDistance, boolean isAccessible, NavigationMode mode, List<Path> pathSegments,
+                         double suboptimalityBound, long graphVersion) {
             this.path = path;
             this.instructions = instructions;
             this.landmarkInstructions = landmarkInstructions;
@@ -26,6 +44,8 @@ public class EnhancedDijkstraPathfinder {
             this.isAccessible = isAccessible;
             this.mode = mode;
             this.pathSegments = pathSegments;
+            this.suboptimalityBound = suboptimalityBound;
+            this.graphVersion = graphVersion;
         }
         
         public List<Room> getPath() { return path; }
@@ -35,6 +55,15 @@ public class EnhancedDijkstraPathfinder {
         public boolean isAccessible() { return isAccessible; }
         public NavigationMode getMode() { return mode; }
         public List<Path> getPathSegments() { return pathSegments; }
+        public double getSuboptimalityBound() { return suboptimalityBound; }
+        public long getGraphVersion() { return graphVersion; }
+        
+        /**
+         * True when the route is proven shortest, false for deadline-bounded approximations
+         */
+        public boolean isOptimal() {
+            return !isEmpty() && suboptimalityBound <= 1.0;
+        }
         
         public boolean isEmpty() {
             return path.isEmpty();
@@ -43,15 +72,19 @@ public class EnhancedDijkstraPathfinder {
         public String getSummary() {
             if (isEmpty()) return "No path found";
             
-            return String.format("Route: %s → %s (%.1f meters, %s mode)", 
-                               path.get(0).getName(), 
-                               path.get(path.size() - 1).getName(),
-                               totalDistance,
-                               mode.getDisplayName());
+            String summary = String.format("Route: %s → %s (%.1f meters, %s mode)", 
+                                         path.get(0).getName(), 
+                                         path.get(path.size() - 1).getName(),
+                                         totalDistance,
+                                         mode.getDisplayName());
+            if (!isOptimal()) {
+                summary += String.format(" [within %.2fx of optimal]", suboptimalityBound);
+            }
+            return summary;
         }
     }
     
-    private static class Node implements Comparable<Node> {
+    static class Node implements Comparable<Node> {
         String roomId;
         double distance;
         
@@ -66,17 +99,87 @@ public class EnhancedDijkstraPathfinder {
         }
     }
     
+    /**
+     * Shortest-path tree grown from a single source room, reusable for many targets
+     */
+    public static class ShortestPathTree {
+        private final GraphSnapshot snapshot;
+        private final String sourceRoomId;
+        private final NavigationMode mode;
+        private final Map<String, Double> distances;
+        private final Map<String, String> previous;
+        private final Map<String, Path> pathsTaken;
+        
+        private ShortestPathTree(GraphSnapshot snapshot, String sourceRoomId, NavigationMode mode,
+                                 Map<String, Double> distances, Map<String, String> previous,
+                                 Map<String, Path> pathsTaken) {
+            this.snapshot = snapshot;
+            this.sourceRoomId = sourceRoomId;
+            this.mode = mode;
+            this.distances = distances;
+            this.previous = previous;
+            this.pathsTaken = pathsTaken;
+        }
+        
+        public String getSourceRoomId() { return sourceRoomId; }
+        public NavigationMode getMode() { return mode; }
+        public GraphSnapshot getSnapshot() { return snapshot; }
+        
+        public double getDistanceTo(String roomId) {
+            return distances.getOrDefault(roomId, Double.POSITIVE_INFINITY);
+        }
+        
+        public boolean reaches(String roomId) {
+            return getDistanceTo(roomId) < Double.POSITIVE_INFINITY;
+        }
+    }
+    
     public PathResult findShortestPath(NavigationGraph graph, String startRoomId, String endRoomId, 
                                      NavigationMode mode, UserPreferences preferences) {
-        
+        return findShortestPath(graph.getSnapshot(), startRoomId, endRoomId, mode, preferences);
+    }
+    
+    /**
+     * Route on a pinned graph version; concurrent changes to the graph do not affect the search
+     */
+    public PathResult findShortestPath(GraphSnapshot snapshot, String startRoomId, String endRoomId,
+                                     NavigationMode mode, UserPreferences preferences) {
+        ShortestPathTree tree = runDijkstra(snapshot, startRoomId, endRoomId, mode, preferences);
+        return extractPath(tree, endRoomId, preferences);
+    }
+    
+    /**
+     * One-to-all search: distances and routes from one room to every reachable room
+     */
+    public ShortestPathTree computeShortestPathTree(NavigationGraph graph, String startRoomId,
+                                                    NavigationMode mode, UserPreferences preferences) {
+        return computeShortestPathTree(graph.getSnapshot(), startRoomId, mode, preferences);
+    }
+    
+    public ShortestPathTree computeShortestPathTree(GraphSnapshot snapshot, String startRoomId,
+                                                    NavigationMode mode, UserPreferences preferences) {
+        return runDijkstra(snapshot, startRoomId, null, mode, preferences);
+    }
+    
+    /**
+     * Build the route to a target from a previously computed shortest-path tree
+     */
+    public PathResult extractPath(ShortestPathTree tree, String endRoomId, UserPreferences preferences) {
+        return reconstructPath(tree.snapshot, tree.sourceRoomId, endRoomId, tree.previous, tree.pathsTaken,
+                             tree.getDistanceTo(endRoomId), tree.mode, preferences);
+    }
+    
+    private ShortestPathTree runDijkstra(GraphSnapshot snapshot, String startRoomId, String endRoomId,
+                                         NavigationMode mode, UserPreferences preferences) {
         Map<String, Double> distances = new HashMap<>();
         Map<String, String> previous = new HashMap<>();
         Map<String, Path> pathsTaken = new HashMap<>();
         PriorityQueue<Node> queue = new PriorityQueue<>();
         Set<String> visited = new HashSet<>();
+        int deniedAccess = deniedAccess(preferences);
         
         // Initialize distances
-        for (Room room : graph.getAllRooms()) {
+        for (Room room : snapshot.getAllRooms()) {
             distances.put(room.getId(), Double.POSITIVE_INFINITY);
         }
         distances.put(startRoomId, 0.0);
@@ -89,58 +192,286 @@ public class EnhancedDijkstraPathfinder {
             if (visited.contains(currentRoomId)) continue;
             visited.add(currentRoomId);
             
-            if (currentRoomId.equals(endRoomId)) break;
-            
-            Room currentRoom = graph.getRoomById(currentRoomId);
-            if (currentRoom.isBlocked()) continue;
+            if (currentRoomId.equals(endRoomId)) break; // Null target grows the full tree
             
-            // Check if user preferences avoid this room type
-            if (preferences != null && preferences.getAvoidRoomTypes().contains(currentRoom.getRoomType())) {
-                continue;
-            }
+            RoomNode node = snapshot.getNode(currentRoomId);
+            if (!canExpand(node, preferences)) continue;
             
-            for (Path path : graph.getPathsFromRoom(currentRoomId)) {
-                Room neighborRoom = path.getToRoom();
-                String neighborId = neighborRoom.getId();
-                
-                // Skip if path or room is blocked
-                if (path.isCurrentlyBlocked() || neighborRoom.isBlocked()) continue;
+            for (int i = 0; i < node.getPathCount(); i++) {
+                Path path = node.getPath(i);
+                double pathWeight = traversalCost(snapshot, path, node.getEdgeId(i), mode, preferences, deniedAccess);
+                if (pathWeight == Double.POSITIVE_INFINITY) continue;
                 
-                // Check navigation mode constraints
-                if (!mode.isPathAllowed(path)) continue;
+                String neighborId = path.getToRoom().getId();
+                double newDistance = distances.get(currentRoomId) + pathWeight;
                 
-                // Check user preferences for path types
-                if (preferences != null && preferences.getAvoidPathTypes().contains(path.getPathType())) {
-                    continue;
+                if (newDistance < distances.getOrDefault(neighborId, Double.POSITIVE_INFINITY)) {
+                    distances.put(neighborId, newDistance);
+                    previous.put(neighborId, currentRoomId);
+                    pathsTaken.put(neighborId, path);
+                    queue.offer(new Node(neighborId, newDistance));
                 }
-                
-                // Check user preferences for room types
-                if (preferences != null && preferences.getAvoidRoomTypes().contains(neighborRoom.getRoomType())) {
+            }
+        }
+        
+        return new ShortestPathTree(snapshot, startRoomId, mode, distances, previous, pathsTaken);
+    }
+    
+    /**
+     * Deadline-bounded query. Runs anytime repairing A* (ARA*) and returns the best route
+     * found when the budget runs out, together with its proven suboptimality bound.
+     * Falls back to exact Dijkstra when no options are given.
+     */
+    public PathResult findShortestPath(NavigationGraph graph, String startRoomId, String endRoomId,
+                                     NavigationMode mode, UserPreferences preferences, RouteQueryOptions options) {
+        GraphSnapshot snapshot = graph.getSnapshot();
+        if (options == null) {
+            return findShortestPath(snapshot, startRoomId, endRoomId, mode, preferences);
+        }
+        
+        long deadline = System.nanoTime() + options.getTimeBudgetMillis() * 1_000_000L;
+        Map<String, Double> g = new HashMap<>();
+        Map<String, String> previous = new HashMap<>();
+        Map<String, Path> pathsTaken = new HashMap<>();
+        
+        Room startRoom = snapshot.getRoomById(startRoomId);
+        Room goalRoom = snapshot.getRoomById(endRoomId);
+        if (startRoom == null || goalRoom == null) {
+            return reconstructPath(snapshot, startRoomId, endRoomId, previous, pathsTaken,
+                                 Double.POSITIVE_INFINITY, mode, preferences, Double.POSITIVE_INFINITY);
+        }
+        
+        AnytimeSearch search = new AnytimeSearch(snapshot, goalRoom, mode, preferences, deadline, g, previous, pathsTaken);
+        search.epsilon = options.getInitialEpsilon();
+        g.put(startRoomId, 0.0);
+        search.push(startRoom);
+        
+        double bound = Double.POSITIVE_INFINITY;
+        while (true) {
+            boolean completed = search.improvePath();
+            double goalCost = g.getOrDefault(endRoomId, Double.POSITIVE_INFINITY);
+            
+            if (goalCost < Double.POSITIVE_INFINITY) {
+                double lowerBound = search.lowerBound();
+                double proven = lowerBound >= goalCost ? 1.0 : goalCost / lowerBound;
+                bound = completed ? Math.min(search.epsilon, proven) : Math.min(bound, proven);
+            }
+            
+            if (!completed || bound <= 1.0 || search.epsilon <= 1.0 || search.isExhausted()) break;
+            
+            search.epsilon = Math.max(1.0, search.epsilon - options.getEpsilonStep());
+            search.restart();
+        }
+        
+        return reconstructPath(snapshot, startRoomId, endRoomId, previous, pathsTaken,
+                             g.getOrDefault(endRoomId, Double.POSITIVE_INFINITY), mode, preferences, bound);
+    }
+    
+    /**
+     * State of one ARA* query: OPEN, CLOSED and INCONS sets over a shared g-value map
+     */
+    private class AnytimeSearch {
+        private static final int DEADLINE_CHECK_INTERVAL = 64;
+        
+        private final GraphSnapshot snapshot;
+        private final Room goalRoom;
+        private final NavigationMode mode;
+        private final UserPreferences preferences;
+        private final long deadline;
+        private final double heuristicPerFloor;
+        private final int deniedAccess;
+        private final Map<String, Double> g;
+        private final Map<String, String> previous;
+        private final Map<String, Path> pathsTaken;
+        private final PriorityQueue<Node> open = new PriorityQueue<>();
+        private final Set<String> openStates = new HashSet<>();
+        private final Set<String> closed = new HashSet<>();
+        private final Set<String> incons = new HashSet<>();
+        private double epsilon;
+        
+        AnytimeSearch(GraphSnapshot snapshot, Room goalRoom, NavigationMode mode, UserPreferences preferences,
+                      long deadline, Map<String, Double> g, Map<String, String> previous, Map<String, Path> pathsTaken) {
+            this.snapshot = snapshot;
+            this.goalRoom = goalRoom;
+            this.mode = mode;
+            this.preferences = preferences;
+            this.deadline = deadline;
+            this.heuristicPerFloor = heuristicPerFloor(snapshot, mode, preferences);
+            this.deniedAccess = deniedAccess(preferences);
+            this.g = g;
+            this.previous = previous;
+            this.pathsTaken = pathsTaken;
+        }
+        
+        double heuristic(Room room) {
+            return Math.abs(room.getFloor() - goalRoom.getFloor()) * heuristicPerFloor;
+        }
+        
+        void push(Room room) {
+            open.offer(new Node(room.getId(), g.get(room.getId()) + epsilon * heuristic(room)));
+            openStates.add(room.getId());
+        }
+        
+        /**
+         * Expand states until the goal is at least as cheap as every OPEN key.
+         * Returns false if the deadline expired first.
+         */
+        boolean improvePath() {
+            String goalId = goalRoom.getId();
+            int expansions = 0;
+            
+            while (!open.isEmpty()) {
+                Node top = open.peek();
+                if (closed.contains(top.roomId)) {
+                    open.poll(); // Stale entry superseded by a cheaper key
                     continue;
                 }
+                if (g.getOrDefault(goalId, Double.POSITIVE_INFINITY) <= top.distance) return true;
+                if (++expansions % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() > deadline) return false;
                 
-                // Calculate weight based on navigation mode
-                double pathWeight = mode.calculatePathWeight(path, currentRoom, neighborRoom);
-                
-                // Apply additional preferences-based adjustments
-                if (preferences != null) {
-                    pathWeight = applyPreferenceWeights(pathWeight, path, currentRoom, neighborRoom, preferences);
-                }
+                open.poll();
+                openStates.remove(top.roomId);
+                closed.add(top.roomId);
                 
-                double newDistance = distances.get(currentRoomId) + pathWeight;
+                RoomNode node = snapshot.getNode(top.roomId);
+                if (!canExpand(node, preferences)) continue;
+                double currentCost = g.get(top.roomId);
                 
-                if (newDistance < distances.get(neighborId)) {
-                    distances.put(neighborId, newDistance);
-                    previous.put(neighborId, currentRoomId);
-                    pathsTaken.put(neighborId, path);
-                    queue.offer(new Node(neighborId, newDistance));
+                for (int i = 0; i < node.getPathCount(); i++) {
+                    Path path = node.getPath(i);
+                    double pathWeight = traversalCost(snapshot, path, node.getEdgeId(i), mode, preferences,
+                                                      deniedAccess);
+                    if (pathWeight == Double.POSITIVE_INFINITY) continue;
+                    
+                    Room neighborRoom = path.getToRoom();
+                    String neighborId = neighborRoom.getId();
+                    double newCost = currentCost + pathWeight;
+                    
+                    if (newCost < g.getOrDefault(neighborId, Double.POSITIVE_INFINITY)) {
+                        g.put(neighborId, newCost);
+                        previous.put(neighborId, top.roomId);
+                        pathsTaken.put(neighborId, path);
+                        if (closed.contains(neighborId)) {
+                            incons.add(neighborId);
+                        } else {
+                            push(neighborRoom);
+                        }
+                    }
                 }
             }
+            return true;
+        }
+        
+        /**
+         * Lower bound on the optimal cost: min g + h over OPEN and INCONS
+         */
+        double lowerBound() {
+            double min = Double.POSITIVE_INFINITY;
+            for (String roomId : openStates) {
+                min = Math.min(min, g.get(roomId) + heuristic(snapshot.getRoomById(roomId)));
+            }
+            for (String roomId : incons) {
+                min = Math.min(min, g.get(roomId) + heuristic(snapshot.getRoomById(roomId)));
+            }
+            return min;
+        }
+        
+        boolean isExhausted() {
+            return openStates.isEmpty() && incons.isEmpty();
         }
         
-        // Reconstruct path
-        return reconstructPath(graph, startRoomId, endRoomId, previous, pathsTaken, 
-                             distances.get(endRoomId), mode, preferences);
+        /**
+         * Merge INCONS into OPEN and re-key everything for the new epsilon
+         */
+        void restart() {
+            openStates.addAll(incons);
+            incons.clear();
+            closed.clear();
+            open.clear();
+            for (String roomId : openStates) {
+                Room room = snapshot.getRoomById(roomId);
+                open.offer(new Node(roomId, g.get(roomId) + epsilon * heuristic(room)));
+            }
+        }
+    }
+    
+    /**
+     * Admissible heuristic scale: every floor changed costs at least this much under the mode
+     */
+    private double heuristicPerFloor(GraphSnapshot snapshot, NavigationMode mode, UserPreferences preferences) {
+        double distancePerFloor = snapshot.getMinDistancePerFloorChange();
+        if (Double.isInfinite(distancePerFloor)) return 0.0;
+        return Math.max(0.0, distancePerFloor * heuristicFactor(mode, preferences));
+    }
+    
+    /**
+     * Lower bound on traversal cost per meter of path under the mode and preferences
+     */
+    double heuristicFactor(NavigationMode mode, UserPreferences preferences) {
+        double factor = mode.getMinimumWeightFactor();
+        if (preferences != null) {
+            Object customMultiplier = preferences.getCustomSetting("path_weight_multiplier");
+            if (customMultiplier instanceof Double) {
+                factor *= (Double) customMultiplier;
+            }
+            if (Boolean.TRUE.equals(preferences.getCustomSetting("prefer_wide_paths"))) {
+                factor *= 0.9;
+            }
+        }
+        return Math.max(0.0, factor);
+    }
+    
+    boolean canExpand(RoomNode node, UserPreferences preferences) {
+        if (node == null || node.isBlocked()) return false;
+        
+        // Check if user preferences avoid this room type
+        return preferences == null || !preferences.getAvoidRoomTypes().contains(node.getRoom().getRoomType());
+    }
+    
+    /**
+     * Access groups the user lacks; queries without preferences get public access only
+     */
+    static int deniedAccess(UserPreferences preferences) {
+        return ~(preferences != null ? preferences.getCredentialMask() : AccessGroup.PUBLIC);
+    }
+    
+    /**
+     * Weight of traversing a path (with its edge id in the given version) under the mode
+     * and preferences, or infinity if not allowed
+     */
+    double traversalCost(GraphSnapshot snapshot, Path path, int edgeId, NavigationMode mode,
+                         UserPreferences preferences, int deniedAccess) {
+        Room currentRoom = path.getFromRoom();
+        
+        // Restricted areas: a single AND against the groups the user lacks
+        if ((path.getRequiredAccess() & deniedAccess) != 0) return Double.POSITIVE_INFINITY;
+        
+        Room neighborRoom = path.getToRoom();
+        
+        // Skip if path or room is blocked
+        if (snapshot.isEdgeBlocked(edgeId) || snapshot.isRoomBlocked(neighborRoom.getId())) return Double.POSITIVE_INFINITY;
+        
+        // Check navigation mode constraints
+        if (!mode.isPathAllowed(path)) return Double.POSITIVE_INFINITY;
+        
+        if (preferences != null) {
+            // Check user preferences for path and room types
+            if (preferences.getAvoidPathTypes().contains(path.getPathType()) ||
+                preferences.getAvoidRoomTypes().contains(neighborRoom.getRoomType())) {
+                return Double.POSITIVE_INFINITY;
+            }
+        }
+        
+        // Calculate weight based on navigation mode and how crowded the rooms are right now
+        double pathWeight = mode.calculatePathWeight(path, currentRoom, neighborRoom,
+                                                     snapshot.getSourceCrowdFactor(edgeId),
+                                                     snapshot.getTargetCrowdFactor(edgeId));
+        
+        // Apply additional preferences-based adjustments
+        if (preferences != null) {
+            pathWeight = applyPreferenceWeights(pathWeight, path, currentRoom, neighborRoom, preferences);
+        }
+        return pathWeight;
     }
     
     private double applyPreferenceWeights(double baseWeight, Path path, Room fromRoom, Room toRoom, 
@@ -162,9 +493,17 @@ public class EnhancedDijkstraPathfinder {
         return weight;
     }
     
-    private PathResult reconstructPath(NavigationGraph graph, String startRoomId, String endRoomId,
+    private PathResult reconstructPath(GraphSnapshot snapshot, String startRoomId, String endRoomId,
                                      Map<String, String> previous, Map<String, Path> pathsTaken,
                                      double totalDistance, NavigationMode mode, UserPreferences preferences) {
+        return reconstructPath(snapshot, startRoomId, endRoomId, previous, pathsTaken,
+                             totalDistance, mode, preferences, 1.0);
+    }
+    
+    private PathResult reconstructPath(GraphSnapshot snapshot, String startRoomId, String endRoomId,
+                                     Map<String, String> previous, Map<String, Path> pathsTaken,
+                                     double totalDistance, NavigationMode mode, UserPreferences preferences,
+                                     double suboptimalityBound) {
         
         List<Room> path = new ArrayList<>();
         List<String> instructions = new ArrayList<>();
@@ -176,7 +515,8 @@ public class EnhancedDijkstraPathfinder {
         
         if (!pathFound) {
             return new PathResult(Collections.emptyList(), Collections.emptyList(), 
-                                Collections.emptyList(), Double.POSITIVE_INFINITY, false, mode, Collections.emptyList());
+                                Collections.emptyList(), Double.POSITIVE_INFINITY, false, mode, Collections.emptyList(),
+                                Double.POSITIVE_INFINITY, snapshot.getVersion());
         }
         
         // Build path in reverse
@@ -190,7 +530,7 @@ public class EnhancedDijkstraPathfinder {
         String prevRoomId = null;
         while (!pathStack.isEmpty()) {
             String roomId = pathStack.pop();
-            Room room = graph.getRoomById(roomId);
+            Room room = snapshot.getRoomById(roomId);
             path.add(room);
             
             if (prevRoomId != null) {
@@ -214,7 +554,7 @@ public class EnhancedDijkstraPathfinder {
         boolean isAccessible = checkPathAccessibility(pathSegments, mode);
         
         return new PathResult(path, instructions, landmarkInstructions, 
-                            totalDistance, isAccessible, mode, pathSegments);
+                            totalDistance, isAccessible, mode, pathSegments, suboptimalityBound, snapshot.getVersion());
     }
     
     private boolean checkPathAccessibility(List<Path> pathSegments, NavigationMode mode) {
@@ -232,22 +572,21 @@ public class EnhancedDijkstraPathfinder {
     public List<PathResult> findAlternativeRoutes(NavigationGraph graph, String startRoomId, String endRoomId,
                                                  NavigationMode mode, UserPreferences preferences, int maxAlternatives) {
         List<PathResult> alternatives = new ArrayList<>();
+        GraphSnapshot snapshot = graph.getSnapshot();
         
         // Find primary route
-        PathResult primary = findShortestPath(graph, startRoomId, endRoomId, mode, preferences);
+        PathResult primary = findShortestPath(snapshot, startRoomId, endRoomId, mode, preferences);
         if (!primary.isEmpty()) {
             alternatives.add(primary);
         }
         
-        // Temporarily block paths from primary route to find alternatives
-        Set<Path> blockedPaths = new HashSet<>();
+        // Block paths from primary route in a private copy of the pinned version to find alternatives
+        GraphSnapshot excluded = snapshot;
         
         for (int i = 0; i < maxAlternatives - 1 && i < primary.getPathSegments().size(); i++) {
-            Path pathToBlock = primary.getPathSegments().get(i);
-            pathToBlock.setTemporarilyBlocked(true, "Finding alternative route");
-            blockedPaths.add(pathToBlock);
+            excluded = excluded.withPathBlocked(primary.getPathSegments().get(i));
             
-            PathResult alternative = findShortestPath(graph, startRoomId, endRoomId, mode, preferences);
+            PathResult alternative = findShortestPath(excluded, startRoomId, endRoomId, mode, preferences);
             if (!alternative.isEmpty() && !alternatives.contains(alternative)) {
                 alternatives.add(alternative);
             }
@@ -255,11 +594,6 @@ public class EnhancedDijkstraPathfinder {
             if (alternatives.size() >= maxAlternatives) break;
         }
         
-        // Restore blocked paths
-        for (Path path : blockedPaths) {
-            path.setTemporarilyBlocked(false, null);
-        }
-        
         return alternatives;
     }
     
@@ -268,8 +602,9 @@ public class EnhancedDijkstraPathfinder {
      */
     public PathResult findEmergencyExit(NavigationGraph graph, String startRoomId) {
         // Find all emergency exits
+        GraphSnapshot snapshot = graph.getSnapshot();
         List<Room> emergencyExits = new ArrayList<>();
-        for (Room room : graph.getAllRooms()) {
+        for (Room room : snapshot.getAllRooms()) {
             if (room.isEmergencyExit() || room.getRoomType() == RoomType.EMERGENCY_EXIT) {
                 emergencyExits.add(room);
             }
@@ -277,7 +612,7 @@ public class EnhancedDijkstraPathfinder {
         
         if (emergencyExits.isEmpty()) {
             // No emergency exits, find any entrance
-            for (Room room : graph.getAllRooms()) {
+            for (Room room : snapshot.getAllRooms()) {
                 if (room.getRoomType() == RoomType.ENTRANCE) {
                     emergencyExits.add(room);
                 }
@@ -289,7 +624,7 @@ public class EnhancedDijkstraPathfinder {
         
         // Find closest emergency exit
         for (Room exit : emergencyExits) {
-            PathResult result = findShortestPath(graph, startRoomId, exit.getId(), 
+            PathResult result = findShortestPath(snapshot, startRoomId, exit.getId(), 
                                                NavigationMode.EMERGENCY, null);
             if (!result.isEmpty() && result.getTotalDistance() < shortestDistance) {
                 bestExit = result;
@@ -300,6 +635,7 @@ public class EnhancedDijkstraPathfinder {
         return bestExit != null ? bestExit : 
                new PathResult(Collections.emptyList(), Collections.emptyList(), 
                             Collections.emptyList(), Double.POSITIVE_INFINITY, false, 
-                            NavigationMode.EMERGENCY, Collections.emptyList());
+                            NavigationMode.EMERGENCY, Collections.emptyList(),
+                            Double.POSITIVE_INFINITY, snapshot.getVersion());
     }
 }
\ No newline at end of file
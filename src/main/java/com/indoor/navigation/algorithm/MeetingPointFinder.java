@@ -0,0 +1,216 @@
+package com.indoor.navigation.algorithm;
+
+import com.indoor.navigation.algorithm.EnhancedDijkstraPathfinder.Node;
+import com.indoor.navigation.model.*;
+import com.indoor.navigation.model.GraphSnapshot.RoomNode;
+import java.util.*;
+
+/**
+ * Finds a fair room for a group to meet.
+ * Runs one Dijkstra search per participant, interleaved so the search with the smallest
+ * frontier radius always advances next. The radii bound every unsettled distance from below,
+ * which lets the finder stop searches as soon as no candidate room can beat the best found.
+ */
+public class MeetingPointFinder {
+    
+    public enum Objective {
+        MIN_SUM("Shortest total walking"),
+        MIN_MAX("Shortest longest walk");
+        
+        private final String displayName;
+        
+        Objective(String displayName) {
+            this.displayName = displayName;
+        }
+        
+        public String getDisplayName() { return displayName; }
+    }
+    
+    public static class MeetingPoint {
+        private final Room room;
+        private final Objective objective;
+        private final double objectiveCost;
+        private final List<Double> participantCosts;
+        
+        public MeetingPoint(Room room, Objective objective, double objectiveCost, List<Double> participantCosts) {
+            this.room = room;
+            this.objective = objective;
+            this.objectiveCost = objectiveCost;
+            this.participantCosts = participantCosts;
+        }
+        
+        public Room getRoom() { return room; }
+        public Objective getObjective() { return objective; }
+        public double getObjectiveCost() { return objectiveCost; }
+        public List<Double> getParticipantCosts() { return participantCosts; }
+        
+        @Override
+        public String toString() {
+            return String.format("MeetingPoint{room=%s, %s=%.1f}", room.getName(), objective, objectiveCost);
+        }
+    }
+    
+    /**
+     * Per-participant search state; radius is the smallest unsettled key
+     */
+    private class ParticipantSearch {
+        final Map<String, Double> distances = new HashMap<>();
+        final Set<String> settled = new HashSet<>();
+        final PriorityQueue<Node> queue = new PriorityQueue<>();
+        
+        ParticipantSearch(String startRoomId) {
+            distances.put(startRoomId, 0.0);
+            queue.offer(new Node(startRoomId, 0.0));
+        }
+        
+        double radius() {
+            while (!queue.isEmpty() && settled.contains(queue.peek().roomId)) {
+                queue.poll();
+            }
+            return queue.isEmpty() ? Double.POSITIVE_INFINITY : queue.peek().distance;
+        }
+        
+        /**
+         * Settle the next room and relax its paths. Returns the settled room id.
+         */
+        String step(GraphSnapshot snapshot, NavigationMode mode, UserPreferences preferences, int deniedAccess) {
+            Node current = queue.poll();
+            settled.add(current.roomId);
+            
+            RoomNode node = snapshot.getNode(current.roomId);
+            if (pathfinder.canExpand(node, preferences)) {
+                for (int i = 0; i < node.getPathCount(); i++) {
+                    Path path = node.getPath(i);
+                    double pathWeight = pathfinder.traversalCost(snapshot, path, node.getEdgeId(i), mode, preferences,
+                                                                 deniedAccess);
+                    if (pathWeight == Double.POSITIVE_INFINITY) continue;
+                    
+                    String neighborId = path.getToRoom().getId();
+                    double newDistance = current.distance + pathWeight;
+                    if (newDistance < distances.getOrDefault(neighborId, Double.POSITIVE_INFINITY)) {
+                        distances.put(neighborId, newDistance);
+                        queue.offer(new Node(neighborId, newDistance));
+                    }
+                }
+            }
+            return current.roomId;
+        }
+    }
+    
+    private final EnhancedDijkstraPathfinder pathfinder;
+    
+    public MeetingPointFinder() {
+        this(new EnhancedDijkstraPathfinder());
+    }
+    
+    public MeetingPointFinder(EnhancedDijkstraPathfinder pathfinder) {
+        this.pathfinder = pathfinder;
+    }
+    
+    /**
+     * Find the room minimizing the sum or the maximum of participants' route costs.
+     * An empty or null set of allowed types accepts every room. Returns null if no
+     * candidate room is reachable by everyone.
+     */
+    public MeetingPoint findMeetingPoint(NavigationGraph graph, List<String> participantRoomIds, Objective objective,
+                                         Set<RoomType> allowedTypes, NavigationMode mode, UserPreferences preferences) {
+        int n = participantRoomIds.size();
+        if (n == 0) return null;
+        
+        GraphSnapshot snapshot = graph.getSnapshot();
+        int deniedAccess = EnhancedDijkstraPathfinder.deniedAccess(preferences);
+        List<ParticipantSearch> searches = new ArrayList<>();
+        for (String roomId : participantRoomIds) {
+            if (snapshot.getRoomById(roomId) == null) return null;
+            searches.add(new ParticipantSearch(roomId));
+        }
+        
+        // Candidate bookkeeping: how many participants settled it and their summed / max cost
+        Map<String, Integer> settledBy = new HashMap<>();
+        Map<String, Double> partialCost = new HashMap<>();
+        Set<String> pruned = new HashSet<>();
+        String bestRoomId = null;
+        double bestCost = Double.POSITIVE_INFINITY;
+        
+        while (true) {
+            // Advance the participant search with the smallest frontier radius
+            ParticipantSearch next = null;
+            double nextRadius = Double.POSITIVE_INFINITY;
+            double radiusSum = 0;
+            for (ParticipantSearch search : searches) {
+                double radius = search.radius();
+                radiusSum += radius;
+                if (radius < nextRadius) {
+                    nextRadius = radius;
+                    next = search;
+                }
+            }
+            if (next == null) break; // Every search exhausted
+            
+            // Every search is at or beyond the best cost, so nothing unsettled can do better
+            if (nextRadius >= bestCost) break;
+            
+            // Untouched rooms cost at least the radius sum; check partially settled ones before stopping
+            if (objective == Objective.MIN_SUM && radiusSum >= bestCost &&
+                !canStillImprove(searches, settledBy, partialCost, pruned, bestCost)) break;
+            
+            String roomId = next.step(snapshot, mode, preferences, deniedAccess);
+            if (!isCandidate(snapshot.getNode(roomId), allowedTypes) || pruned.contains(roomId)) continue;
+            
+            double distance = next.distances.get(roomId);
+            int count = settledBy.merge(roomId, 1, Integer::sum);
+            double cost = objective == Objective.MIN_SUM ?
+                partialCost.merge(roomId, distance, Double::sum) :
+                partialCost.merge(roomId, distance, Math::max);
+            
+            if (count == n && cost < bestCost) {
+                bestCost = cost;
+                bestRoomId = roomId;
+                if (objective == Objective.MIN_MAX) break; // First room settled by everyone is optimal
+            }
+        }
+        
+        if (bestRoomId == null) return null;
+        
+        List<Double> participantCosts = new ArrayList<>();
+        for (ParticipantSearch search : searches) {
+            participantCosts.add(search.distances.get(bestRoomId));
+        }
+        return new MeetingPoint(snapshot.getRoomById(bestRoomId), objective, bestCost, participantCosts);
+    }
+    
+    private boolean isCandidate(RoomNode node, Set<RoomType> allowedTypes) {
+        if (node == null || node.isBlocked()) return false;
+        return allowedTypes == null || allowedTypes.isEmpty() || allowedTypes.contains(node.getRoom().getRoomType());
+    }
+    
+    /**
+     * Whether some partially settled candidate could still beat bestCost. Its lower bound adds
+     * the current radius of every participant that has not settled it yet. Radii only grow,
+     * so candidates whose bound already reached bestCost are pruned for good.
+     */
+    private boolean canStillImprove(List<ParticipantSearch> searches, Map<String, Integer> settledBy,
+                                    Map<String, Double> partialCost, Set<String> pruned, double bestCost) {
+        boolean improvable = false;
+        Iterator<Map.Entry<String, Double>> iterator = partialCost.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Double> entry = iterator.next();
+            if (settledBy.get(entry.getKey()) == searches.size()) continue;
+            
+            double lowerBound = entry.getValue();
+            for (ParticipantSearch search : searches) {
+                if (!search.settled.contains(entry.getKey())) {
+                    lowerBound += search.radius();
+                }
+            }
+            if (lowerBound < bestCost) {
+                improvable = true;
+            } else {
+                pruned.add(entry.getKey());
+                settledBy.remove(entry.getKey());
+                iterator.remove();
+            }
+        }
+        return improvable;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,326 @@
+package com.indoor.navigation.algorithm;
+
+import com.indoor.navigation.algorithm.EnhancedDijkstraPathfinder.PathResult;
+import com.indoor.navigation.algorithm.EnhancedDijkstraPathfinder.ShortestPathTree;
+import com.indoor.navigation.model.*;
+import java.util.*;
+
+/**
+ * Plans a single route visiting several rooms in the best order.
+ * Builds the stop-to-stop distance matrix once (one shortest-path tree per stop), orders the
+ * stops exactly with Held-Karp bitmask DP for small itineraries and with 2-opt / Or-opt local
+ * search above that, then stitches the legs into one PathResult.
+ */
+public class MultiStopPlanner {
+    public static final int EXACT_STOP_LIMIT = 15;
+    private static final double UNREACHABLE = 1e15; // Finite so local search deltas stay defined
+    
+    private final EnhancedDijkstraPathfinder pathfinder;
+    
+    public MultiStopPlanner() {
+        this(new EnhancedDijkstraPathfinder());
+    }
+    
+    public MultiStopPlanner(EnhancedDijkstraPathfinder pathfinder) {
+        this.pathfinder = pathfinder;
+    }
+    
+    /**
+     * Stitched route plus the order the planner chose for the stops
+     */
+    public static class Itinerary {
+        private final PathResult route;
+        private final List<Room> stopOrder;
+        
+        Itinerary(PathResult route, List<Room> stopOrder) {
+            this.route = route;
+            this.stopOrder = stopOrder;
+        }
+        
+        public PathResult getRoute() { return route; }
+        
+        /**
+         * Rooms in visiting order, after the start and ending with the fixed end room if any;
+         * empty if no route exists
+         */
+        public List<Room> getStopOrder() { return stopOrder; }
+    }
+    
+    /**
+     * Plan an itinerary from a fixed start through every stop, optionally finishing at a fixed end room.
+     * Returns an empty result if some stop cannot be reached.
+     */
+    public PathResult planItinerary(NavigationGraph graph, String startRoomId, List<String> stopRoomIds,
+                                    String endRoomId, NavigationMode mode, UserPreferences preferences) {
+        return plan(graph, startRoomId, stopRoomIds, endRoomId, mode, preferences).getRoute();
+    }
+    
+    /**
+     * Same as planItinerary, also reporting the chosen stop order
+     */
+    public Itinerary plan(NavigationGraph graph, String startRoomId, List<String> stopRoomIds,
+                          String endRoomId, NavigationMode mode, UserPreferences preferences) {
+        List<String> stops = new ArrayList<>(new LinkedHashSet<>(stopRoomIds));
+        stops.remove(startRoomId);
+        if (endRoomId != null) stops.remove(endRoomId);
+        
+        // Node 0 is the start, 1..k the stops, k+1 the end (a zero-cost virtual sink when open-ended)
+        int k = stops.size();
+        List<String> nodes = new ArrayList<>();
+        nodes.add(startRoomId);
+        nodes.addAll(stops);
+        
+        // Every leg is planned on the same graph version
+        GraphSnapshot snapshot = graph.getSnapshot();
+        Map<String, ShortestPathTree> trees = new HashMap<>();
+        for (String roomId : nodes) {
+            trees.put(roomId, pathfinder.computeShortestPathTree(snapshot, roomId, mode, preferences));
+        }
+        
+        int n = k + 2;
+        double[][] cost = new double[n][n];
+        for (int i = 0; i <= k; i++) {
+            ShortestPathTree tree = trees.get(nodes.get(i));
+            for (int j = 1; j <= k; j++) {
+                cost[i][j] = i == j ? 0.0 : toMatrixCost(tree.getDistanceTo(nodes.get(j)));
+            }
+            cost[i][k + 1] = endRoomId == null ? 0.0 : toMatrixCost(tree.getDistanceTo(endRoomId));
+        }
+        
+        int[] order = k <= EXACT_STOP_LIMIT ? solveExact(cost, k) : solveHeuristic(cost, k);
+        if (routeCost(cost, order) >= UNREACHABLE) {
+            return new Itinerary(emptyResult(snapshot, mode), Collections.emptyList());
+        }
+        
+        List<String> visitOrder = new ArrayList<>();
+        for (int node : order) {
+            if (node <= k) visitOrder.add(nodes.get(node));
+        }
+        if (endRoomId != null) visitOrder.add(endRoomId);
+        
+        PathResult route = stitchLegs(snapshot, trees, visitOrder, mode, preferences);
+        if (route.isEmpty()) return new Itinerary(route, Collections.emptyList());
+        
+        List<Room> stopOrder = new ArrayList<>();
+        for (String roomId : visitOrder.subList(1, visitOrder.size())) {
+            stopOrder.add(snapshot.getRoomById(roomId));
+        }
+        return new Itinerary(route, stopOrder);
+    }
+    
+    private double toMatrixCost(double distance) {
+        return distance == Double.POSITIVE_INFINITY ? UNREACHABLE : distance;
+    }
+    
+    /**
+     * Held-Karp DP over subsets of stops. Returns 0, the stop order, then k+1.
+     */
+    private int[] solveExact(double[][] cost, int k) {
+        int end = k + 1;
+        int full = (1 << k) - 1;
+        double[][] best = new double[1 << k][k];
+        int[][] parent = new int[1 << k][k];
+        for (double[] row : best) Arrays.fill(row, Double.POSITIVE_INFINITY);
+        
+        for (int j = 0; j < k; j++) {
+            best[1 << j][j] = cost[0][j + 1];
+            parent[1 << j][j] = -1;
+        }
+        
+        for (int mask = 1; mask <= full; mask++) {
+            for (int last = 0; last < k; last++) {
+                double current = best[mask][last];
+                if ((mask & (1 << last)) == 0 || current == Double.POSITIVE_INFINITY) continue;
+                
+                for (int next = 0; next < k; next++) {
+                    if ((mask & (1 << next)) != 0) continue;
+                    int nextMask = mask | (1 << next);
+                    double candidate = current + cost[last + 1][next + 1];
+                    if (candidate < best[nextMask][next]) {
+                        best[nextMask][next] = candidate;
+                        parent[nextMask][next] = last;
+                    }
+                }
+            }
+        }
+        
+        int[] order = new int[k + 2];
+        order[0] = 0;
+        order[k + 1] = end;
+        if (k == 0) return order;
+        
+        int last = 0;
+        double bestTotal = Double.POSITIVE_INFINITY;
+        for (int j = 0; j < k; j++) {
+            double total = best[full][j] + cost[j + 1][end];
+            if (total < bestTotal) {
+                bestTotal = total;
+                last = j;
+            }
+        }
+        
+        int mask = full;
+        for (int position = k; position >= 1; position--) {
+            order[position] = last + 1;
+            int previousLast = parent[mask][last];
+            mask &= ~(1 << last);
+            last = previousLast;
+        }
+        return order;
+    }
+    
+    /**
+     * Nearest-neighbour construction improved by 2-opt and Or-opt moves until no move helps
+     */
+    private int[] solveHeuristic(double[][] cost, int k) {
+        int[] order = new int[k + 2];
+        boolean[] used = new boolean[k + 1];
+        order[0] = 0;
+        order[k + 1] = k + 1;
+        for (int position = 1; position <= k; position++) {
+            int from = order[position - 1];
+            int bestNext = -1;
+            for (int candidate = 1; candidate <= k; candidate++) {
+                if (!used[candidate] && (bestNext < 0 || cost[from][candidate] < cost[from][bestNext])) {
+                    bestNext = candidate;
+                }
+            }
+            used[bestNext] = true;
+            order[position] = bestNext;
+        }
+        
+        boolean improved = true;
+        while (improved) {
+            improved = twoOpt(cost, order) | orOpt(cost, order);
+        }
+        return order;
+    }
+    
+    /**
+     * Reverse segments order[i..j]. Forward and backward prefix sums keep each move O(1)
+     * even though route costs need not be symmetric.
+     */
+    private boolean twoOpt(double[][] cost, int[] order) {
+        int last = order.length - 1;
+        boolean improvedAny = false;
+        boolean improved = true;
+        
+        while (improved) {
+            improved = false;
+            double[] forward = new double[order.length];
+            double[] backward = new double[order.length];
+            for (int i = 1; i <= last; i++) {
+                forward[i] = forward[i - 1] + cost[order[i - 1]][order[i]];
+                backward[i] = backward[i - 1] + cost[order[i]][order[i - 1]];
+            }
+            
+            search:
+            for (int i = 1; i < last - 1; i++) {
+                for (int j = i + 1; j < last; j++) {
+                    double before = cost[order[i - 1]][order[i]] + (forward[j] - forward[i])
+                                  + cost[order[j]][order[j + 1]];
+                    double after = cost[order[i - 1]][order[j]] + (backward[j] - backward[i])
+                                 + cost[order[i]][order[j + 1]];
+                    if (after < before - 1e-9) {
+                        for (int a = i, b = j; a < b; a++, b--) {
+                            int swap = order[a];
+                            order[a] = order[b];
+                            order[b] = swap;
+                        }
+                        improved = true;
+                        improvedAny = true;
+                        break search;
+                    }
+                }
+            }
+        }
+        return improvedAny;
+    }
+    
+    /**
+     * Move runs of one to three consecutive stops to a cheaper position
+     */
+    private boolean orOpt(double[][] cost, int[] order) {
+        int last = order.length - 1;
+        boolean improvedAny = false;
+        
+        for (int length = 1; length <= 3; length++) {
+            for (int i = 1; i + length - 1 < last; i++) {
+                int segmentEnd = i + length - 1;
+                int before = order[i - 1];
+                int after = order[segmentEnd + 1];
+                double removeGain = cost[before][order[i]] + cost[order[segmentEnd]][after] - cost[before][after];
+                
+                for (int p = 0; p < last; p++) {
+                    if (p >= i - 1 && p <= segmentEnd) continue;
+                    int a = order[p];
+                    int b = order[p + 1];
+                    double insertCost = cost[a][order[i]] + cost[order[segmentEnd]][b] - cost[a][b];
+                    if (insertCost < removeGain - 1e-9) {
+                        moveSegment(order, i, length, p);
+                        improvedAny = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return improvedAny;
+    }
+    
+    /**
+     * Move order[start..start+length-1] so it follows the element currently at position insertAfter
+     */
+    private void moveSegment(int[] order, int start, int length, int insertAfter) {
+        int[] segment = Arrays.copyOfRange(order, start, start + length);
+        if (insertAfter < start) {
+            System.arraycopy(order, insertAfter + 1, order, insertAfter + 1 + length, start - insertAfter - 1);
+            System.arraycopy(segment, 0, order, insertAfter + 1, length);
+        } else {
+            System.arraycopy(order, start + length, order, start, insertAfter - start - length + 1);
+            System.arraycopy(segment, 0, order, insertAfter - length + 1, length);
+        }
+    }
+    
+    private double routeCost(double[][] cost, int[] order) {
+        double total = 0;
+        for (int i = 1; i < order.length; i++) {
+            total += cost[order[i - 1]][order[i]];
+        }
+        return total;
+    }
+    
+    /**
+     * Join the per-leg routes into one result, dropping the repeated room at each junction
+     */
+    private PathResult stitchLegs(GraphSnapshot snapshot, Map<String, ShortestPathTree> trees, List<String> visitOrder,
+                                  NavigationMode mode, UserPreferences preferences) {
+        List<Room> path = new ArrayList<>();
+        List<String> instructions = new ArrayList<>();
+        List<String> landmarkInstructions = new ArrayList<>();
+        List<Path> pathSegments = new ArrayList<>();
+        double totalDistance = 0;
+        boolean isAccessible = true;
+        
+        path.add(snapshot.getRoomById(visitOrder.get(0)));
+        for (int i = 1; i < visitOrder.size(); i++) {
+            PathResult leg = pathfinder.extractPath(trees.get(visitOrder.get(i - 1)), visitOrder.get(i), preferences);
+            if (leg.isEmpty()) return emptyResult(snapshot, mode);
+            
+            path.addAll(leg.getPath().subList(1, leg.getPath().size()));
+            instructions.addAll(leg.getInstructions());
+            landmarkInstructions.addAll(leg.getLandmarkInstructions());
+            pathSegments.addAll(leg.getPathSegments());
+            totalDistance += leg.getTotalDistance();
+            isAccessible &= leg.isAccessible();
+        }
+        
+        return new PathResult(path, instructions, landmarkInstructions, totalDistance, isAccessible, mode, pathSegments,
+                            1.0, snapshot.getVersion());
+    }
+    
+    private PathResult emptyResult(GraphSnapshot snapshot, NavigationMode mode) {
+        return new PathResult(Collections.emptyList(), Collections.emptyList(), Collections.emptyList(),
+                            Double.POSITIVE_INFINITY, false, mode, Collections.emptyList(), Double.POSITIVE_INFINITY,
+                            snapshot.getVersion());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,343 @@
+package com.indoor.navigation.algorithm;
+
+import com.indoor.navigation.algorithm.EnhancedDijkstraPathfinder.PathResult;
+import com.indoor.navigation.model.*;
+import com.indoor.navigation.model.GraphSnapshot.RoomNode;
+import java.util.*;
+
+/**
+ * Cache of reverse shortest-path trees rooted at popular destinations, one per navigation mode,
+ * credential class (users whose credentials agree on the groups the building uses share trees)
+ * and set of closed edge classes. Closing a class switches lookups to other trees without
+ * dropping any, so the trees built while it was open are still valid once it reopens.
+ * Each tree stores, for every room index, the index of the next room towards the destination,
+ * so recovering a user who left the planned route is an array walk instead of a new search.
+ * Trees are built without user preferences, dropped selectively as soon as the graph's change
+ * feed reports one of their rooms or edges blocked, edited or removed, and evicted
+ * least-recently-used once the memory budget is exceeded.
+ * Blocking an edge outside a tree cannot make it worse; unblocking, or live crowd factors
+ * shifting, may leave a tree slightly suboptimal until it is rebuilt or cleared.
+ */
+public class ReverseRouteTreeCache {
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+    private static final long TREE_OVERHEAD_BYTES = 64;
+    private static final int NO_HOP = -1;
+    
+    /**
+     * Trees are shared by everything the search depends on besides the graph itself
+     */
+    private record TreeKey(String destinationId, NavigationMode mode, int credentialClass, long closedEdgeClasses) {}
+    
+    private static class ReverseTree {
+        final int generation; // Index generation the room indices below belong to
+        final int destinationIndex;
+        final int[] nextHop;
+        
+        ReverseTree(int generation, int destinationIndex, int[] nextHop) {
+            this.generation = generation;
+            this.destinationIndex = destinationIndex;
+            this.nextHop = nextHop;
+        }
+        
+        long sizeInBytes() {
+            return TREE_OVERHEAD_BYTES + 4L * nextHop.length;
+        }
+        
+        boolean usesEdge(int fromIndex, int toIndex) {
+            return fromIndex >= 0 && fromIndex < nextHop.length && nextHop[fromIndex] == toIndex;
+        }
+    }
+    
+    private static class IndexedNode implements Comparable<IndexedNode> {
+        final int index;
+        final double distance;
+        
+        IndexedNode(int index, double distance) {
+            this.index = index;
+            this.distance = distance;
+        }
+        
+        @Override
+        public int compareTo(IndexedNode other) {
+            return Double.compare(this.distance, other.distance);
+        }
+    }
+    
+    private final NavigationGraph graph;
+    private final EnhancedDijkstraPathfinder pathfinder;
+    private final long maxBytes;
+    private final LinkedHashMap<TreeKey, ReverseTree> trees; // Access order for LRU eviction
+    private final GraphChangeFeed.Subscription changes;
+    private long usedBytes;
+    
+    public ReverseRouteTreeCache(NavigationGraph graph) {
+        this(graph, DEFAULT_MAX_BYTES);
+    }
+    
+    public ReverseRouteTreeCache(NavigationGraph graph, long maxBytes) {
+        this.graph = graph;
+        this.pathfinder = new EnhancedDijkstraPathfinder();
+        this.maxBytes = maxBytes;
+        this.trees = new LinkedHashMap<>(16, 0.75f, true);
+        this.changes = graph.getChangeFeed().subscribe(this::onGraphChanges);
+    }
+    
+    /**
+     * Stop following graph changes; the cache is still usable but only revalidates on recover
+     */
+    public void close() {
+        changes.cancel();
+    }
+    
+    private void onGraphChanges(List<GraphChangeEvent> events) {
+        for (GraphChangeEvent event : events) {
+            if (!event.mayInvalidateRoutes()) continue;
+            
+            if (event.isEdgeClassEvent()) {
+                // Closing is covered by the key; a redefinition changes what closed masks mean
+                if (event.getType() == GraphChangeEvent.Type.EDGE_CLASS_UPDATED) invalidateClosedEdgeClassTrees();
+            } else if (event.isPathEvent()) {
+                invalidateEdge(event.getFromRoomId(), event.getToRoomId());
+            } else {
+                invalidateRoom(event.getRoomId());
+            }
+        }
+    }
+    
+    /**
+     * Precompute public-access trees for hot destinations such as entrances, cafeterias and
+     * emergency departments
+     */
+    public synchronized void warmUp(Collection<String> destinationIds, NavigationMode... modes) {
+        for (String destinationId : destinationIds) {
+            for (NavigationMode mode : modes) {
+                getOrBuildTree(destinationId, mode, AccessGroup.PUBLIC);
+            }
+        }
+    }
+    
+    public PathResult recover(String fromRoomId, String destinationId, NavigationMode mode) {
+        return recover(fromRoomId, destinationId, mode, AccessGroup.PUBLIC);
+    }
+    
+    /**
+     * Route from any room to the destination by walking the cached tree. Returns null if the
+     * destination is unreachable or the walk hits an edge that is no longer usable; in the
+     * latter case the stale tree is dropped so the next call rebuilds it.
+     */
+    public synchronized PathResult recover(String fromRoomId, String destinationId, NavigationMode mode,
+                                           int credentialMask) {
+        // Trees may be older than this version; every hop is checked against it
+        GraphSnapshot snapshot = graph.getSnapshot();
+        int credentialClass = snapshot.getCredentialClass(credentialMask);
+        ReverseTree tree = getOrBuildTree(snapshot, destinationId, mode, credentialClass);
+        int current = snapshot.getRoomIndex(fromRoomId);
+        if (tree == null || current < 0) return null;
+        
+        List<Room> rooms = new ArrayList<>();
+        List<String> instructions = new ArrayList<>();
+        List<Path> segments = new ArrayList<>();
+        double totalDistance = 0;
+        rooms.add(snapshot.getRoomByIndex(current));
+        
+        while (current != tree.destinationIndex) {
+            int next = current < tree.nextHop.length ? tree.nextHop[current] : NO_HOP;
+            if (next == NO_HOP || rooms.size() > tree.nextHop.length) return null;
+            
+            RoomNode node = snapshot.getNode(current);
+            Room nextRoom = snapshot.getRoomByIndex(next);
+            int edgeId = node != null && nextRoom != null ? snapshot.getEdgeId(node.getRoom().getId(), nextRoom.getId()) : -1;
+            Path path = snapshot.getEdge(edgeId);
+            double weight = path != null && pathfinder.canExpand(node, null) ?
+                pathfinder.traversalCost(snapshot, path, edgeId, mode, null, ~credentialClass) : 
+                Double.POSITIVE_INFINITY;
+            
+            if (weight == Double.POSITIVE_INFINITY) {
+                invalidateEdge(current, next);
+                return null;
+            }
+            
+            rooms.add(nextRoom);
+            instructions.add(path.getLandmarkInstruction());
+            segments.add(path);
+            totalDistance += weight;
+            current = next;
+        }
+        
+        return new PathResult(rooms, instructions, new ArrayList<>(instructions), totalDistance, true, mode, segments,
+                            1.0, snapshot.getVersion());
+    }
+    
+    /**
+     * Drop every tree that routes through the path in either direction
+     */
+    public synchronized void invalidateEdge(String fromRoomId, String toRoomId) {
+        int fromIndex = graph.getRoomIndex(fromRoomId);
+        int toIndex = graph.getRoomIndex(toRoomId);
+        if (fromIndex < 0 || toIndex < 0) return;
+        
+        invalidateEdge(fromIndex, toIndex);
+        invalidateEdge(toIndex, fromIndex);
+    }
+    
+    /**
+     * Drop every tree that routes into the room (e.g. after it was blocked). For a room that
+     * was removed, drop the trees built to it and every tree routing through a removed room.
+     */
+    public synchronized void invalidateRoom(String roomId) {
+        int roomIndex = graph.getRoomIndex(roomId);
+        if (roomIndex < 0) {
+            invalidateRemovedRoom(roomId);
+            return;
+        }
+        
+        Iterator<ReverseTree> iterator = trees.values().iterator();
+        while (iterator.hasNext()) {
+            ReverseTree tree = iterator.next();
+            boolean used = tree.destinationIndex == roomIndex;
+            for (int i = 0; i < tree.nextHop.length && !used; i++) {
+                used = tree.nextHop[i] == roomIndex;
+            }
+            if (used) {
+                usedBytes -= tree.sizeInBytes();
+                iterator.remove();
+            }
+        }
+    }
+    
+    public synchronized void clear() {
+        trees.clear();
+        usedBytes = 0;
+    }
+    
+    public synchronized int size() { return trees.size(); }
+    public synchronized long getUsedBytes() { return usedBytes; }
+    public long getMaxBytes() { return maxBytes; }
+    
+    private void invalidateEdge(int fromIndex, int toIndex) {
+        Iterator<ReverseTree> iterator = trees.values().iterator();
+        while (iterator.hasNext()) {
+            ReverseTree tree = iterator.next();
+            if (tree.usesEdge(fromIndex, toIndex)) {
+                usedBytes -= tree.sizeInBytes();
+                iterator.remove();
+            }
+        }
+    }
+    
+    /**
+     * A removed room has no index any more, but its slot stays empty until compaction starts a
+     * new generation, so trees through it still point at an empty slot
+     */
+    private void invalidateRemovedRoom(String roomId) {
+        GraphSnapshot snapshot = graph.getSnapshot();
+        Iterator<Map.Entry<TreeKey, ReverseTree>> iterator = trees.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<TreeKey, ReverseTree> entry = iterator.next();
+            ReverseTree tree = entry.getValue();
+            boolean stale = entry.getKey().destinationId().equals(roomId) ||
+                            tree.generation != snapshot.getGeneration();
+            for (int i = 0; i < tree.nextHop.length && !stale; i++) {
+                stale = tree.nextHop[i] != NO_HOP && snapshot.getNode(tree.nextHop[i]) == null;
+            }
+            if (stale) {
+                usedBytes -= tree.sizeInBytes();
+                iterator.remove();
+            }
+        }
+    }
+    
+    private synchronized void invalidateClosedEdgeClassTrees() {
+        Iterator<Map.Entry<TreeKey, ReverseTree>> iterator = trees.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<TreeKey, ReverseTree> entry = iterator.next();
+            if (entry.getKey().closedEdgeClasses() != 0) {
+                usedBytes -= entry.getValue().sizeInBytes();
+                iterator.remove();
+            }
+        }
+    }
+    
+    private ReverseTree getOrBuildTree(String destinationId, NavigationMode mode, int credentialClass) {
+        return getOrBuildTree(graph.getSnapshot(), destinationId, mode, credentialClass);
+    }
+    
+    private ReverseTree getOrBuildTree(GraphSnapshot snapshot, String destinationId, NavigationMode mode,
+                                       int credentialClass) {
+        TreeKey key = new TreeKey(destinationId, mode, credentialClass, snapshot.getDisabledEdgeClasses());
+        ReverseTree tree = trees.get(key);
+        if (tree != null && tree.generation == snapshot.getGeneration() &&
+            tree.nextHop.length == snapshot.getRoomIndexCapacity()) {
+            return tree;
+        }
+        if (tree != null) {
+            // Rooms were added or renumbered since the tree was built
+            usedBytes -= tree.sizeInBytes();
+            trees.remove(key);
+        }
+        
+        tree = buildTree(snapshot, destinationId, mode, credentialClass);
+        if (tree == null || tree.sizeInBytes() > maxBytes) return tree;
+        
+        trees.put(key, tree);
+        usedBytes += tree.sizeInBytes();
+        evictIfNeeded();
+        return tree;
+    }
+    
+    private void evictIfNeeded() {
+        Iterator<ReverseTree> iterator = trees.values().iterator();
+        while (usedBytes > maxBytes && iterator.hasNext()) {
+            usedBytes -= iterator.next().sizeInBytes();
+            iterator.remove();
+        }
+    }
+    
+    /**
+     * Dijkstra from the destination over the reverse adjacency: relaxing u -> v uses the
+     * forward weight of the path u -> v, so next hops follow forward-optimal routes.
+     */
+    private ReverseTree buildTree(GraphSnapshot snapshot, String destinationId, NavigationMode mode,
+                                  int credentialClass) {
+        int destinationIndex = snapshot.getRoomIndex(destinationId);
+        if (destinationIndex < 0) return null;
+        
+        int capacity = snapshot.getRoomIndexCapacity();
+        int[] nextHop = new int[capacity];
+        double[] distances = new double[capacity];
+        boolean[] settled = new boolean[capacity];
+        Arrays.fill(nextHop, NO_HOP);
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        
+        PriorityQueue<IndexedNode> queue = new PriorityQueue<>();
+        distances[destinationIndex] = 0.0;
+        queue.offer(new IndexedNode(destinationIndex, 0.0));
+        
+        while (!queue.isEmpty()) {
+            IndexedNode current = queue.poll();
+            if (settled[current.index]) continue;
+            settled[current.index] = true;
+            
+            RoomNode currentNode = snapshot.getNode(current.index);
+            for (int i = 0; i < currentNode.getIncomingCount(); i++) {
+                int edgeId = currentNode.getIncomingEdgeId(i);
+                Path incoming = snapshot.getEdge(edgeId);
+                int neighborIndex = snapshot.getRoomIndex(incoming.getFromRoom().getId());
+                if (neighborIndex < 0 || settled[neighborIndex]) continue;
+                
+                RoomNode neighbor = snapshot.getNode(neighborIndex);
+                if (!pathfinder.canExpand(neighbor, null)) continue;
+                
+                double weight = pathfinder.traversalCost(snapshot, incoming, edgeId, mode, null, ~credentialClass);
+                double newDistance = current.distance + weight;
+                if (newDistance < distances[neighborIndex]) {
+                    distances[neighborIndex] = newDistance;
+                    nextHop[neighborIndex] = current.index;
+                    queue.offer(new IndexedNode(neighborIndex, newDistance));
+                }
+            }
+        }
+        
+        return new ReverseTree(snapshot.getGeneration(), destinationIndex, nextHop);
+    }
+}
\ No newline at end of file
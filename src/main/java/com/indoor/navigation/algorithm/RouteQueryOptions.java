@@ -0,0 +1,44 @@
+package com.indoor.navigation.algorithm;
+
+/**
+ * Latency budget and suboptimality settings for a single route query.
+ * With a deadline the pathfinder runs anytime repairing A* (ARA*): it starts with an
+ * inflated heuristic, returns quickly with a bounded-suboptimal route and keeps tightening
+ * epsilon towards 1.0 until the budget runs out.
+ */
+public class RouteQueryOptions {
+    public static final double DEFAULT_EPSILON_STEP = 0.5;
+    
+    private final long timeBudgetMillis;
+    private final double initialEpsilon;
+    private final double epsilonStep;
+    
+    public RouteQueryOptions(long timeBudgetMillis, double initialEpsilon) {
+        this(timeBudgetMillis, initialEpsilon, DEFAULT_EPSILON_STEP);
+    }
+    
+    public RouteQueryOptions(long timeBudgetMillis, double initialEpsilon, double epsilonStep) {
+        if (timeBudgetMillis <= 0) {
+            throw new IllegalArgumentException("Time budget must be positive: " + timeBudgetMillis);
+        }
+        if (initialEpsilon < 1.0) {
+            throw new IllegalArgumentException("Epsilon must be at least 1.0: " + initialEpsilon);
+        }
+        if (epsilonStep <= 0) {
+            throw new IllegalArgumentException("Epsilon step must be positive: " + epsilonStep);
+        }
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.initialEpsilon = initialEpsilon;
+        this.epsilonStep = epsilonStep;
+    }
+    
+    public long getTimeBudgetMillis() { return timeBudgetMillis; }
+    public double getInitialEpsilon() { return initialEpsilon; }
+    public double getEpsilonStep() { return epsilonStep; }
+    
+    @Override
+    public String toString() {
+        return String.format("RouteQueryOptions{budget=%dms, epsilon=%.2f, step=%.2f}",
+                           timeBudgetMillis, initialEpsilon, epsilonStep);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.indoor.navigation.model;
+
+import java.util.*;
+
+/**
+ * Access groups for restricted areas. Rooms and paths carry a bitmask of the groups
+ * required to enter them; users carry a credential mask of the groups they belong to.
+ */
+public enum AccessGroup {
+    STAFF_ONLY("Staff Only", "Staff corridors and back-of-house areas"),
+    STERILE_ZONE("Sterile Zone", "Operating theatres and sterile processing"),
+    ICU_WING("ICU Wing", "Badge-restricted intensive care wing"),
+    SECURE_STORAGE("Secure Storage", "Pharmacy stores and records rooms");
+
+    public static final int PUBLIC = 0; // No groups required / no credentials held
+
+    private final String displayName;
+    private final String description;
+
+    AccessGroup(String displayName, String description) {
+        this.displayName = displayName;
+        this.description = description;
+    }
+
+    public String getDisplayName() { return displayName; }
+    public String getDescription() { return description; }
+    public int getMask() { return 1 << ordinal(); }
+
+    public static int maskOf(AccessGroup... groups) {
+        int mask = PUBLIC;
+        for (AccessGroup group : groups) {
+            mask |= group.getMask();
+        }
+        return mask;
+    }
+
+    public static List<AccessGroup> fromMask(int mask) {
+        List<AccessGroup> groups = new ArrayList<>();
+        for (AccessGroup group : values()) {
+            if ((mask & group.getMask()) != 0) {
+                groups.add(group);
+            }
+        }
+        return groups;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.indoor.navigation.model;
+
+import java.util.*;
+
+/**
+ * Building statistics as of one graph version. NavigationGraph keeps the underlying counters
+ * up to date on every change and builds this snapshot at most once per version, so dashboards
+ * read it in O(1) instead of scanning rooms and paths.
+ */
+public final class BuildingStats {
+    private final long version;
+    private final int totalRooms;
+    private final int totalPaths;
+    private final int accessibleRooms;
+    private final int blockedRooms;
+    private final int emergencyExits;
+    private final int blockedPaths;
+    private final int temporarilyBlockedPaths;
+    private final Map<RoomType, Integer> roomTypes;
+    private final SortedMap<Integer, Integer> roomsPerFloor;
+    
+    BuildingStats(long version, int totalRooms, int totalPaths, int accessibleRooms, int blockedRooms,
+                  int emergencyExits, int blockedPaths, int temporarilyBlockedPaths,
+                  Map<RoomType, Integer> roomTypes, SortedMap<Integer, Integer> roomsPerFloor) {
+        this.version = version;
+        this.totalRooms = totalRooms;
+        this.totalPaths = totalPaths;
+        this.accessibleRooms = accessibleRooms;
+        this.blockedRooms = blockedRooms;
+        this.emergencyExits = emergencyExits;
+        this.blockedPaths = blockedPaths;
+        this.temporarilyBlockedPaths = temporarilyBlockedPaths;
+        this.roomTypes = roomTypes.isEmpty() ? Collections.emptyMap() :
+                         Collections.unmodifiableMap(new EnumMap<>(roomTypes));
+        this.roomsPerFloor = Collections.unmodifiableSortedMap(new TreeMap<>(roomsPerFloor));
+    }
+    
+    public long getVersion() { return version; }
+    public int getTotalRooms() { return totalRooms; }
+    
+    /**
+     * Paths counted once per connected pair of rooms, not per direction
+     */
+    public int getTotalPaths() { return totalPaths; }
+    public int getFloorCount() { return roomsPerFloor.size(); }
+    
+    /**
+     * Accessible rooms that are not blocked
+     */
+    public int getAccessibleRooms() { return accessibleRooms; }
+    public int getBlockedRooms() { return blockedRooms; }
+    public int getEmergencyExits() { return emergencyExits; }
+    public int getBlockedPaths() { return blockedPaths; }
+    public int getTemporarilyBlockedPaths() { return temporarilyBlockedPaths; }
+    public Map<RoomType, Integer> getRoomTypes() { return roomTypes; }
+    public SortedMap<Integer, Integer> getRoomsPerFloor() { return roomsPerFloor; }
+    
+    @Override
+    public String toString() {
+        return String.format("BuildingStats{version=%d, rooms=%d, paths=%d, floors=%d}",
+                           version, totalRooms, totalPaths, getFloorCount());
+    }
+}
\ No newline at end of file
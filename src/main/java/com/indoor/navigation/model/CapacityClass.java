@@ -0,0 +1,51 @@
+package com.indoor.navigation.model;
+
+/**
+ * What is being moved through the building, with the clear width it needs. Wheeled classes
+ * also need step-free paths.
+ */
+public enum CapacityClass {
+    PEDESTRIAN("Pedestrian", 0.0, false),
+    WHEELCHAIR("Wheelchair", 0.9, true),
+    CART("Supply Cart", 1.2, true),
+    BED("Hospital Bed", 1.6, true);
+    
+    private final String displayName;
+    private final double minimumWidth; // meters
+    private final boolean stepFree;
+    
+    CapacityClass(String displayName, double minimumWidth, boolean stepFree) {
+        this.displayName = displayName;
+        this.minimumWidth = minimumWidth;
+        this.stepFree = stepFree;
+    }
+    
+    public String getDisplayName() { return displayName; }
+    public double getMinimumWidth() { return minimumWidth; }
+    public boolean isStepFree() { return stepFree; }
+    
+    /**
+     * Whether the path and both rooms it joins are wide enough, and step-free if required
+     */
+    public boolean fits(Path path) {
+        if (stepFree && path.getPathType().equals("stairs")) return false;
+        return path.getWidth() >= minimumWidth && path.getFromRoom().getWidth() >= minimumWidth &&
+               path.getToRoom().getWidth() >= minimumWidth;
+    }
+    
+    /**
+     * Class named by a preference value, or null if none matches
+     */
+    public static CapacityClass fromSetting(Object value) {
+        if (value instanceof CapacityClass) return (CapacityClass) value;
+        if (value == null) return null;
+        
+        for (CapacityClass capacityClass : values()) {
+            if (capacityClass.name().equalsIgnoreCase(value.toString()) ||
+                capacityClass.displayName.equalsIgnoreCase(value.toString())) {
+                return capacityClass;
+            }
+        }
+        return null;
+    }
+}
\ No newline at end of file
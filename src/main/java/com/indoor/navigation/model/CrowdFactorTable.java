@@ -0,0 +1,41 @@
+package com.indoor.navigation.model;
+
+import java.util.Arrays;
+
+/**
+ * Live crowd factors of the rooms in one index generation, by room index; NaN where nothing
+ * is measured and the room type's static factor applies. The crowd monitor replaces the whole
+ * array on each fold, so routing reads a plain array through one volatile load and never
+ * waits for a writer.
+ */
+final class CrowdFactorTable {
+    private static final double[] NONE = new double[0];
+    
+    private volatile double[] factors = NONE;
+    
+    double get(int roomIndex) {
+        double[] current = factors;
+        return roomIndex >= 0 && roomIndex < current.length ? current[roomIndex] : Double.NaN;
+    }
+    
+    void replace(double[] newFactors) {
+        factors = newFactors;
+    }
+    
+    /**
+     * Table for the next generation, with factors moved to their compacted room indices
+     */
+    CrowdFactorTable renumbered(int[] newRoomIndex, int capacity) {
+        double[] current = factors;
+        CrowdFactorTable compacted = new CrowdFactorTable();
+        if (current.length == 0) return compacted;
+        
+        double[] moved = new double[capacity];
+        Arrays.fill(moved, Double.NaN);
+        for (int i = 0; i < current.length && i < newRoomIndex.length; i++) {
+            if (newRoomIndex[i] >= 0) moved[newRoomIndex[i]] = current[i];
+        }
+        compacted.factors = moved;
+        return compacted;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,146 @@
+package com.indoor.navigation.model;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live occupancy estimates per room from QR scans and an external people-counter feed.
+ * Scans land in a sliding window of LongAdder buckets per room, so concurrent scanners
+ * contend on striped cells rather than one counter; counter readings replace the scan
+ * estimate while they are fresh. On a fixed cadence the estimates are folded into the live
+ * crowd factors routing reads: an empty room costs no more than a corridor, each person
+ * adds CROWD_FACTOR_PER_PERSON up to MAX_CROWD_FACTOR. Folding swaps in a new factor array,
+ * so it never stalls a search; rooms without measurements keep their type's static factor.
+ */
+public final class CrowdMonitor {
+    public static final long BUCKET_MILLIS = 5_000; // Also the fold cadence
+    public static final int WINDOW_BUCKETS = 12; // One minute of scans
+    public static final double CROWD_FACTOR_PER_PERSON = 0.02;
+    public static final double MAX_CROWD_FACTOR = 3.0;
+    
+    private static final long WINDOW_MILLIS = BUCKET_MILLIS * WINDOW_BUCKETS;
+    
+    private static final class RoomOccupancy {
+        final LongAdder[] scans = new LongAdder[WINDOW_BUCKETS + 1]; // One spare, cleared ahead of use
+        volatile int reportedCount = -1; // Latest counter reading, -1 if none
+        volatile long reportedAtMillis;
+        
+        RoomOccupancy() {
+            for (int i = 0; i < scans.length; i++) {
+                scans[i] = new LongAdder();
+            }
+        }
+        
+        int estimate(long now, int spare) {
+            if (reportedCount >= 0 && now - reportedAtMillis <= WINDOW_MILLIS) return reportedCount;
+            
+            long total = 0;
+            for (int i = 0; i < scans.length; i++) {
+                if (i != spare) total += scans[i].sum();
+            }
+            return (int) Math.min(Integer.MAX_VALUE, total);
+        }
+    }
+    
+    private final NavigationGraph graph;
+    private final Map<String, RoomOccupancy> rooms = new ConcurrentHashMap<>();
+    private ObstacleScheduler.Timeout folding; // Started with the first measurement
+    
+    CrowdMonitor(NavigationGraph graph) {
+        this.graph = graph;
+    }
+    
+    /**
+     * Someone scanned the room's QR code
+     */
+    public void recordScan(String roomId) {
+        occupancy(roomId).scans[bucket(System.currentTimeMillis())].increment();
+    }
+    
+    /**
+     * People currently in the room according to an external counter
+     */
+    public void reportOccupancy(String roomId, int people) {
+        RoomOccupancy occupancy = occupancy(roomId);
+        occupancy.reportedAtMillis = System.currentTimeMillis();
+        occupancy.reportedCount = Math.max(0, people);
+    }
+    
+    /**
+     * Estimated people in the room now, or -1 if nothing was measured
+     */
+    public int getOccupancy(String roomId) {
+        RoomOccupancy occupancy = rooms.get(roomId);
+        long now = System.currentTimeMillis();
+        return occupancy != null ? occupancy.estimate(now, spareBucket(now)) : -1;
+    }
+    
+    public int getMonitoredRoomCount() { return rooms.size(); }
+    
+    /**
+     * Crowd factor for a room of this type holding this many people
+     */
+    public static double crowdFactor(RoomType roomType, int people) {
+        return Math.min(MAX_CROWD_FACTOR, Math.min(roomType.getCrowdFactor(), 1.0) + people * CROWD_FACTOR_PER_PERSON);
+    }
+    
+    /**
+     * Fold the current estimates into the live crowd factors now instead of waiting for the
+     * next cadence tick
+     */
+    public void fold() {
+        long now = System.currentTimeMillis();
+        int spare = spareBucket(now);
+        GraphSnapshot snapshot = graph.getSnapshot();
+        double[] factors = new double[snapshot.getRoomIndexCapacity()];
+        Arrays.fill(factors, Double.NaN);
+        
+        for (Iterator<Map.Entry<String, RoomOccupancy>> it = rooms.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, RoomOccupancy> entry = it.next();
+            RoomOccupancy occupancy = entry.getValue();
+            occupancy.scans[spare].reset(); // Leaves the window now, reused next bucket
+            
+            int index = snapshot.getRoomIndex(entry.getKey());
+            if (index < 0) {
+                it.remove(); // Room removed
+                continue;
+            }
+            factors[index] = crowdFactor(snapshot.getRoomByIndex(index).getRoomType(), occupancy.estimate(now, spare));
+        }
+        snapshot.getCrowdFactors().replace(factors);
+    }
+    
+    /**
+     * Stop folding; the last factors stay in effect
+     */
+    public synchronized void close() {
+        if (folding != null) {
+            folding.cancel();
+            folding = null;
+        }
+    }
+    
+    private RoomOccupancy occupancy(String roomId) {
+        RoomOccupancy occupancy = rooms.get(roomId);
+        if (occupancy == null) {
+            occupancy = rooms.computeIfAbsent(roomId, id -> new RoomOccupancy());
+            startFolding();
+        }
+        return occupancy;
+    }
+    
+    private synchronized void startFolding() {
+        if (folding == null) {
+            folding = ObstacleScheduler.shared().scheduleAtFixedRate(this::fold, BUCKET_MILLIS, BUCKET_MILLIS);
+        }
+    }
+    
+    private static int bucket(long now) {
+        return (int) ((now / BUCKET_MILLIS) % (WINDOW_BUCKETS + 1));
+    }
+    
+    private static int spareBucket(long now) {
+        return (bucket(now) + 1) % (WINDOW_BUCKETS + 1);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,67 @@
+package com.indoor.navigation.model;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * A named group of paths that close and reopen together, such as every elevator during a
+ * fire alarm or the corridors of one floor while it is waxed. Membership is decided per path
+ * when the class is defined or the path added; switching the class off is a single mask flip
+ * (see NavigationGraph.setEdgeClassEnabled).
+ */
+public final class EdgeClass {
+    public static final int MAX_CLASSES = Long.SIZE; // One bit each in an edge's class mask
+    public static final String WING_FEATURE = "wing"; // Room feature naming the wing it belongs to
+    
+    private final String name;
+    private final Predicate<Path> members;
+    
+    private EdgeClass(String name, Predicate<Path> members) {
+        this.name = Objects.requireNonNull(name, "name");
+        this.members = Objects.requireNonNull(members, "members");
+    }
+    
+    /**
+     * Paths picked by an arbitrary rule, e.g. a custom tag kept elsewhere
+     */
+    public static EdgeClass of(String name, Predicate<Path> members) {
+        return new EdgeClass(name, members);
+    }
+    
+    public static EdgeClass ofPathType(String name, String pathType) {
+        return new EdgeClass(name, path -> path.getPathType().equals(pathType));
+    }
+    
+    /**
+     * Paths with either end on the floor, including stairs and elevators arriving there
+     */
+    public static EdgeClass onFloor(String name, int floor) {
+        return new EdgeClass(name, path -> path.getFromRoom().getFloor() == floor || path.getToRoom().getFloor() == floor);
+    }
+    
+    /**
+     * Paths with either end in a room whose wing feature is the given wing
+     */
+    public static EdgeClass inWing(String name, String wing) {
+        return new EdgeClass(name, path -> wing.equals(path.getFromRoom().getFeatures().get(WING_FEATURE)) ||
+                                           wing.equals(path.getToRoom().getFeatures().get(WING_FEATURE)));
+    }
+    
+    /**
+     * Same name, narrowed to paths the other class also contains: e.g. corridors on floor 2
+     */
+    public EdgeClass and(EdgeClass other) {
+        return new EdgeClass(name, members.and(other.members));
+    }
+    
+    public String getName() { return name; }
+    
+    public boolean contains(Path path) {
+        return members.test(path);
+    }
+    
+    @Override
+    public String toString() {
+        return "EdgeClass{" + name + "}";
+    }
+}
\ No newline at end of file
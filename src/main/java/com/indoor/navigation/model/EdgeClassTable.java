@@ -0,0 +1,87 @@
+package com.indoor.navigation.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Edge classes defined on a graph and which of them are switched off. Each class owns one bit;
+ * every snapshot stores, per edge, the mask of classes the edge belongs to, so closing a whole
+ * class is one volatile write here and routing tests an edge with a single AND. Bits do not
+ * depend on edge ids, so one table serves every generation. Writers hold the graph lock.
+ */
+final class EdgeClassTable {
+    private final EdgeClass[] classes = new EdgeClass[EdgeClass.MAX_CLASSES]; // By bit
+    private volatile long defined;
+    private volatile long disabled;
+    
+    long getDisabled() { return disabled; }
+    long getDefined() { return defined; }
+    
+    /**
+     * Bit of the named class, or -1
+     */
+    int bitOf(String name) {
+        long bits = defined;
+        for (; bits != 0; bits &= bits - 1) {
+            int bit = Long.numberOfTrailingZeros(bits);
+            if (classes[bit].getName().equals(name)) return bit;
+        }
+        return -1;
+    }
+    
+    EdgeClass get(int bit) {
+        return (defined & (1L << bit)) != 0 ? classes[bit] : null;
+    }
+    
+    /**
+     * Give the class a bit, replacing a class of the same name (which keeps its bit and state)
+     */
+    int define(EdgeClass edgeClass) {
+        int bit = bitOf(edgeClass.getName());
+        if (bit < 0) {
+            if (defined == -1L) {
+                throw new IllegalStateException("At most " + EdgeClass.MAX_CLASSES + " edge classes");
+            }
+            bit = Long.numberOfTrailingZeros(~defined);
+        }
+        classes[bit] = edgeClass;
+        defined |= 1L << bit;
+        return bit;
+    }
+    
+    void remove(int bit) {
+        disabled &= ~(1L << bit);
+        defined &= ~(1L << bit);
+        classes[bit] = null;
+    }
+    
+    /**
+     * Switch a class off or on; returns whether that changed anything
+     */
+    boolean setDisabled(int bit, boolean off) {
+        long current = disabled;
+        long next = off ? current | (1L << bit) : current & ~(1L << bit);
+        disabled = next;
+        return next != current;
+    }
+    
+    /**
+     * Classes the path belongs to
+     */
+    long membership(Path path) {
+        long mask = 0;
+        for (long bits = defined; bits != 0; bits &= bits - 1) {
+            int bit = Long.numberOfTrailingZeros(bits);
+            if (classes[bit].contains(path)) mask |= 1L << bit;
+        }
+        return mask;
+    }
+    
+    List<String> names(long bits) {
+        List<String> names = new ArrayList<>(Long.bitCount(bits));
+        for (bits &= defined; bits != 0; bits &= bits - 1) {
+            names.add(classes[Long.numberOfTrailingZeros(bits)].getName());
+        }
+        return names;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,145 @@
+package com.indoor.navigation.model;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Edge ids of one index generation: packed (from, to) room indices -> edge id in a primitive
+ * open-addressing table, plus each edge's twin id in a column. Ids are stable within a
+ * generation, so every snapshot of it shares one index and checks an id against its own edge
+ * endpoints; a pair removed and added again gets its old id back. Keys are mixed before
+ * probing, since packed index pairs cluster badly on their own. Writers hold the graph lock,
+ * readers never lock: a slot's value is written before its key, and growing publishes a
+ * complete new table.
+ */
+final class EdgeIndex {
+    private static final long NO_KEY = -1L; // Room indices are never negative, so no pair packs to this
+    
+    private static final class Table {
+        final AtomicLongArray keys;
+        final int[] values;
+        final int mask;
+        
+        Table(int capacity) {
+            keys = new AtomicLongArray(capacity);
+            values = new int[capacity];
+            mask = capacity - 1;
+            for (int i = 0; i < capacity; i++) keys.set(i, NO_KEY);
+        }
+    }
+    
+    private volatile Table table;
+    private volatile int[] twins; // Edge id -> id of the edge in the opposite direction, -1 if none yet
+    private int size;
+    
+    EdgeIndex() {
+        this(0);
+    }
+    
+    /**
+     * Index sized for about this many edges, so a bulk build never regrows it
+     */
+    EdgeIndex(int expectedEdges) {
+        this.table = new Table(tableCapacity(expectedEdges));
+        this.twins = newTwins(Math.max(16, expectedEdges));
+    }
+    
+    /**
+     * Edge id ever given to the pair in this generation, or -1
+     */
+    int get(long key) {
+        Table current = table;
+        for (int slot = mix(key) & current.mask; ; slot = (slot + 1) & current.mask) {
+            long slotKey = current.keys.get(slot);
+            if (slotKey == key) return current.values[slot];
+            if (slotKey == NO_KEY) return -1;
+        }
+    }
+    
+    /**
+     * Id stored for an edge's twin, or -1; valid for a snapshot only if that edge is present
+     */
+    int getTwin(int edgeId) {
+        int[] current = twins;
+        return edgeId >= 0 && edgeId < current.length ? current[edgeId] : -1;
+    }
+    
+    /**
+     * The pair's id, giving it newEdgeId if it has none; links the twins once both directions
+     * have ids
+     */
+    int allocate(long key, int newEdgeId) {
+        int edgeId = get(key);
+        if (edgeId >= 0) return edgeId;
+        
+        if ((size + 1) * 4 > table.keys.length() * 3) grow();
+        insert(table, key, newEdgeId);
+        size++;
+        
+        int twin = get(reversed(key));
+        if (twin >= 0) {
+            ensureTwinCapacity(Math.max(newEdgeId, twin) + 1);
+            twins[newEdgeId] = twin;
+            twins[twin] = newEdgeId;
+        }
+        return newEdgeId;
+    }
+    
+    static long reversed(long key) {
+        return (key << 32) | (key >>> 32);
+    }
+    
+    private static void insert(Table target, long key, int value) {
+        int slot = mix(key) & target.mask;
+        while (target.keys.get(slot) != NO_KEY) slot = (slot + 1) & target.mask;
+        target.values[slot] = value;
+        target.keys.set(slot, key); // Publishes the value with it
+    }
+    
+    private void grow() {
+        Table current = table;
+        Table larger = new Table(current.keys.length() * 2);
+        for (int slot = 0; slot < current.keys.length(); slot++) {
+            long key = current.keys.get(slot);
+            if (key != NO_KEY) insert(larger, key, current.values[slot]);
+        }
+        table = larger;
+    }
+    
+    private void ensureTwinCapacity(int capacity) {
+        int[] current = twins;
+        if (capacity <= current.length) return;
+        
+        int[] larger = Arrays.copyOf(current, Math.max(capacity, current.length * 2));
+        Arrays.fill(larger, current.length, larger.length, -1);
+        twins = larger;
+    }
+    
+    private static int[] newTwins(int capacity) {
+        int[] twins = new int[capacity];
+        Arrays.fill(twins, -1);
+        return twins;
+    }
+    
+    /**
+     * Power of two keeping the table at most three quarters full; well mixed keys keep linear
+     * probe runs short at that load
+     */
+    private static int tableCapacity(int entries) {
+        int capacity = 16;
+        while (capacity * 3L < entries * 4L) capacity <<= 1;
+        return capacity;
+    }
+    
+    /**
+     * Murmur3 finalizer: spreads both packed room indices over every bit of the slot
+     */
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,119 @@
+package com.indoor.navigation.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Temporary blocks of every edge in one index generation: one bit per edge id in atomic
+ * 64-bit words, plus a side table with the reason and start time of each block. Routing
+ * tests a single bit; listing blocked edges walks set bits only. Writers hold the graph lock,
+ * readers never lock and see a block as soon as its bit is set.
+ */
+final class EdgeStateTable {
+    
+    static final class Blockage {
+        final String reason;
+        final long sinceMillis;
+        
+        Blockage(String reason, long sinceMillis) {
+            this.reason = reason;
+            this.sinceMillis = sinceMillis;
+        }
+    }
+    
+    private volatile AtomicLongArray words; // Replaced by a larger copy when edge ids outgrow it
+    private final Map<Integer, Blockage> blockages = new ConcurrentHashMap<>();
+    private final AtomicInteger blockedCount = new AtomicInteger();
+    
+    EdgeStateTable() {
+        this(0);
+    }
+    
+    private EdgeStateTable(int capacity) {
+        this.words = new AtomicLongArray(Math.max(1, (capacity + 63) >>> 6));
+    }
+    
+    boolean isBlocked(int edgeId) {
+        if (edgeId < 0) return false;
+        AtomicLongArray current = words;
+        int word = edgeId >>> 6;
+        return word < current.length() && (current.get(word) & (1L << edgeId)) != 0;
+    }
+    
+    /**
+     * Set the block bit; the side entry is written first so a reader seeing the bit finds it
+     */
+    boolean block(int edgeId, String reason) {
+        ensureCapacity(edgeId);
+        blockages.put(edgeId, new Blockage(reason, System.currentTimeMillis()));
+        AtomicLongArray current = words;
+        long mask = 1L << edgeId;
+        long previous = current.getAndAccumulate(edgeId >>> 6, mask, (word, bit) -> word | bit);
+        if ((previous & mask) != 0) return false;
+        blockedCount.incrementAndGet();
+        return true;
+    }
+    
+    boolean unblock(int edgeId) {
+        if (!isBlocked(edgeId)) return false;
+        long mask = 1L << edgeId;
+        long previous = words.getAndAccumulate(edgeId >>> 6, mask, (word, bit) -> word & ~bit);
+        blockages.remove(edgeId);
+        if ((previous & mask) == 0) return false;
+        blockedCount.decrementAndGet();
+        return true;
+    }
+    
+    Blockage getBlockage(int edgeId) {
+        return isBlocked(edgeId) ? blockages.get(edgeId) : null;
+    }
+    
+    int getBlockedCount() { return blockedCount.get(); }
+    
+    /**
+     * First blocked edge id at or after fromEdgeId, or -1
+     */
+    int nextBlocked(int fromEdgeId) {
+        AtomicLongArray current = words;
+        int word = fromEdgeId >>> 6;
+        if (word >= current.length()) return -1;
+        
+        long bits = current.get(word) & (-1L << fromEdgeId);
+        while (bits == 0) {
+            if (++word >= current.length()) return -1;
+            bits = current.get(word);
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+    
+    /**
+     * Table for the next generation, with blocks moved to their compacted edge ids
+     */
+    EdgeStateTable renumbered(int[] newEdgeIds, int capacity) {
+        EdgeStateTable compacted = new EdgeStateTable(capacity);
+        for (int edgeId = nextBlocked(0); edgeId >= 0; edgeId = nextBlocked(edgeId + 1)) {
+            int newEdgeId = edgeId < newEdgeIds.length ? newEdgeIds[edgeId] : -1;
+            Blockage blockage = blockages.get(edgeId);
+            if (newEdgeId < 0 || blockage == null) continue;
+            
+            compacted.blockages.put(newEdgeId, blockage);
+            compacted.words.getAndAccumulate(newEdgeId >>> 6, 1L << newEdgeId, (word, bit) -> word | bit);
+            compacted.blockedCount.incrementAndGet();
+        }
+        return compacted;
+    }
+    
+    private void ensureCapacity(int edgeId) {
+        AtomicLongArray current = words;
+        int needed = (edgeId >>> 6) + 1;
+        if (needed <= current.length()) return;
+        
+        AtomicLongArray grown = new AtomicLongArray(Math.max(needed, current.length() * 2));
+        for (int i = 0; i < current.length(); i++) {
+            grown.set(i, current.get(i));
+        }
+        words = grown;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,202 @@
+package com.indoor.navigation.model;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Builds a whole navigation graph in one pass, for loading maps. Rooms and paths are only
+ * collected while they stream in; build() then resolves every path's room ids once, groups
+ * the directed edges by room with a counting sort, and assembles the first snapshot directly
+ * from flat arrays; id resolution and reverse paths run in parallel on large maps. Adding
+ * through NavigationGraph instead copies a snapshot, both room nodes and their edge arrays
+ * for every path. Same semantics as adding one by one: a later room
+ * with the same id replaces the earlier one, a later path between the same two rooms replaces
+ * the earlier one, and paths are bidirectional. Not thread-safe; use one builder per load.
+ */
+public final class GraphBuilder {
+    private static final int PARALLEL_MIN_PATHS = 1 << 14; // Below this, splitting the work costs more than it saves
+    
+    private final String graphName;
+    private final String description;
+    private final Map<String, Integer> roomIndex;
+    private Room[] rooms;
+    private int roomCount;
+    private Path[] paths;
+    private int pathCount;
+    
+    public GraphBuilder() {
+        this(NavigationGraph.DEFAULT_GRAPH_NAME, NavigationGraph.DEFAULT_DESCRIPTION);
+    }
+    
+    public GraphBuilder(String graphName, String description) {
+        this(graphName, description, 16, 16);
+    }
+    
+    /**
+     * Builder sized for about this many rooms and paths, so large loads never regrow
+     */
+    public GraphBuilder(String graphName, String description, int expectedRooms, int expectedPaths) {
+        this.graphName = graphName;
+        this.description = description;
+        this.roomIndex = new HashMap<>(Math.max(16, expectedRooms * 4 / 3 + 1));
+        this.rooms = new Room[Math.max(1, expectedRooms)];
+        this.paths = new Path[Math.max(1, expectedPaths)];
+    }
+    
+    public GraphBuilder addRoom(Room room) {
+        Integer index = roomIndex.putIfAbsent(room.getId(), roomCount);
+        if (index != null) {
+            rooms[index] = room;
+            return this;
+        }
+        if (roomCount == rooms.length) rooms = Arrays.copyOf(rooms, roomCount * 2);
+        rooms[roomCount++] = room;
+        return this;
+    }
+    
+    /**
+     * Add a path and its reverse; both rooms must be added by the time build() runs
+     */
+    public GraphBuilder addPath(Path path) {
+        if (pathCount == paths.length) paths = Arrays.copyOf(paths, pathCount * 2);
+        paths[pathCount++] = path;
+        return this;
+    }
+    
+    /**
+     * Room added under this id, or null; loaders attach features and landmarks through it
+     */
+    public Room getRoom(String roomId) {
+        Integer index = roomIndex.get(roomId);
+        return index != null ? rooms[index] : null;
+    }
+    
+    public int getRoomCount() { return roomCount; }
+    public int getPathCount() { return pathCount; }
+    
+    /**
+     * The graph holding everything added, published as its first version. Throws
+     * IllegalArgumentException if a path connects a room that was never added.
+     */
+    public NavigationGraph build() {
+        // Resolve room ids once per path
+        int[] from = new int[pathCount];
+        int[] to = new int[pathCount];
+        forEachPath(i -> {
+            from[i] = resolve(paths[i].getFromRoom().getId(), paths[i]);
+            to[i] = resolve(paths[i].getToRoom().getId(), paths[i]);
+        });
+        double minDistancePerFloorChange = Double.POSITIVE_INFINITY;
+        int accessGroupsInUse = AccessGroup.PUBLIC;
+        for (int i = 0; i < pathCount; i++) {
+            Path path = paths[i];
+            accessGroupsInUse |= path.getAccessGroups();
+            
+            int floorChange = Math.abs(path.getToRoom().getFloor() - path.getFromRoom().getFloor());
+            if (floorChange > 0) {
+                minDistancePerFloorChange = Math.min(minDistancePerFloorChange, path.getDistance() / floorChange);
+            }
+        }
+        for (int i = 0; i < roomCount; i++) {
+            accessGroupsInUse |= rooms[i].getAccessGroups();
+        }
+        
+        // Directed entries: 2i is path i forward, 2i + 1 its reverse. Group them by source room,
+        // keeping insertion order within each room.
+        int entryCount = pathCount * 2;
+        int[] sourceStarts = new int[roomCount + 1];
+        for (int i = 0; i < pathCount; i++) {
+            sourceStarts[from[i] + 1]++;
+            sourceStarts[to[i] + 1]++;
+        }
+        for (int i = 0; i < roomCount; i++) sourceStarts[i + 1] += sourceStarts[i];
+        int[] bySource = new int[entryCount];
+        int[] fill = Arrays.copyOf(sourceStarts, roomCount);
+        for (int entry = 0; entry < entryCount; entry++) {
+            bySource[fill[source(entry, from, to)]++] = entry;
+        }
+        
+        // A later entry between the same two rooms replaces the earlier one
+        boolean[] replaced = new boolean[entryCount];
+        int[] lastSource = new int[roomCount]; // Target -> source room + 1 of the last entry seen into it
+        int[] lastEntry = new int[roomCount];
+        for (int room = 0; room < roomCount; room++) {
+            for (int i = sourceStarts[room]; i < sourceStarts[room + 1]; i++) {
+                int entry = bySource[i];
+                int target = target(entry, from, to);
+                if (lastSource[target] == room + 1) replaced[lastEntry[target]] = true;
+                lastSource[target] = room + 1;
+                lastEntry[target] = entry;
+            }
+        }
+        
+        Path[] reverses = new Path[pathCount];
+        forEachPath(i -> {
+            if (!replaced[2 * i + 1]) reverses[i] = paths[i].reversed();
+        });
+        
+        // Edge ids in entry order, so a path and its reverse get neighbouring ids
+        int[] edgeIdOf = new int[entryCount];
+        Path[] edges = new Path[entryCount];
+        long[] edgeEnds = new long[entryCount];
+        int[] incomingStarts = new int[roomCount + 1];
+        int edgeCount = 0;
+        int blockedEdgeCount = 0;
+        for (int entry = 0; entry < entryCount; entry++) {
+            if (replaced[entry]) continue;
+            
+            Path edge = (entry & 1) == 0 ? paths[entry >>> 1] : reverses[entry >>> 1];
+            if (edge.isBlocked()) blockedEdgeCount++;
+            int target = target(entry, from, to);
+            edgeIdOf[entry] = edgeCount;
+            edges[edgeCount] = edge;
+            edgeEnds[edgeCount++] = GraphSnapshot.edgeKey(source(entry, from, to), target);
+            incomingStarts[target + 1]++;
+        }
+        
+        // Outgoing edge ids per room, already grouped; incoming ones by a second counting pass
+        int[] outgoingStarts = new int[roomCount + 1];
+        int[] outgoing = new int[edgeCount];
+        int kept = 0;
+        for (int room = 0; room < roomCount; room++) {
+            for (int i = sourceStarts[room]; i < sourceStarts[room + 1]; i++) {
+                if (!replaced[bySource[i]]) outgoing[kept++] = edgeIdOf[bySource[i]];
+            }
+            outgoingStarts[room + 1] = kept;
+        }
+        for (int i = 0; i < roomCount; i++) incomingStarts[i + 1] += incomingStarts[i];
+        int[] incoming = new int[edgeCount];
+        fill = Arrays.copyOf(incomingStarts, roomCount);
+        for (int edgeId = 0; edgeId < edgeCount; edgeId++) {
+            incoming[fill[(int) edgeEnds[edgeId]]++] = edgeId;
+        }
+        
+        GraphSnapshot snapshot = GraphSnapshot.built(rooms, roomCount, edges, edgeEnds, edgeCount,
+                                                     outgoingStarts, outgoing, incomingStarts, incoming,
+                                                     minDistancePerFloorChange, accessGroupsInUse);
+        return new NavigationGraph(graphName, description, snapshot, blockedEdgeCount);
+    }
+    
+    private void forEachPath(IntConsumer action) {
+        IntStream range = IntStream.range(0, pathCount);
+        (pathCount >= PARALLEL_MIN_PATHS ? range.parallel() : range).forEach(action);
+    }
+    
+    private int resolve(String roomId, Path path) {
+        Integer index = roomIndex.get(roomId);
+        if (index == null) {
+            throw new IllegalArgumentException("Path endpoints must be added first: " +
+                                               path.getFromRoom().getId() + " → " + path.getToRoom().getId());
+        }
+        return index;
+    }
+    
+    private static int source(int entry, int[] from, int[] to) {
+        return (entry & 1) == 0 ? from[entry >>> 1] : to[entry >>> 1];
+    }
+    
+    private static int target(int entry, int[] from, int[] to) {
+        return (entry & 1) == 0 ? to[entry >>> 1] : from[entry >>> 1];
+    }
+}
\ No newline at end of file
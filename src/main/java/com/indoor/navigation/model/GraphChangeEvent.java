@@ -0,0 +1,82 @@
+package com.indoor.navigation.model;
+
+/**
+ * One change to a navigation graph, stamped with the version that first contains it.
+ * Path events name the path as it was addressed and apply to both directions. Removing a
+ * room also removes its paths; that is reported as the room removal alone. Edge class
+ * events name the class; closing one is reported once, not per path.
+ */
+public final class GraphChangeEvent {
+    
+    public enum Type {
+        ROOM_ADDED, ROOM_UPDATED, ROOM_REMOVED, ROOM_BLOCKED, ROOM_UNBLOCKED,
+        PATH_ADDED, PATH_UPDATED, PATH_REMOVED, PATH_BLOCKED, PATH_UNBLOCKED,
+        EDGE_CLASS_UPDATED, EDGE_CLASS_BLOCKED, EDGE_CLASS_UNBLOCKED
+    }
+    
+    private final long version;
+    private final Type type;
+    private final String roomId; // The room, or the start of the path
+    private final String toRoomId; // End of the path, null for room events
+    private final String reason; // Why a path was blocked, if known
+    private final String edgeClass; // Class name for edge class events, else null
+    
+    GraphChangeEvent(long version, Type type, String roomId, String toRoomId, String reason) {
+        this.version = version;
+        this.type = type;
+        this.roomId = roomId;
+        this.toRoomId = toRoomId;
+        this.reason = reason;
+        this.edgeClass = null;
+    }
+    
+    private GraphChangeEvent(long version, Type type, String edgeClass) {
+        this.version = version;
+        this.type = type;
+        this.roomId = null;
+        this.toRoomId = null;
+        this.reason = null;
+        this.edgeClass = edgeClass;
+    }
+    
+    static GraphChangeEvent forEdgeClass(long version, Type type, String edgeClass) {
+        return new GraphChangeEvent(version, type, edgeClass);
+    }
+    
+    public long getVersion() { return version; }
+    public Type getType() { return type; }
+    public String getRoomId() { return roomId; }
+    public String getFromRoomId() { return roomId; }
+    public String getToRoomId() { return toRoomId; }
+    public String getReason() { return reason; }
+    public String getEdgeClass() { return edgeClass; }
+    
+    public boolean isPathEvent() { return toRoomId != null; }
+    public boolean isEdgeClassEvent() { return edgeClass != null; }
+    
+    /**
+     * Whether routes computed before this change may now cross something unusable
+     */
+    public boolean mayInvalidateRoutes() {
+        switch (type) {
+            case ROOM_UPDATED:
+            case ROOM_REMOVED:
+            case ROOM_BLOCKED:
+            case PATH_UPDATED:
+            case PATH_REMOVED:
+            case PATH_BLOCKED:
+            case EDGE_CLASS_UPDATED:
+            case EDGE_CLASS_BLOCKED:
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    @Override
+    public String toString() {
+        if (isEdgeClassEvent()) return String.format("GraphChangeEvent{v%d %s %s}", version, type, edgeClass);
+        return isPathEvent() ? String.format("GraphChangeEvent{v%d %s %s → %s}", version, type, roomId, toRoomId) :
+                               String.format("GraphChangeEvent{v%d %s %s}", version, type, roomId);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,200 @@
+package com.indoor.navigation.model;
+
+import java.util.*;
+
+/**
+ * Ordered feed of the changes a navigation graph publishes. The most recent events are kept
+ * in a ring buffer, so a subscriber can resume after the last version it processed. One
+ * daemon thread delivers to every subscriber in version order; whatever accumulated since
+ * the previous delivery arrives as one batch, usually within a millisecond of the change.
+ * A subscriber that falls further behind than the buffer reaches is told so and should
+ * re-read the current snapshot.
+ */
+public final class GraphChangeFeed {
+    public static final int DEFAULT_CAPACITY = 4096;
+    
+    public interface Listener {
+        void onChanges(List<GraphChangeEvent> changes);
+        
+        /**
+         * Some changes after this version are no longer retained; later events still follow
+         */
+        default void onChangesLost(long afterVersion) {}
+    }
+    
+    /**
+     * A listener's position in the feed; cancel() stops delivery
+     */
+    public final class Subscription {
+        private final Listener listener;
+        private long nextSequence; // Sequence number of the next event to deliver
+        private long deliveredVersion;
+        private long lostAfterVersion = -1; // Gap to report before the next batch, or -1
+        private boolean cancelled;
+        
+        private Subscription(Listener listener, long nextSequence, long deliveredVersion) {
+            this.listener = listener;
+            this.nextSequence = nextSequence;
+            this.deliveredVersion = deliveredVersion;
+        }
+        
+        public void cancel() {
+            synchronized (GraphChangeFeed.this) {
+                cancelled = true;
+                subscriptions.remove(this);
+            }
+        }
+        
+        /**
+         * Version of the last event handed to the listener; resume from here
+         */
+        public long getDeliveredVersion() {
+            synchronized (GraphChangeFeed.this) { return deliveredVersion; }
+        }
+    }
+    
+    private static final class Delivery {
+        final Subscription subscription;
+        final List<GraphChangeEvent> changes;
+        final long lostAfterVersion; // -1 if nothing was lost
+        
+        Delivery(Subscription subscription, List<GraphChangeEvent> changes, long lostAfterVersion) {
+            this.subscription = subscription;
+            this.changes = changes;
+            this.lostAfterVersion = lostAfterVersion;
+        }
+    }
+    
+    private final GraphChangeEvent[] events;
+    private long firstSequence; // Oldest retained event
+    private long endSequence; // One past the newest event
+    private long latestVersion;
+    private long overwrittenVersion = -1; // Newest version with an event no longer retained
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    private Thread dispatcher;
+    
+    public GraphChangeFeed() {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    public GraphChangeFeed(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.events = new GraphChangeEvent[capacity];
+    }
+    
+    /**
+     * Follow changes published from now on
+     */
+    public synchronized Subscription subscribe(Listener listener) {
+        return add(new Subscription(listener, endSequence, latestVersion));
+    }
+    
+    /**
+     * Follow every change after the given version, starting with the retained ones
+     */
+    public synchronized Subscription subscribe(Listener listener, long afterVersion) {
+        long low = firstSequence;
+        long high = endSequence;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (eventAt(mid).getVersion() <= afterVersion) low = mid + 1; else high = mid;
+        }
+        Subscription subscription = new Subscription(listener, low, afterVersion);
+        if (afterVersion < overwrittenVersion) subscription.lostAfterVersion = afterVersion;
+        return add(subscription);
+    }
+    
+    public synchronized long getLatestVersion() { return latestVersion; }
+    public synchronized int getRetainedCount() { return (int) (endSequence - firstSequence); }
+    
+    /**
+     * Append the changes of one published version; called by the graph under its lock
+     */
+    synchronized void append(List<GraphChangeEvent> changes) {
+        for (GraphChangeEvent change : changes) {
+            if (endSequence - firstSequence == events.length) {
+                overwrittenVersion = eventAt(firstSequence).getVersion();
+                firstSequence++;
+            }
+            events[(int) (endSequence % events.length)] = change;
+            endSequence++;
+            latestVersion = Math.max(latestVersion, change.getVersion());
+        }
+        if (!changes.isEmpty() && !subscriptions.isEmpty()) notifyAll();
+    }
+    
+    private GraphChangeEvent eventAt(long sequence) {
+        return events[(int) (sequence % events.length)];
+    }
+    
+    private Subscription add(Subscription subscription) {
+        subscriptions.add(subscription);
+        if (dispatcher == null) {
+            dispatcher = new Thread(this::run, "graph-change-feed");
+            dispatcher.setDaemon(true);
+            dispatcher.start();
+        } else {
+            notifyAll();
+        }
+        return subscription;
+    }
+    
+    private boolean hasWork() {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.nextSequence < endSequence || subscription.lostAfterVersion >= 0) return true;
+        }
+        return false;
+    }
+    
+    private void run() {
+        while (true) {
+            List<Delivery> deliveries = new ArrayList<>();
+            synchronized (this) {
+                try {
+                    while (!hasWork()) wait();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                
+                for (Subscription subscription : subscriptions) {
+                    long lostAfterVersion = subscription.lostAfterVersion;
+                    subscription.lostAfterVersion = -1;
+                    if (subscription.nextSequence < firstSequence) {
+                        // Overwritten before it could be delivered
+                        lostAfterVersion = subscription.deliveredVersion;
+                        subscription.nextSequence = firstSequence;
+                    }
+                    if (subscription.nextSequence >= endSequence && lostAfterVersion < 0) continue;
+                    
+                    List<GraphChangeEvent> changes = new ArrayList<>((int) (endSequence - subscription.nextSequence));
+                    for (long sequence = subscription.nextSequence; sequence < endSequence; sequence++) {
+                        changes.add(eventAt(sequence));
+                    }
+                    subscription.nextSequence = endSequence;
+                    if (!changes.isEmpty()) subscription.deliveredVersion = changes.get(changes.size() - 1).getVersion();
+                    deliveries.add(new Delivery(subscription, changes, lostAfterVersion));
+                }
+            }
+            
+            // Listeners run outside the lock so they can read the graph or resubscribe freely
+            for (Delivery delivery : deliveries) {
+                try {
+                    if (delivery.lostAfterVersion >= 0) {
+                        delivery.subscription.listener.onChangesLost(delivery.lostAfterVersion);
+                    }
+                    if (!delivery.changes.isEmpty() && !isCancelled(delivery.subscription)) {
+                        delivery.subscription.listener.onChanges(delivery.changes);
+                    }
+                } catch (RuntimeException e) {
+                    System.err.println("Graph change listener failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    private synchronized boolean isCancelled(Subscription subscription) {
+        return subscription.cancelled;
+    }
+}
\ No newline at end of file
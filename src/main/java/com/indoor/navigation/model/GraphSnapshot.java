@@ -0,0 +1,693 @@
+package com.indoor.navigation.model;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable version of the navigation graph: rooms, their outgoing paths and which rooms
+ * are blocked. NavigationGraph publishes a new snapshot for every change, sharing unchanged
+ * rooms with the previous one, so readers can pin a version and route over it without locks.
+ * Every directed path has an edge id; edge endpoints are stored column-wise as packed
+ * (from, to) room indices. The edge between two rooms is found in O(1) through a primitive
+ * hash index shared by the generation, which also stores each edge's twin in the opposite
+ * direction. Removed rooms and paths leave
+ * tombstones until the next compaction renumbers the index spaces; compaction starts a new
+ * index generation. Temporary path blocks are live rather than versioned: they sit in an
+ * atomic edge-state bitset shared by every snapshot of the generation, so a new obstacle
+ * reaches searches already in flight. Live crowd factors are shared the same way. Each edge also
+ * carries a mask of the edge classes it belongs to; switching a class off is a live mask flip
+ * that closes all its edges at once.
+ */
+public final class GraphSnapshot {
+    private static final long NO_EDGE = -1L; // Room indices are never negative, so no edge packs to this
+
+    /**
+     * A room together with its outgoing and incoming edges and its block state in this version
+     */
+    public static final class RoomNode {
+        private static final Path[] NO_PATHS = new Path[0];
+        private static final int[] NO_EDGES = new int[0];
+
+        private final Room room;
+        private final boolean blocked;
+        private final Path[] paths; // Outgoing
+        private final int[] edgeIds; // Edge ids of the outgoing paths, parallel to paths
+        private final int[] incomingEdgeIds;
+
+        RoomNode(Room room) {
+            this(room, room.isBlocked(), NO_PATHS, NO_EDGES, NO_EDGES);
+        }
+
+        private RoomNode(Room room, boolean blocked, Path[] paths, int[] edgeIds, int[] incomingEdgeIds) {
+            this.room = room;
+            this.blocked = blocked;
+            this.paths = paths;
+            this.edgeIds = edgeIds;
+            this.incomingEdgeIds = incomingEdgeIds;
+        }
+
+        public Room getRoom() { return room; }
+        public boolean isBlocked() { return blocked; }
+        public int getPathCount() { return paths.length; }
+        public Path getPath(int i) { return paths[i]; }
+        public int getEdgeId(int i) { return edgeIds[i]; }
+        public int getIncomingCount() { return incomingEdgeIds.length; }
+        public int getIncomingEdgeId(int i) { return incomingEdgeIds[i]; }
+
+        public List<Path> getPaths() {
+            return Collections.unmodifiableList(Arrays.asList(paths));
+        }
+
+        RoomNode withRoom(Room newRoom) {
+            return new RoomNode(newRoom, blocked, paths, edgeIds, incomingEdgeIds);
+        }
+
+        RoomNode withBlocked(boolean newBlocked) {
+            return newBlocked == blocked ? this : new RoomNode(room, newBlocked, paths, edgeIds, incomingEdgeIds);
+        }
+
+        RoomNode withPath(Path path, int edgeId) {
+            Path[] newPaths = Arrays.copyOf(paths, paths.length + 1);
+            int[] newEdgeIds = Arrays.copyOf(edgeIds, edgeIds.length + 1);
+            newPaths[paths.length] = path;
+            newEdgeIds[edgeIds.length] = edgeId;
+            return new RoomNode(room, blocked, newPaths, newEdgeIds, incomingEdgeIds);
+        }
+
+        RoomNode withPathReplaced(int edgeId, Path path) {
+            int i = indexOf(edgeIds, edgeId);
+            if (i < 0) return this;
+
+            Path[] newPaths = paths.clone();
+            newPaths[i] = path;
+            return new RoomNode(room, blocked, newPaths, edgeIds, incomingEdgeIds);
+        }
+
+        RoomNode withoutPath(int edgeId) {
+            int i = indexOf(edgeIds, edgeId);
+            if (i < 0) return this;
+
+            Path[] newPaths = new Path[paths.length - 1];
+            System.arraycopy(paths, 0, newPaths, 0, i);
+            System.arraycopy(paths, i + 1, newPaths, i, paths.length - i - 1);
+            return new RoomNode(room, blocked, newPaths, removeAt(edgeIds, i), incomingEdgeIds);
+        }
+
+        RoomNode withIncoming(int edgeId) {
+            int[] newIncoming = Arrays.copyOf(incomingEdgeIds, incomingEdgeIds.length + 1);
+            newIncoming[incomingEdgeIds.length] = edgeId;
+            return new RoomNode(room, blocked, paths, edgeIds, newIncoming);
+        }
+
+        RoomNode withoutIncoming(int edgeId) {
+            int i = indexOf(incomingEdgeIds, edgeId);
+            return i < 0 ? this : new RoomNode(room, blocked, paths, edgeIds, removeAt(incomingEdgeIds, i));
+        }
+
+        /**
+         * Same room with edge ids translated through the compaction map
+         */
+        RoomNode renumbered(int[] newEdgeIds) {
+            int[] outgoing = new int[edgeIds.length];
+            int[] incoming = new int[incomingEdgeIds.length];
+            for (int i = 0; i < outgoing.length; i++) outgoing[i] = newEdgeIds[edgeIds[i]];
+            for (int i = 0; i < incoming.length; i++) incoming[i] = newEdgeIds[incomingEdgeIds[i]];
+            return new RoomNode(room, blocked, paths, outgoing, incoming);
+        }
+
+        private static int indexOf(int[] values, int value) {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == value) return i;
+            }
+            return -1;
+        }
+
+        private static int[] removeAt(int[] values, int i) {
+            int[] result = new int[values.length - 1];
+            System.arraycopy(values, 0, result, 0, i);
+            System.arraycopy(values, i + 1, result, i, values.length - i - 1);
+            return result;
+        }
+    }
+
+    private final long version;
+    private final int generation; // Bumped whenever compaction renumbers rooms and edges
+    private final PersistentArray<RoomNode> nodes; // By room index, null once the room is removed
+    private final int roomCount;
+    private final PersistentArray<Path> edges; // By edge id, null once the path is removed
+    private final PersistentLongArray edgeEnds; // Packed (from, to) room indices by edge id, NO_EDGE once removed
+    private final PersistentLongArray edgeClassMasks; // Edge classes each edge belongs to, 0 if none
+    private final int edgeCount;
+    private final Map<String, Integer> roomIndex; // Shared within a generation, never shrinks
+    private final EdgeIndex edgeIndex; // Packed (from, to) room indices -> edge id, likewise
+    private final double minDistancePerFloorChange;
+    private final int accessGroupsInUse;
+    private final EdgeStateTable edgeStates; // Live temporary blocks, shared within a generation
+    private final CrowdFactorTable crowdFactors; // Live crowd factors by room index, likewise
+    private final EdgeClassTable edgeClasses; // Live class on/off switches, shared by every generation
+    private final BitSet excludedEdges; // What-if blocks private to this copy, or null
+
+    private GraphSnapshot(long version, int generation, PersistentArray<RoomNode> nodes, int roomCount,
+                          PersistentArray<Path> edges, PersistentLongArray edgeEnds, PersistentLongArray edgeClassMasks,
+                          int edgeCount, Map<String, Integer> roomIndex, EdgeIndex edgeIndex,
+                          double minDistancePerFloorChange,
+                          int accessGroupsInUse, EdgeStateTable edgeStates, CrowdFactorTable crowdFactors,
+                          EdgeClassTable edgeClasses, BitSet excludedEdges) {
+        this.version = version;
+        this.generation = generation;
+        this.nodes = nodes;
+        this.roomCount = roomCount;
+        this.edges = edges;
+        this.edgeEnds = edgeEnds;
+        this.edgeClassMasks = edgeClassMasks;
+        this.edgeCount = edgeCount;
+        this.roomIndex = roomIndex;
+        this.edgeIndex = edgeIndex;
+        this.minDistancePerFloorChange = minDistancePerFloorChange;
+        this.accessGroupsInUse = accessGroupsInUse;
+        this.edgeStates = edgeStates;
+        this.crowdFactors = crowdFactors;
+        this.edgeClasses = edgeClasses;
+        this.excludedEdges = excludedEdges;
+    }
+
+    static GraphSnapshot empty() {
+        return new GraphSnapshot(0, 0, PersistentArray.empty(), 0, PersistentArray.empty(),
+                               PersistentLongArray.empty(NO_EDGE), PersistentLongArray.empty(0), 0,
+                               new ConcurrentHashMap<>(), new EdgeIndex(),
+                               Double.POSITIVE_INFINITY, AccessGroup.PUBLIC, new EdgeStateTable(),
+                               new CrowdFactorTable(), new EdgeClassTable(), null);
+    }
+
+    /**
+     * First generation of a graph assembled in bulk by GraphBuilder: rooms by index, directed
+     * edges by id with their packed endpoints, and each room's outgoing and incoming edge ids
+     * as ranges of the flat arrays (room i spans starts[i] until starts[i + 1])
+     */
+    static GraphSnapshot built(Room[] rooms, int roomCount, Path[] edges, long[] edgeEnds, int edgeCount,
+                               int[] outgoingStarts, int[] outgoing, int[] incomingStarts, int[] incoming,
+                               double minDistancePerFloorChange, int accessGroupsInUse) {
+        Map<String, Integer> roomIndex = new ConcurrentHashMap<>(Math.max(16, roomCount * 4 / 3 + 1));
+        RoomNode[] nodes = new RoomNode[roomCount];
+        for (int i = 0; i < roomCount; i++) {
+            Room room = rooms[i];
+            roomIndex.put(room.getId(), i);
+
+            int outStart = outgoingStarts[i];
+            int outCount = outgoingStarts[i + 1] - outStart;
+            Path[] paths = outCount > 0 ? new Path[outCount] : RoomNode.NO_PATHS;
+            for (int j = 0; j < outCount; j++) {
+                paths[j] = edges[outgoing[outStart + j]];
+            }
+            int[] edgeIds = outCount > 0 ? Arrays.copyOfRange(outgoing, outStart, outStart + outCount) : RoomNode.NO_EDGES;
+            int[] incomingEdgeIds = incomingStarts[i + 1] > incomingStarts[i]
+                                    ? Arrays.copyOfRange(incoming, incomingStarts[i], incomingStarts[i + 1]) : RoomNode.NO_EDGES;
+            nodes[i] = new RoomNode(room, room.isBlocked(), paths, edgeIds, incomingEdgeIds);
+        }
+        EdgeIndex edgeIndex = new EdgeIndex(edgeCount);
+        for (int edgeId = 0; edgeId < edgeCount; edgeId++) {
+            edgeIndex.allocate(edgeEnds[edgeId], edgeId);
+        }
+        return new GraphSnapshot(0, 0, PersistentArray.of(nodes, roomCount), roomCount, PersistentArray.of(edges, edgeCount),
+                               PersistentLongArray.of(edgeEnds, edgeCount, NO_EDGE), PersistentLongArray.empty(0), edgeCount,
+                               roomIndex, edgeIndex, minDistancePerFloorChange, accessGroupsInUse, new EdgeStateTable(),
+                               new CrowdFactorTable(), new EdgeClassTable(), null);
+    }
+
+    /**
+     * Packed endpoints of a directed edge between two room indices
+     */
+    static long edgeKey(int fromIndex, int toIndex) {
+        return ((long) fromIndex << 32) | (toIndex & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Edge id from one room index to another in this version, or -1: O(1)
+     */
+    private int findEdge(int fromIndex, int toIndex) {
+        long key = edgeKey(fromIndex, toIndex);
+        int edgeId = edgeIndex.get(key);
+        return edgeId >= 0 && edgeEnds.get(edgeId) == key ? edgeId : -1;
+    }
+
+    public long getVersion() { return version; }
+    public int getRoomCount() { return roomCount; }
+    public int getEdgeCount() { return edgeCount; }
+
+    /**
+     * Index generation; room indices and edge ids are only comparable within one generation
+     */
+    public int getGeneration() { return generation; }
+
+    /**
+     * Size of the room index space, including tombstones of removed rooms
+     */
+    public int getRoomIndexCapacity() { return nodes.size(); }
+
+    /**
+     * Dense index of a room for array-based algorithms, or -1 if the room is not in this version
+     */
+    public int getRoomIndex(String roomId) {
+        Integer index = roomId != null ? roomIndex.get(roomId) : null;
+        return index != null && nodes.get(index) != null ? index : -1;
+    }
+
+    public RoomNode getNode(int index) { return nodes.get(index); }
+
+    public RoomNode getNode(String roomId) {
+        Integer index = roomId != null ? roomIndex.get(roomId) : null;
+        return index != null ? nodes.get(index) : null;
+    }
+
+    public Room getRoomByIndex(int index) {
+        RoomNode node = nodes.get(index);
+        return node != null ? node.room : null;
+    }
+
+    public Room getRoomById(String roomId) {
+        RoomNode node = getNode(roomId);
+        return node != null ? node.room : null;
+    }
+
+    public boolean isRoomBlocked(String roomId) {
+        RoomNode node = getNode(roomId);
+        return node == null || node.blocked;
+    }
+
+    /**
+     * Crowd factor of the room an edge leaves: its live estimate from measured occupancy if
+     * there is one, else the room type's static factor
+     */
+    public double getSourceCrowdFactor(int edgeId) {
+        int fromIndex = getEdgeSource(edgeId);
+        return fromIndex >= 0 ? crowdFactor(fromIndex) : 1.0;
+    }
+
+    /**
+     * Crowd factor of the room an edge enters, likewise
+     */
+    public double getTargetCrowdFactor(int edgeId) {
+        int toIndex = getEdgeTarget(edgeId);
+        return toIndex >= 0 ? crowdFactor(toIndex) : 1.0;
+    }
+
+    private double crowdFactor(int index) {
+        double live = crowdFactors.get(index);
+        if (!Double.isNaN(live)) return live;
+        RoomNode node = nodes.get(index);
+        return node != null ? node.room.getRoomType().getCrowdFactor() : 1.0;
+    }
+
+    public List<Path> getPathsFromRoom(String roomId) {
+        RoomNode node = getNode(roomId);
+        return node != null ? node.getPaths() : Collections.emptyList();
+    }
+
+    /**
+     * Paths leading into the room, read from its reverse adjacency
+     */
+    public List<Path> getPathsToRoom(String roomId) {
+        RoomNode node = getNode(roomId);
+        if (node == null) return Collections.emptyList();
+
+        List<Path> incoming = new ArrayList<>(node.incomingEdgeIds.length);
+        for (int edgeId : node.incomingEdgeIds) {
+            incoming.add(edges.get(edgeId));
+        }
+        return incoming;
+    }
+
+    /**
+     * Size of the edge id space, including tombstones of removed paths
+     */
+    public int getEdgeCapacity() { return edges.size(); }
+
+    /**
+     * Id of the directed edge between two rooms, or -1 if they are not connected in this version
+     */
+    public int getEdgeId(String fromRoomId, String toRoomId) {
+        Integer fromIndex = fromRoomId != null ? roomIndex.get(fromRoomId) : null;
+        Integer toIndex = toRoomId != null ? roomIndex.get(toRoomId) : null;
+        if (fromIndex == null || toIndex == null) return -1;
+
+        return findEdge(fromIndex, toIndex);
+    }
+
+    /**
+     * Edge id of the path's connection in this version, or -1 if its rooms are no longer
+     * connected. Edits publish copies of a path, so a path from an older version still finds
+     * its edge.
+     */
+    public int getEdgeId(Path path) {
+        return getEdgeId(path.getFromRoom().getId(), path.getToRoom().getId());
+    }
+
+    public Path getEdge(int edgeId) {
+        return edges.get(edgeId);
+    }
+
+    /**
+     * Room index an edge leaves, or -1 once the edge is removed
+     */
+    public int getEdgeSource(int edgeId) {
+        long ends = edgeEnds.get(edgeId);
+        return ends != NO_EDGE ? (int) (ends >>> 32) : -1;
+    }
+
+    /**
+     * Room index an edge enters, or -1 once the edge is removed
+     */
+    public int getEdgeTarget(int edgeId) {
+        long ends = edgeEnds.get(edgeId);
+        return ends != NO_EDGE ? (int) ends : -1;
+    }
+
+    /**
+     * Edge id of the same connection in the opposite direction, or -1 if it is not in this version
+     */
+    public int getTwinEdgeId(int edgeId) {
+        long ends = edgeEnds.get(edgeId);
+        if (ends == NO_EDGE) return -1;
+
+        int twinEdgeId = edgeIndex.getTwin(edgeId);
+        return twinEdgeId >= 0 && edgeEnds.get(twinEdgeId) == EdgeIndex.reversed(ends) ? twinEdgeId : -1;
+    }
+
+    /**
+     * Directed path between two rooms, or null if they are not connected
+     */
+    public Path getPath(String fromRoomId, String toRoomId) {
+        return getEdge(getEdgeId(fromRoomId, toRoomId));
+    }
+
+    /**
+     * Whether the edge is blocked, temporarily, permanently or by a closed edge class; removed
+     * edges count as blocked
+     */
+    public boolean isEdgeBlocked(int edgeId) {
+        Path path = edges.get(edgeId);
+        return path == null || edgeStates.isBlocked(edgeId) || path.isBlocked() ||
+               (edgeClassMasks.get(edgeId) & edgeClasses.getDisabled()) != 0 ||
+               (excludedEdges != null && excludedEdges.get(edgeId));
+    }
+
+    /**
+     * Mask of the edge classes the edge belongs to, one bit per class
+     */
+    public long getEdgeClassMask(int edgeId) {
+        return edgeClassMasks.get(edgeId);
+    }
+
+    /**
+     * Mask of the edge classes switched off right now; live, like temporary blocks
+     */
+    public long getDisabledEdgeClasses() {
+        return edgeClasses.getDisabled();
+    }
+
+    /**
+     * Names of the switched-off classes closing the path, empty if none
+     */
+    public List<String> getClosingEdgeClasses(Path path) {
+        return edgeClasses.names(edgeClassMasks.get(getEdgeId(path)) & edgeClasses.getDisabled());
+    }
+
+    /**
+     * Whether the path is blocked now; paths whose rooms are no longer connected count as blocked
+     */
+    public boolean isPathBlocked(Path path) {
+        return isEdgeBlocked(getEdgeId(path));
+    }
+
+    public boolean isEdgeTemporarilyBlocked(int edgeId) {
+        return edgeStates.isBlocked(edgeId);
+    }
+
+    /**
+     * Reason for a temporary block, or null if the path is not temporarily blocked
+     */
+    public String getBlockageReason(Path path) {
+        EdgeStateTable.Blockage blockage = edgeStates.getBlockage(getEdgeId(path));
+        return blockage != null ? blockage.reason : null;
+    }
+
+    /**
+     * When the temporary block started (epoch millis), or 0 if the path is not temporarily blocked
+     */
+    public long getBlockedSinceMillis(Path path) {
+        EdgeStateTable.Blockage blockage = edgeStates.getBlockage(getEdgeId(path));
+        return blockage != null ? blockage.sinceMillis : 0;
+    }
+
+    public String getBlockageInfo(Path path) {
+        int edgeId = getEdgeId(path);
+        if (edgeStates.isBlocked(edgeId)) {
+            String reason = getBlockageReason(path);
+            return "Temporarily blocked: " + (reason != null ? reason : "Unknown reason");
+        } else if ((edgeClassMasks.get(edgeId) & edgeClasses.getDisabled()) != 0) {
+            return "Closed with " + String.join(", ", getClosingEdgeClasses(path));
+        }
+        Path current = edges.get(edgeId);
+        if (current == null) {
+            return "Path removed";
+        } else if (current.isBlocked()) {
+            return "Permanently blocked";
+        }
+        return "Not blocked";
+    }
+
+    public int getTemporarilyBlockedCount() { return edgeStates.getBlockedCount(); }
+
+    /**
+     * Temporarily blocked paths (each direction separately), found by walking set bits
+     */
+    public List<Path> getTemporarilyBlockedPaths() {
+        List<Path> blocked = new ArrayList<>(edgeStates.getBlockedCount());
+        for (int edgeId = edgeStates.nextBlocked(0); edgeId >= 0; edgeId = edgeStates.nextBlocked(edgeId + 1)) {
+            Path path = edges.get(edgeId);
+            if (path != null) blocked.add(path);
+        }
+        return blocked;
+    }
+
+    /**
+     * Rooms in index order. The view iterates this version only and never changes.
+     */
+    public Collection<Room> getAllRooms() {
+        return new AbstractCollection<Room>() {
+            @Override
+            public Iterator<Room> iterator() {
+                return new Iterator<Room>() {
+                    private int nextIndex = advance(0);
+
+                    private int advance(int from) {
+                        int index = from;
+                        while (index < nodes.size() && nodes.get(index) == null) index++;
+                        return index;
+                    }
+
+                    @Override
+                    public boolean hasNext() { return nextIndex < nodes.size(); }
+
+                    @Override
+                    public Room next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        Room room = nodes.get(nextIndex).room;
+                        nextIndex = advance(nextIndex + 1);
+                        return room;
+                    }
+                };
+            }
+
+            @Override
+            public int size() { return roomCount; }
+        };
+    }
+
+    /**
+     * Smallest distance per floor travelled over any vertical path ever added
+     * (infinite when the building has no vertical connections)
+     */
+    public double getMinDistancePerFloorChange() { return minDistancePerFloorChange; }
+
+    /**
+     * Access groups that appear anywhere in this building (a superset once masks are cleared)
+     */
+    public int getAccessGroupsInUse() { return accessGroupsInUse; }
+
+    public int getCredentialClass(int credentialMask) {
+        return credentialMask & accessGroupsInUse;
+    }
+
+    /**
+     * Private what-if copy with one more path blocked. Shares the version number, since
+     * nothing is published; used to explore alternatives without touching shared state.
+     */
+    public GraphSnapshot withPathBlocked(Path path) {
+        int edgeId = getEdgeId(path);
+        if (edgeId < 0) return this;
+
+        BitSet excluded = excludedEdges != null ? (BitSet) excludedEdges.clone() : new BitSet();
+        excluded.set(edgeId);
+        return new GraphSnapshot(version, generation, nodes, roomCount, edges, edgeEnds, edgeClassMasks, edgeCount, roomIndex, edgeIndex,
+                               minDistancePerFloorChange, accessGroupsInUse, edgeStates, crowdFactors,
+                               edgeClasses, excluded);
+    }
+
+    // Writer-side derivations used by NavigationGraph
+
+    /**
+     * Index of the room, allocating the next free index for a room never seen in this generation
+     */
+    int allocateRoomIndex(String roomId) {
+        return roomIndex.computeIfAbsent(roomId, id -> nodes.size());
+    }
+
+    /**
+     * Edge id of the directed pair, allocating the next free id for a pair never seen in this generation
+     */
+    int allocateEdgeId(int fromIndex, int toIndex) {
+        return edgeIndex.allocate(edgeKey(fromIndex, toIndex), edges.size());
+    }
+
+    EdgeStateTable getEdgeStates() { return edgeStates; }
+
+    EdgeClassTable getEdgeClasses() { return edgeClasses; }
+
+    GraphSnapshot withEdgeClassMask(int edgeId, long mask) {
+        if (edgeClassMasks.get(edgeId) == mask) return this;
+        return new GraphSnapshot(version, generation, nodes, roomCount, edges, edgeEnds, edgeClassMasks.set(edgeId, mask),
+                               edgeCount, roomIndex, edgeIndex, minDistancePerFloorChange, accessGroupsInUse,
+                               edgeStates, crowdFactors, edgeClasses, excludedEdges);
+    }
+
+    CrowdFactorTable getCrowdFactors() { return crowdFactors; }
+
+    GraphSnapshot withNode(int index, RoomNode node) {
+        int count = roomCount;
+        boolean existed = nodes.get(index) != null;
+        if (node != null && !existed) count++;
+        if (node == null && existed) count--;
+        return new GraphSnapshot(version, generation, nodes.set(index, node), count, edges, edgeEnds, edgeClassMasks, edgeCount,
+                               roomIndex, edgeIndex, minDistancePerFloorChange, accessGroupsInUse,
+                               edgeStates, crowdFactors, edgeClasses, excludedEdges);
+    }
+
+    /**
+     * Store the path under its edge id, from one room index to another
+     */
+    GraphSnapshot withEdge(int edgeId, Path path, int fromIndex, int toIndex) {
+        return withEdge(edgeId, path, edgeKey(fromIndex, toIndex));
+    }
+
+    /**
+     * Swap in an edited copy of an edge's path, keeping its id, endpoints and class mask
+     */
+    GraphSnapshot withEdgeReplaced(int edgeId, Path path) {
+        int fromIndex = getEdgeSource(edgeId);
+        if (fromIndex < 0) return this;
+
+        PersistentArray<RoomNode> newNodes = nodes.set(fromIndex, nodes.get(fromIndex).withPathReplaced(edgeId, path));
+        return new GraphSnapshot(version, generation, newNodes, roomCount, edges.set(edgeId, path), edgeEnds,
+                               edgeClassMasks, edgeCount, roomIndex, edgeIndex, minDistancePerFloorChange, accessGroupsInUse,
+                               edgeStates, crowdFactors, edgeClasses, excludedEdges);
+    }
+
+    /**
+     * Leave a tombstone under the edge id
+     */
+    GraphSnapshot withoutEdge(int edgeId) {
+        return withEdge(edgeId, null, NO_EDGE);
+    }
+
+    private GraphSnapshot withEdge(int edgeId, Path path, long ends) {
+        PersistentLongArray masks = edgeClassMasks.get(edgeId) != 0 ? edgeClassMasks.set(edgeId, 0) : edgeClassMasks;
+        int count = edgeCount;
+        boolean existed = edges.get(edgeId) != null;
+        if (path != null && !existed) count++;
+        if (path == null && existed) count--;
+        return new GraphSnapshot(version, generation, nodes, roomCount, edges.set(edgeId, path),
+                               edgeEnds.set(edgeId, ends), masks, count, roomIndex, edgeIndex, minDistancePerFloorChange, accessGroupsInUse,
+                               edgeStates, crowdFactors, edgeClasses, excludedEdges);
+    }
+
+    GraphSnapshot withMinDistancePerFloorChange(double distance) {
+        return new GraphSnapshot(version, generation, nodes, roomCount, edges, edgeEnds, edgeClassMasks, edgeCount,
+                               roomIndex, edgeIndex, distance, accessGroupsInUse,
+                               edgeStates, crowdFactors, edgeClasses, excludedEdges);
+    }
+
+    GraphSnapshot withAccessGroupsInUse(int accessGroups) {
+        return new GraphSnapshot(version, generation, nodes, roomCount, edges, edgeEnds, edgeClassMasks, edgeCount,
+                               roomIndex, edgeIndex, minDistancePerFloorChange, accessGroups,
+                               edgeStates, crowdFactors, edgeClasses, excludedEdges);
+    }
+
+    GraphSnapshot nextVersion() {
+        return new GraphSnapshot(version + 1, generation, nodes, roomCount, edges, edgeEnds, edgeClassMasks, edgeCount,
+                               roomIndex, edgeIndex, minDistancePerFloorChange, accessGroupsInUse,
+                               edgeStates, crowdFactors, edgeClasses, excludedEdges);
+    }
+
+    /**
+     * Whether tombstones outnumber live entries enough to be worth a compaction
+     */
+    boolean needsCompaction(int minTombstones) {
+        int roomTombstones = nodes.size() - roomCount;
+        int edgeTombstones = edges.size() - edgeCount;
+        return (roomTombstones >= minTombstones && roomTombstones > roomCount) ||
+               (edgeTombstones >= minTombstones && edgeTombstones > edgeCount);
+    }
+
+    /**
+     * Copy with rooms and edges renumbered densely in their current order, in a new generation
+     * with fresh index maps and edge states. Older snapshots keep their own maps and stay valid,
+     * but stop seeing new temporary blocks.
+     */
+    GraphSnapshot compacted() {
+        int[] newRoomIndex = new int[nodes.size()];
+        int[] newEdgeIds = new int[edges.size()];
+        Map<String, Integer> compactRoomIndex = new ConcurrentHashMap<>();
+
+        for (int i = 0; i < nodes.size(); i++) {
+            RoomNode node = nodes.get(i);
+            newRoomIndex[i] = node != null ? compactRoomIndex.size() : -1;
+            if (node != null) compactRoomIndex.put(node.room.getId(), newRoomIndex[i]);
+        }
+        int nextEdgeId = 0;
+        for (int i = 0; i < edges.size(); i++) {
+            newEdgeIds[i] = edges.get(i) != null ? nextEdgeId++ : -1;
+        }
+
+        PersistentArray<RoomNode> compactNodes = PersistentArray.empty();
+        for (int i = 0; i < nodes.size(); i++) {
+            RoomNode node = nodes.get(i);
+            if (node != null) compactNodes = compactNodes.append(node.renumbered(newEdgeIds));
+        }
+        PersistentArray<Path> compactEdges = PersistentArray.empty();
+        PersistentLongArray compactEnds = PersistentLongArray.empty(NO_EDGE);
+        PersistentLongArray compactMasks = PersistentLongArray.empty(0);
+        EdgeIndex compactEdgeIndex = new EdgeIndex(edgeCount);
+        for (int i = 0; i < edges.size(); i++) {
+            Path path = edges.get(i);
+            if (path == null) continue;
+
+            long mask = edgeClassMasks.get(i);
+            if (mask != 0) compactMasks = compactMasks.set(compactEdges.size(), mask);
+            long ends = edgeKey(newRoomIndex[getEdgeSource(i)], newRoomIndex[getEdgeTarget(i)]);
+            compactEdgeIndex.allocate(ends, compactEdges.size());
+            compactEdges = compactEdges.append(path);
+            compactEnds = compactEnds.append(ends);
+        }
+
+        return new GraphSnapshot(version, generation + 1, compactNodes, roomCount, compactEdges, compactEnds, compactMasks,
+                               edgeCount, compactRoomIndex, compactEdgeIndex, minDistancePerFloorChange, accessGroupsInUse,
+                               edgeStates.renumbered(newEdgeIds, edgeCount),
+                               crowdFactors.renumbered(newRoomIndex, roomCount), edgeClasses, null);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("GraphSnapshot{version=%d, rooms=%d, paths=%d}", version, roomCount, edgeCount);
+    }
+}
\ No newline at end of file
@@ -1,209 +1,819 @@
 package com.indoor.navigation.model;
 
+import com.indoor.navigation.model.GraphSnapshot.RoomNode;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 /**
- * Enhanced navigation graph with multi-floor support and dynamic obstacle handling
+ * Enhanced navigation graph with multi-floor support and dynamic obstacle handling.
+ * Rooms, paths and blocks live in an immutable GraphSnapshot; every change builds the next
+ * version under the graph lock and publishes it with a single volatile write, so readers
+ * (routing, monitoring timers) never lock and never see a half-applied change.
  */
 public class NavigationGraph {
-    private Map<String, Room> rooms;
-    private Map<String, List<Path>> adjacencyList;
-    private Map<Integer, List<Room>> floorMap; // Floor number -> Rooms on that floor
-    private List<Path> temporarilyBlockedPaths;
+    static final String DEFAULT_GRAPH_NAME = "Default Building";
+    static final String DEFAULT_DESCRIPTION = "Indoor navigation graph";
+    private static final int COMPACTION_MIN_TOMBSTONES = 1024;
+    
+    /**
+     * Obstacle waiting for its scheduled expiry
+     */
+    private static final class ObstacleExpiry {
+        final String fromRoomId;
+        final String toRoomId;
+        final String reason;
+        ObstacleScheduler.Timeout timeout;
+        
+        ObstacleExpiry(String fromRoomId, String toRoomId, String reason) {
+            this.fromRoomId = fromRoomId;
+            this.toRoomId = toRoomId;
+            this.reason = reason;
+        }
+    }
+    
+    /**
+     * Room, path and block changes staged for one atomic commit. Nothing is visible until
+     * commit(), which checks the whole batch first, running room edits on copies, then applies
+     * it in order under the graph lock and publishes a single version: one index pass per room,
+     * one compaction check, one batch on the change feed and one statistics rebuild, however
+     * many changes the batch holds. Temporary path blocks live in the shared edge-state table,
+     * so searches in flight may see those a moment before the version is published.
+     */
+    public final class Batch {
+        private final List<StagedChange> changes = new ArrayList<>();
+        
+        private Batch() {}
+        
+        public Batch addRoom(Room room) {
+            return stage(new StagedChange(GraphChangeEvent.Type.ROOM_ADDED, room.getId(), null, room, null, null, null));
+        }
+        
+        public Batch updateRoom(String roomId, Consumer<Room> edit) {
+            return stage(new StagedChange(GraphChangeEvent.Type.ROOM_UPDATED, roomId, null, null, null, edit, null));
+        }
+        
+        public Batch removeRoom(String roomId) {
+            return stage(new StagedChange(GraphChangeEvent.Type.ROOM_REMOVED, roomId, null, null, null, null, null));
+        }
+        
+        public Batch blockRoom(String roomId, boolean blocked) {
+            GraphChangeEvent.Type type = blocked ? GraphChangeEvent.Type.ROOM_BLOCKED : GraphChangeEvent.Type.ROOM_UNBLOCKED;
+            return stage(new StagedChange(type, roomId, null, null, null, null, null));
+        }
+        
+        public Batch addPath(Path path) {
+            return stage(new StagedChange(GraphChangeEvent.Type.PATH_ADDED, path.getFromRoom().getId(),
+                                          path.getToRoom().getId(), null, path, null, null));
+        }
+        
+        public Batch removePath(String fromRoomId, String toRoomId) {
+            return stage(new StagedChange(GraphChangeEvent.Type.PATH_REMOVED, fromRoomId, toRoomId, null, null, null, null));
+        }
+        
+        public Batch blockPath(String fromRoomId, String toRoomId, boolean blocked, String reason) {
+            GraphChangeEvent.Type type = blocked ? GraphChangeEvent.Type.PATH_BLOCKED : GraphChangeEvent.Type.PATH_UNBLOCKED;
+            return stage(new StagedChange(type, fromRoomId, toRoomId, null, null, null, blocked ? reason : null));
+        }
+        
+        public int size() { return changes.size(); }
+        
+        /**
+         * Apply every staged change as one version and return that version; the batch is empty
+         * afterwards and can be reused. Throws IllegalArgumentException, changing nothing, if a
+         * path would connect a room that is neither in the graph nor added earlier in the batch.
+         * An exception thrown by a room edit likewise rejects the batch before anything changes.
+         */
+        public long commit() {
+            long version = NavigationGraph.this.commit(changes);
+            changes.clear();
+            return version;
+        }
+        
+        private Batch stage(StagedChange change) {
+            changes.add(change);
+            return this;
+        }
+    }
+    
+    private static final class StagedChange {
+        final GraphChangeEvent.Type type;
+        final String roomId; // The room, or the start of the path
+        final String toRoomId;
+        final Room room;
+        final Path path;
+        final Consumer<Room> edit;
+        final String reason;
+        
+        StagedChange(GraphChangeEvent.Type type, String roomId, String toRoomId, Room room, Path path,
+                     Consumer<Room> edit, String reason) {
+            this.type = type;
+            this.roomId = roomId;
+            this.toRoomId = toRoomId;
+            this.room = room;
+            this.path = path;
+            this.edit = edit;
+            this.reason = reason;
+        }
+    }
+    
+    private volatile GraphSnapshot snapshot;
+    private RoomAttributeIndex roomAttributes; // QR, name, type, floor and accessibility indexes
+    // Search indexes; null after a bulk build until the first search that needs them
+    private RoomTextIndex roomText; // Trigram index for searchRooms
+    private RoomFuzzyIndex roomFuzzy; // Typo-tolerant word index for fuzzySearchRooms
+    private RoomPrefixIndex roomPrefixes; // Ranked completions for completeDestination
+    private final Map<String, Integer> destinationRequests; // Room id -> times chosen as a destination
+    private final Map<String, ObstacleExpiry> pendingObstacles; // Room pair key -> scheduled expiry
+    private int blockedEdgeCount; // Directed edges whose path was added blocked
+    private volatile BuildingStats buildingStats; // For the current version, built on first read
+    private volatile RoomSpatialIndex spatialIndex; // Built on the first position query after a floor plan change
+    private final GraphChangeFeed changeFeed;
+    private final CrowdMonitor crowdMonitor;
+    private List<GraphChangeEvent> pendingChanges; // Changes going into the next published version
+    private final Consumer<List<ObstacleExpiry>> obstacleExpiryHandler = this::expireObstacles;
     private String graphName;
     private String description;
     
     public NavigationGraph() {
-        this("Default Building", "Indoor navigation graph");
+        this(DEFAULT_GRAPH_NAME, DEFAULT_DESCRIPTION);
     }
     
     public NavigationGraph(String graphName, String description) {
-        this.rooms = new HashMap<>();
-        this.adjacencyList = new HashMap<>();
-        this.floorMap = new HashMap<>();
-        this.temporarilyBlockedPaths = new ArrayList<>();
+        this.roomAttributes = new RoomAttributeIndex();
+        this.roomText = new RoomTextIndex();
+        this.roomFuzzy = new RoomFuzzyIndex();
+        this.roomPrefixes = new RoomPrefixIndex();
+        this.destinationRequests = new HashMap<>();
+        this.pendingObstacles = new HashMap<>();
+        this.changeFeed = new GraphChangeFeed();
+        this.crowdMonitor = new CrowdMonitor(this);
+        this.pendingChanges = new ArrayList<>();
+        this.snapshot = GraphSnapshot.empty();
         this.graphName = graphName;
         this.description = description;
     }
     
-    public void addRoom(Room room) {
-        rooms.put(room.getId(), room);
-        adjacencyList.putIfAbsent(room.getId(), new ArrayList<>());
+    /**
+     * Graph starting from a snapshot GraphBuilder assembled in bulk
+     */
+    NavigationGraph(String graphName, String description, GraphSnapshot built, int blockedEdgeCount) {
+        this(graphName, description);
+        this.roomAttributes = RoomAttributeIndex.build(built);
+        this.roomText = null; // Loading a map should not wait for text search
+        this.roomFuzzy = null;
+        this.roomPrefixes = null;
+        this.blockedEdgeCount = blockedEdgeCount;
+        this.snapshot = built.nextVersion();
+    }
+    
+    /**
+     * Current version. Pin it once per query: later changes never alter a published snapshot.
+     */
+    public GraphSnapshot getSnapshot() { return snapshot; }
+    public long getVersion() { return snapshot.getVersion(); }
+    
+    /**
+     * Typed changes stamped with the version that first contains them; subscribe to react to
+     * blocks and edits instead of polling the version
+     */
+    public GraphChangeFeed getChangeFeed() { return changeFeed; }
+    
+    /**
+     * Live occupancy per room; feeds the crowd factors routing uses without publishing versions
+     */
+    public CrowdMonitor getCrowdMonitor() { return crowdMonitor; }
+    
+    private void publish(GraphSnapshot next) {
+        if (next.getGeneration() != snapshot.getGeneration()) {
+            // Room indices were renumbered
+            roomAttributes = RoomAttributeIndex.build(next);
+            roomText = null; // Rebuilt by the next search, so compaction does not wait for them
+            roomFuzzy = null;
+            roomPrefixes = null;
+        }
+        snapshot = next.nextVersion();
+        buildingStats = null;
+        if (!pendingChanges.isEmpty()) {
+            changeFeed.append(pendingChanges);
+            pendingChanges = new ArrayList<>();
+        }
+    }
+    
+    /**
+     * Record a change for the version about to be published; called under the graph lock
+     */
+    private void changed(GraphChangeEvent.Type type, String roomId, String toRoomId, String reason) {
+        pendingChanges.add(new GraphChangeEvent(snapshot.getVersion() + 1, type, roomId, toRoomId, reason));
+    }
+    
+    private void changedEdgeClass(GraphChangeEvent.Type type, String edgeClass) {
+        pendingChanges.add(GraphChangeEvent.forEdgeClass(snapshot.getVersion() + 1, type, edgeClass));
+    }
+    
+    public synchronized void addRoom(Room room) {
+        publish(withRoomAdded(snapshot, room));
+    }
+    
+    private GraphSnapshot withRoomAdded(GraphSnapshot next, Room room) {
+        int index = next.allocateRoomIndex(room.getId());
+        RoomNode existing = next.getNode(index);
+        next = next.withNode(index, existing != null ? existing.withRoom(room).withBlocked(room.isBlocked()) :
+                                                       new RoomNode(room));
         
-        // Add to floor map
-        floorMap.computeIfAbsent(room.getFloor(), k -> new ArrayList<>()).add(room);
+        roomAttributes.add(index, room, room.isBlocked());
+        indexRoomText(index, room);
+        spatialIndex = null;
+        changed(existing != null ? GraphChangeEvent.Type.ROOM_UPDATED : GraphChangeEvent.Type.ROOM_ADDED,
+                room.getId(), null, null);
+        return next.withAccessGroupsInUse(next.getAccessGroupsInUse() | room.getAccessGroups());
+    }
+    
+    public synchronized void addPath(Path path) {
+        publish(withPathAdded(snapshot, path));
     }
     
-    public void addPath(Path path) {
+    private GraphSnapshot withPathAdded(GraphSnapshot next, Path path) {
         String fromId = path.getFromRoom().getId();
         String toId = path.getToRoom().getId();
+        int fromIndex = next.getRoomIndex(fromId);
+        int toIndex = next.getRoomIndex(toId);
+        if (fromIndex < 0 || toIndex < 0) {
+            throw new IllegalArgumentException("Path endpoints must be added first: " + fromId + " → " + toId);
+        }
         
-        // Add to adjacency list (bidirectional)
-        adjacencyList.get(fromId).add(path);
+        // Create reverse path; its instructions are reversed when first read
+        Path reversePath = path.reversed();
         
-        // Create reverse path
-        Path reversePath = new Path(path.getToRoom(), path.getFromRoom(), 
-                                  path.getDistance(), reverseInstruction(path.getInstruction()), 
-                                  path.getPathType(), path.getWidth());
-        reversePath.setLandmarkInstruction(reverseInstruction(path.getLandmarkInstruction()));
-        reversePath.setAccessible(path.isAccessible());
-        reversePath.setBlocked(path.isBlocked());
+        // Add to adjacency lists (bidirectional); a path between the same rooms is replaced
+        int edgeId = next.allocateEdgeId(fromIndex, toIndex);
+        next = putEdge(next, edgeId, path, fromIndex, toIndex);
+        int twinEdgeId = next.allocateEdgeId(toIndex, fromIndex);
+        next = putEdge(next, twinEdgeId, reversePath, toIndex, fromIndex);
+        next = next.withAccessGroupsInUse(next.getAccessGroupsInUse() | path.getAccessGroups());
         
-        adjacencyList.get(toId).add(reversePath);
+        int floorChange = Math.abs(path.getToRoom().getFloor() - path.getFromRoom().getFloor());
+        if (floorChange > 0) {
+            next = next.withMinDistancePerFloorChange(
+                Math.min(next.getMinDistancePerFloorChange(), path.getDistance() / floorChange));
+        }
+        spatialIndex = null;
+        changed(GraphChangeEvent.Type.PATH_ADDED, fromId, toId, null);
+        return next;
+    }
+    
+    private GraphSnapshot putEdge(GraphSnapshot next, int edgeId, Path path, int fromIndex, int toIndex) {
+        next = dropEdge(next, edgeId);
+        if (path.isBlocked()) blockedEdgeCount++;
+        next = next.withNode(fromIndex, next.getNode(fromIndex).withPath(path, edgeId));
+        next = next.withNode(toIndex, next.getNode(toIndex).withIncoming(edgeId));
+        next = next.withEdge(edgeId, path, fromIndex, toIndex);
+        EdgeClassTable edgeClasses = next.getEdgeClasses();
+        return edgeClasses.getDefined() != 0 ? next.withEdgeClassMask(edgeId, edgeClasses.membership(path)) : next;
     }
     
-    private String reverseInstruction(String instruction) {
-        if (instruction == null || instruction.isEmpty()) return instruction;
+    /**
+     * Unlink an edge from both endpoints and leave a tombstone in its slot: O(degree)
+     */
+    private GraphSnapshot dropEdge(GraphSnapshot next, int edgeId) {
+        Path path = next.getEdge(edgeId);
+        if (path == null) return next;
         
-        // Simple reversal logic - could be enhanced with more sophisticated parsing
-        return instruction.replace("Go straight", "Go straight back")
-                         .replace("Turn left", "Turn right")
-                         .replace("Turn right", "Turn left")
-                         .replace("ahead", "behind you")
-                         .replace("up to", "down to")
-                         .replace("down to", "up to")
-                         .replace("towards", "away from")
-                         .replace("Head towards", "Head away from");
+        if (path.isBlocked()) blockedEdgeCount--;
+        int fromIndex = next.getEdgeSource(edgeId);
+        int toIndex = next.getEdgeTarget(edgeId);
+        RoomNode from = next.getNode(fromIndex);
+        RoomNode to = next.getNode(toIndex);
+        if (from != null) next = next.withNode(fromIndex, from.withoutPath(edgeId));
+        if (to != null) next = next.withNode(toIndex, to.withoutIncoming(edgeId));
+        next.getEdgeStates().unblock(edgeId); // The id may be reused by a new path
+        return next.withoutEdge(edgeId);
+    }
+    
+    /**
+     * Update the search indexes that are built; unbuilt ones pick the room up when built
+     */
+    private void indexRoomText(int index, Room room) {
+        if (roomText != null) roomText.add(index, room);
+        if (roomFuzzy != null) roomFuzzy.add(index, room);
+        if (roomPrefixes != null) roomPrefixes.add(index, room);
     }
     
-    public void removePath(String fromRoomId, String toRoomId) {
-        List<Path> fromPaths = adjacencyList.get(fromRoomId);
-        List<Path> toPaths = adjacencyList.get(toRoomId);
+    private void unindexRoomText(int index) {
+        if (roomText != null) roomText.remove(index);
+        if (roomFuzzy != null) roomFuzzy.remove(index);
+        if (roomPrefixes != null) roomPrefixes.remove(index);
+    }
+    
+    /**
+     * Renumber rooms and edges once tombstones outnumber live entries (amortized O(1) per removal)
+     */
+    private GraphSnapshot compactIfNeeded(GraphSnapshot next) {
+        return next.needsCompaction(COMPACTION_MIN_TOMBSTONES) ? next.compacted() : next;
+    }
+    
+    public synchronized void removePath(String fromRoomId, String toRoomId) {
+        publish(compactIfNeeded(withPathRemoved(snapshot, fromRoomId, toRoomId)));
+    }
+    
+    private GraphSnapshot withPathRemoved(GraphSnapshot next, String fromRoomId, String toRoomId) {
+        int edgeId = next.getEdgeId(fromRoomId, toRoomId);
+        int twinEdgeId = edgeId >= 0 ? next.getTwinEdgeId(edgeId) : next.getEdgeId(toRoomId, fromRoomId);
         
-        if (fromPaths != null) {
-            fromPaths.removeIf(path -> path.getToRoom().getId().equals(toRoomId));
+        if (edgeId >= 0) next = dropEdge(next, edgeId);
+        if (twinEdgeId >= 0) next = dropEdge(next, twinEdgeId);
+        if (edgeId >= 0 || twinEdgeId >= 0) {
+            spatialIndex = null;
+            changed(GraphChangeEvent.Type.PATH_REMOVED, fromRoomId, toRoomId, null);
         }
-        if (toPaths != null) {
-            toPaths.removeIf(path -> path.getToRoom().getId().equals(fromRoomId));
+        return next;
+    }
+    
+    /**
+     * Start a batch of changes to commit as a single version
+     */
+    public Batch batch() { return new Batch(); }
+    
+    private synchronized long commit(List<StagedChange> changes) {
+        Room[] edited = checkBatch(changes);
+        
+        // Nothing below throws for a checked batch, so no change is left half applied
+        GraphSnapshot next = snapshot;
+        for (int i = 0; i < changes.size(); i++) {
+            StagedChange change = changes.get(i);
+            switch (change.type) {
+                case ROOM_ADDED:
+                    next = withRoomAdded(next, change.room);
+                    break;
+                case ROOM_UPDATED:
+                    int index = next.getRoomIndex(change.roomId);
+                    if (index >= 0) next = withRoomEdited(next, index, edited[i]);
+                    break;
+                case ROOM_REMOVED:
+                    next = withRoomRemoved(next, change.roomId);
+                    break;
+                case ROOM_BLOCKED:
+                case ROOM_UNBLOCKED:
+                    next = withRoomBlocked(next, change.roomId, change.type == GraphChangeEvent.Type.ROOM_BLOCKED);
+                    break;
+                case PATH_ADDED:
+                    next = withPathAdded(next, change.path);
+                    break;
+                case PATH_REMOVED:
+                    next = withPathRemoved(next, change.roomId, change.toRoomId);
+                    break;
+                case PATH_BLOCKED:
+                case PATH_UNBLOCKED:
+                    cancelObstacleExpiry(change.roomId, change.toRoomId);
+                    next = setPathBlocked(next, change.roomId, change.toRoomId,
+                                          change.type == GraphChangeEvent.Type.PATH_BLOCKED, change.reason);
+                    break;
+                default:
+                    throw new IllegalStateException("Cannot stage " + change.type);
+            }
         }
+        if (!changes.isEmpty()) publish(compactIfNeeded(next));
+        return snapshot.getVersion();
     }
     
-    public void removeRoom(String roomId) {
-        Room room = rooms.remove(roomId);
-        if (room != null) {
-            // Remove from floor map
-            List<Room> floorRooms = floorMap.get(room.getFloor());
-            if (floorRooms != null) {
-                floorRooms.remove(room);
-                if (floorRooms.isEmpty()) {
-                    floorMap.remove(room.getFloor());
-                }
+    /**
+     * Reject the batch before anything is applied if a path would have a missing endpoint or a
+     * room edit throws. Edits run here, on copies of the rooms as the batch leaves them; returns
+     * the edited room for each update, null for other changes and for updates of missing rooms.
+     */
+    private Room[] checkBatch(List<StagedChange> changes) {
+        Map<String, Room> rooms = new HashMap<>(); // Room id -> the room at this point of the batch, null once removed
+        Room[] edited = new Room[changes.size()];
+        for (int i = 0; i < changes.size(); i++) {
+            StagedChange change = changes.get(i);
+            switch (change.type) {
+                case ROOM_ADDED:
+                    rooms.put(change.roomId, change.room);
+                    break;
+                case ROOM_REMOVED:
+                    rooms.put(change.roomId, null);
+                    break;
+                case ROOM_BLOCKED:
+                case ROOM_UNBLOCKED:
+                    Room blocked = roomInBatch(rooms, change.roomId);
+                    if (blocked == null) break;
+                    blocked = blocked.copy();
+                    blocked.setBlocked(change.type == GraphChangeEvent.Type.ROOM_BLOCKED);
+                    rooms.put(change.roomId, blocked);
+                    break;
+                case ROOM_UPDATED:
+                    Room room = roomInBatch(rooms, change.roomId);
+                    if (room == null) break;
+                    edited[i] = room.copy();
+                    change.edit.accept(edited[i]);
+                    rooms.put(change.roomId, edited[i]);
+                    break;
+                case PATH_ADDED:
+                    if (roomInBatch(rooms, change.roomId) == null || roomInBatch(rooms, change.toRoomId) == null) {
+                        throw new IllegalArgumentException("Path endpoints must be added first: " +
+                                                           change.roomId + " → " + change.toRoomId);
+                    }
+                    break;
+                default:
+                    break;
             }
+        }
+        return edited;
+    }
+    
+    private Room roomInBatch(Map<String, Room> rooms, String roomId) {
+        return rooms.containsKey(roomId) ? rooms.get(roomId) : snapshot.getRoomById(roomId);
+    }
+    
+    public synchronized void removeRoom(String roomId) {
+        removeRooms(Collections.singletonList(roomId));
+    }
+    
+    /**
+     * Remove many rooms as one change. Each room costs O(degree) through its outgoing and
+     * incoming edge lists, and the result is published once.
+     */
+    public synchronized void removeRooms(Collection<String> roomIds) {
+        GraphSnapshot next = snapshot;
+        for (String roomId : roomIds) {
+            next = withRoomRemoved(next, roomId);
+        }
+        if (next != snapshot) {
+            publish(compactIfNeeded(next));
+        }
+    }
+    
+    private GraphSnapshot withRoomRemoved(GraphSnapshot next, String roomId) {
+        int index = next.getRoomIndex(roomId);
+        if (index < 0) return next;
+        
+        RoomNode node = next.getNode(index);
+        roomAttributes.remove(index);
+        unindexRoomText(index);
+        spatialIndex = null;
+        
+        // Remove all paths to/from this room
+        for (int i = node.getPathCount() - 1; i >= 0; i--) {
+            next = dropEdge(next, node.getEdgeId(i));
+        }
+        for (int i = node.getIncomingCount() - 1; i >= 0; i--) {
+            next = dropEdge(next, node.getIncomingEdgeId(i));
+        }
+        
+        // Leave a tombstone so indices of other rooms stay valid until the next compaction
+        changed(GraphChangeEvent.Type.ROOM_REMOVED, roomId, null, null);
+        return next.withNode(index, null);
+    }
+    
+    public synchronized void blockRoom(String roomId, boolean blocked) {
+        if (snapshot.getRoomIndex(roomId) >= 0) {
+            publish(withRoomBlocked(snapshot, roomId, blocked));
+        }
+    }
+    
+    private GraphSnapshot withRoomBlocked(GraphSnapshot next, String roomId, boolean blocked) {
+        int index = next.getRoomIndex(roomId);
+        if (index < 0) return next;
+        
+        Room room = next.getRoomByIndex(index).copy();
+        room.setBlocked(blocked);
+        roomAttributes.setBlocked(index, blocked);
+        changed(blocked ? GraphChangeEvent.Type.ROOM_BLOCKED : GraphChangeEvent.Type.ROOM_UNBLOCKED, roomId, null, null);
+        return withRoomReplaced(next, index, room);
+    }
+    
+    /**
+     * Publish an edited copy of a room, leaving the original to snapshots already pinned. Its
+     * paths are copied too, so they lead from and to the new room: O(degree).
+     */
+    private GraphSnapshot withRoomReplaced(GraphSnapshot next, int index, Room room) {
+        RoomNode node = next.getNode(index);
+        next = next.withNode(index, node.withRoom(room).withBlocked(room.isBlocked()));
+        for (int i = 0; i < node.getPathCount(); i++) {
+            next = withEdgeRebound(next, node.getEdgeId(i));
+        }
+        for (int i = 0; i < node.getIncomingCount(); i++) {
+            next = withEdgeRebound(next, node.getIncomingEdgeId(i));
+        }
+        spatialIndex = null;
+        return next;
+    }
+    
+    private static GraphSnapshot withEdgeRebound(GraphSnapshot next, int edgeId) {
+        Room fromRoom = next.getRoomByIndex(next.getEdgeSource(edgeId));
+        Room toRoom = next.getRoomByIndex(next.getEdgeTarget(edgeId));
+        return next.withEdgeReplaced(edgeId, next.getEdge(edgeId).withRooms(fromRoom, toRoom));
+    }
+    
+    /**
+     * Edit a room's properties (name, type, floor, accessibility, landmarks, ...). Edit rooms
+     * through the graph rather than directly so the room indexes stay accurate. The edit is
+     * made on a copy that the next version publishes; snapshots already pinned keep the room
+     * as it was.
+     */
+    public synchronized void updateRoom(String roomId, Consumer<Room> edit) {
+        if (snapshot.getRoomIndex(roomId) >= 0) {
+            publish(withRoomUpdated(snapshot, roomId, edit));
+        }
+    }
+    
+    private GraphSnapshot withRoomUpdated(GraphSnapshot next, String roomId, Consumer<Room> edit) {
+        int index = next.getRoomIndex(roomId);
+        if (index < 0) return next;
+        
+        Room room = next.getRoomByIndex(index).copy();
+        edit.accept(room);
+        return withRoomEdited(next, index, room);
+    }
+    
+    /**
+     * Publish an edited copy of the room at the index, updating every index that covers it
+     */
+    private GraphSnapshot withRoomEdited(GraphSnapshot next, int index, Room room) {
+        roomAttributes.add(index, room, room.isBlocked());
+        indexRoomText(index, room);
+        changed(GraphChangeEvent.Type.ROOM_UPDATED, room.getId(), null, null);
+        next = withRoomReplaced(next, index, room);
+        next = reclassifyEdges(next, next.getNode(index));
+        return next.withAccessGroupsInUse(next.getAccessGroupsInUse() | room.getAccessGroups());
+    }
+    
+    /**
+     * Recompute class membership of a room's paths after the room changed (floor, wing): O(degree)
+     */
+    private GraphSnapshot reclassifyEdges(GraphSnapshot next, RoomNode node) {
+        EdgeClassTable edgeClasses = next.getEdgeClasses();
+        if (edgeClasses.getDefined() == 0) return next;
+        
+        for (int i = 0; i < node.getPathCount(); i++) {
+            next = next.withEdgeClassMask(node.getEdgeId(i), edgeClasses.membership(node.getPath(i)));
+        }
+        for (int i = 0; i < node.getIncomingCount(); i++) {
+            int edgeId = node.getIncomingEdgeId(i);
+            next = next.withEdgeClassMask(edgeId, edgeClasses.membership(next.getEdge(edgeId)));
+        }
+        return next;
+    }
+    
+    /**
+     * Define a named class of paths that close and reopen together, or redefine one, working
+     * out which paths belong to it: O(paths), once. Paths added later are classified as they
+     * are added. A new class starts open; a redefined class keeps its state.
+     */
+    public synchronized void defineEdgeClass(EdgeClass edgeClass) {
+        EdgeClassTable edgeClasses = snapshot.getEdgeClasses();
+        long bit = 1L << edgeClasses.define(edgeClass);
+        
+        GraphSnapshot next = snapshot;
+        for (int edgeId = 0; edgeId < next.getEdgeCapacity(); edgeId++) {
+            Path path = next.getEdge(edgeId);
+            if (path == null) continue;
             
-            // Remove all paths to/from this room
-            adjacencyList.remove(roomId);
-            adjacencyList.values().forEach(paths -> 
-                paths.removeIf(path -> path.getToRoom().getId().equals(roomId)));
+            long mask = next.getEdgeClassMask(edgeId) & ~bit;
+            next = next.withEdgeClassMask(edgeId, edgeClass.contains(path) ? mask | bit : mask);
+        }
+        changedEdgeClass(GraphChangeEvent.Type.EDGE_CLASS_UPDATED, edgeClass.getName());
+        publish(next);
+    }
+    
+    /**
+     * Forget a class, reopening its paths if it was closed; returns whether it existed.
+     * Its bit stays on the edges, ignored, until a new class takes it over.
+     */
+    public synchronized boolean removeEdgeClass(String name) {
+        EdgeClassTable edgeClasses = snapshot.getEdgeClasses();
+        int bit = edgeClasses.bitOf(name);
+        if (bit < 0) return false;
+        
+        edgeClasses.remove(bit);
+        changedEdgeClass(GraphChangeEvent.Type.EDGE_CLASS_UPDATED, name);
+        publish(snapshot);
+        return true;
+    }
+    
+    /**
+     * Close or reopen every path in the class at once, e.g. all elevators during a fire alarm.
+     * The switch is a single volatile mask write that searches in flight see immediately; a
+     * version is still published so change-feed subscribers hear of it.
+     */
+    public synchronized void setEdgeClassEnabled(String name, boolean enabled) {
+        EdgeClassTable edgeClasses = snapshot.getEdgeClasses();
+        int bit = edgeClasses.bitOf(name);
+        if (bit < 0) throw new IllegalArgumentException("Unknown edge class: " + name);
+        
+        if (edgeClasses.setDisabled(bit, !enabled)) {
+            changedEdgeClass(enabled ? GraphChangeEvent.Type.EDGE_CLASS_UNBLOCKED : GraphChangeEvent.Type.EDGE_CLASS_BLOCKED,
+                             name);
+            publish(snapshot);
+        }
+    }
+    
+    public boolean isEdgeClassEnabled(String name) {
+        EdgeClassTable edgeClasses = snapshot.getEdgeClasses();
+        int bit = edgeClasses.bitOf(name);
+        if (bit < 0) throw new IllegalArgumentException("Unknown edge class: " + name);
+        return (edgeClasses.getDisabled() & (1L << bit)) == 0;
+    }
+    
+    public List<String> getEdgeClassNames() {
+        return snapshot.getEdgeClasses().names(-1L);
+    }
+    
+    public List<String> getClosedEdgeClassNames() {
+        EdgeClassTable edgeClasses = snapshot.getEdgeClasses();
+        return edgeClasses.names(edgeClasses.getDisabled());
+    }
+    
+    /**
+     * Restrict a room to the given access groups. Change masks through the graph rather than
+     * on the Room directly so credential classes stay accurate.
+     */
+    public synchronized void setRoomAccessGroups(String roomId, int accessGroups) {
+        int index = snapshot.getRoomIndex(roomId);
+        if (index >= 0) {
+            Room room = snapshot.getRoomByIndex(index).copy();
+            room.setAccessGroups(accessGroups);
+            changed(GraphChangeEvent.Type.ROOM_UPDATED, roomId, null, null);
+            GraphSnapshot next = withRoomReplaced(snapshot, index, room);
+            publish(next.withAccessGroupsInUse(next.getAccessGroupsInUse() | accessGroups));
         }
     }
     
-    public void blockRoom(String roomId, boolean blocked) {
-        Room room = rooms.get(roomId);
-        if (room != null) {
-            room.setBlocked(blocked);
+    /**
+     * Restrict a path (both directions) to the given access groups
+     */
+    public synchronized void setPathAccessGroups(String fromRoomId, String toRoomId, int accessGroups) {
+        int edgeId = snapshot.getEdgeId(fromRoomId, toRoomId);
+        int reverseEdgeId = snapshot.getEdgeId(toRoomId, fromRoomId);
+        GraphSnapshot next = withEdgeAccessGroups(snapshot, edgeId, accessGroups);
+        next = withEdgeAccessGroups(next, reverseEdgeId, accessGroups);
+        if (edgeId >= 0 || reverseEdgeId >= 0) {
+            changed(GraphChangeEvent.Type.PATH_UPDATED, fromRoomId, toRoomId, null);
         }
+        publish(next.withAccessGroupsInUse(next.getAccessGroupsInUse() | accessGroups));
+    }
+    
+    private static GraphSnapshot withEdgeAccessGroups(GraphSnapshot next, int edgeId, int accessGroups) {
+        Path path = next.getEdge(edgeId);
+        if (path == null) return next;
+        
+        Path copy = path.withRooms(path.getFromRoom(), path.getToRoom());
+        copy.setAccessGroups(accessGroups);
+        return next.withEdgeReplaced(edgeId, copy);
     }
     
     public void blockPath(String fromRoomId, String toRoomId, boolean blocked) {
         blockPath(fromRoomId, toRoomId, blocked, blocked ? "Manual block" : null);
     }
     
-    public void blockPath(String fromRoomId, String toRoomId, boolean blocked, String reason) {
-        List<Path> paths = adjacencyList.get(fromRoomId);
-        if (paths != null) {
-            paths.stream()
-                 .filter(path -> path.getToRoom().getId().equals(toRoomId))
-                 .forEach(path -> {
-                     if (blocked) {
-                         path.setTemporarilyBlocked(true, reason);
-                         if (!temporarilyBlockedPaths.contains(path)) {
-                             temporarilyBlockedPaths.add(path);
-                         }
-                     } else {
-                         path.setTemporarilyBlocked(false, null);
-                         temporarilyBlockedPaths.remove(path);
-                     }
-                 });
+    public synchronized void blockPath(String fromRoomId, String toRoomId, boolean blocked, String reason) {
+        // A manual change overrides any scheduled expiry for the same path
+        cancelObstacleExpiry(fromRoomId, toRoomId);
+        publish(setPathBlocked(snapshot, fromRoomId, toRoomId, blocked, reason));
+    }
+    
+    private GraphSnapshot setPathBlocked(GraphSnapshot next, String fromRoomId, String toRoomId, boolean blocked,
+                                         String reason) {
+        int edgeId = next.getEdgeId(fromRoomId, toRoomId);
+        if (edgeId < 0) return next;
+        
+        int twinEdgeId = next.getTwinEdgeId(edgeId);
+        if (next.isEdgeTemporarilyBlocked(edgeId) != blocked ||
+            (twinEdgeId >= 0 && next.isEdgeTemporarilyBlocked(twinEdgeId) != blocked)) {
+            changed(blocked ? GraphChangeEvent.Type.PATH_BLOCKED : GraphChangeEvent.Type.PATH_UNBLOCKED,
+                    fromRoomId, toRoomId, reason);
         }
+        next = setEdgeBlocked(next, edgeId, blocked, reason);
         
         // Block reverse path too
-        List<Path> reversePaths = adjacencyList.get(toRoomId);
-        if (reversePaths != null) {
-            reversePaths.stream()
-                       .filter(path -> path.getToRoom().getId().equals(fromRoomId))
-                       .forEach(path -> {
-                           if (blocked) {
-                               path.setTemporarilyBlocked(true, reason);
-                               if (!temporarilyBlockedPaths.contains(path)) {
-                                   temporarilyBlockedPaths.add(path);
-                               }
-                           } else {
-                               path.setTemporarilyBlocked(false, null);
-                               temporarilyBlockedPaths.remove(path);
-                           }
-                       });
+        return setEdgeBlocked(next, twinEdgeId, blocked, reason);
+    }
+    
+    /**
+     * Flip the edge's bit in the live edge-state table. Readers of any snapshot in this
+     * generation see it at once; the caller still publishes so version watchers notice.
+     */
+    private GraphSnapshot setEdgeBlocked(GraphSnapshot next, int edgeId, boolean blocked, String reason) {
+        if (next.getEdge(edgeId) == null) return next;
+        
+        if (blocked) {
+            next.getEdgeStates().block(edgeId, reason);
+        } else {
+            next.getEdgeStates().unblock(edgeId);
         }
+        return next;
     }
     
     /**
-     * Simulate dynamic obstacles (maintenance, crowd, etc.)
+     * Simulate dynamic obstacles (maintenance, crowd, etc.). The block lifts itself through the
+     * shared obstacle scheduler; obstacles expiring on the same tick are cleared in one update.
      */
-    public void simulateDynamicObstacle(String fromRoomId, String toRoomId, String reason, long durationMillis) {
+    public synchronized void simulateDynamicObstacle(String fromRoomId, String toRoomId, String reason,
+                                                     long durationMillis) {
         blockPath(fromRoomId, toRoomId, true, reason);
         
-        // Schedule automatic unblocking (in a real system, this would be a scheduled task)
-        Timer timer = new Timer();
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                blockPath(fromRoomId, toRoomId, false, null);
-                System.out.printf("🔓 Path %s → %s is now clear (obstacle cleared: %s)%n", 
-                                fromRoomId, toRoomId, reason);
+        ObstacleExpiry expiry = new ObstacleExpiry(fromRoomId, toRoomId, reason);
+        expiry.timeout = ObstacleScheduler.shared().schedule(obstacleExpiryHandler, expiry, durationMillis);
+        pendingObstacles.put(roomPairKey(fromRoomId, toRoomId), expiry);
+    }
+    
+    public synchronized int getPendingObstacleCount() { return pendingObstacles.size(); }
+    
+    private void expireObstacles(List<ObstacleExpiry> expiries) {
+        List<ObstacleExpiry> cleared = new ArrayList<>();
+        synchronized (this) {
+            GraphSnapshot next = snapshot;
+            for (ObstacleExpiry expiry : expiries) {
+                // Skip expiries superseded by a newer obstacle or manual change on the same path
+                if (!pendingObstacles.remove(roomPairKey(expiry.fromRoomId, expiry.toRoomId), expiry)) continue;
+                
+                next = setPathBlocked(next, expiry.fromRoomId, expiry.toRoomId, false, null);
+                cleared.add(expiry);
             }
-        }, durationMillis);
+            if (cleared.isEmpty()) return;
+            publish(next);
+        }
+        
+        for (ObstacleExpiry expiry : cleared) {
+            System.out.printf("🔓 Path %s → %s is now clear (obstacle cleared: %s)%n", 
+                            expiry.fromRoomId, expiry.toRoomId, expiry.reason);
+        }
+    }
+    
+    private void cancelObstacleExpiry(String fromRoomId, String toRoomId) {
+        ObstacleExpiry expiry = pendingObstacles.remove(roomPairKey(fromRoomId, toRoomId));
+        if (expiry != null) expiry.timeout.cancel();
+    }
+    
+    private static String roomPairKey(String roomIdA, String roomIdB) {
+        return roomIdA.compareTo(roomIdB) <= 0 ? roomIdA + "|" + roomIdB : roomIdB + "|" + roomIdA;
     }
     
     /**
      * Clear all temporary blocks
      */
-    public void clearAllTemporaryBlocks() {
-        for (Path path : new ArrayList<>(temporarilyBlockedPaths)) {
-            path.setTemporarilyBlocked(false, null);
+    public synchronized void clearAllTemporaryBlocks() {
+        for (ObstacleExpiry expiry : pendingObstacles.values()) {
+            expiry.timeout.cancel();
+        }
+        pendingObstacles.clear();
+        
+        EdgeStateTable edgeStates = snapshot.getEdgeStates();
+        Set<String> unblockedPairs = new HashSet<>();
+        for (int edgeId = edgeStates.nextBlocked(0); edgeId >= 0; edgeId = edgeStates.nextBlocked(edgeId + 1)) {
+            edgeStates.unblock(edgeId);
+            Path path = snapshot.getEdge(edgeId);
+            if (path == null) continue;
+            String fromRoomId = path.getFromRoom().getId();
+            String toRoomId = path.getToRoom().getId();
+            if (unblockedPairs.add(roomPairKey(fromRoomId, toRoomId))) {
+                changed(GraphChangeEvent.Type.PATH_UNBLOCKED, fromRoomId, toRoomId, null);
+            }
         }
-        temporarilyBlockedPaths.clear();
+        publish(snapshot);
     }
     
     /**
      * Find rooms by type
      */
     public List<Room> getRoomsByType(RoomType roomType) {
-        return rooms.values().stream()
-                   .filter(room -> room.getRoomType() == roomType)
-                   .collect(Collectors.toList());
+        return findRooms(roomType, null, false);
     }
     
     /**
      * Find rooms on specific floor
      */
     public List<Room> getRoomsOnFloor(int floor) {
-        return floorMap.getOrDefault(floor, new ArrayList<>());
+        return findRooms(null, floor, false);
     }
     
     /**
      * Find accessible rooms only
      */
     public List<Room> getAccessibleRooms() {
-        return rooms.values().stream()
-                   .filter(room -> room.isAccessible() && !room.isBlocked())
-                   .collect(Collectors.toList());
+        return findRooms(null, null, true);
+    }
+    
+    /**
+     * Rooms matching every given filter, e.g. accessible restrooms on floor 3, found by
+     * intersecting the type, floor and accessibility bitmaps. A null type or floor does not filter.
+     */
+    public synchronized List<Room> findRooms(RoomType roomType, Integer floor, boolean accessibleOnly) {
+        return roomsAt(roomAttributes.filter(roomType, floor, accessibleOnly));
+    }
+    
+    private List<Room> roomsAt(BitSet indices) {
+        List<Room> rooms = new ArrayList<>(indices.cardinality());
+        for (int i = indices.nextSetBit(0); i >= 0; i = indices.nextSetBit(i + 1)) {
+            rooms.add(snapshot.getRoomByIndex(i));
+        }
+        return rooms;
     }
     
     /**
      * Find nearest room of specific type
      */
     public Room findNearestRoomOfType(String fromRoomId, RoomType roomType) {
-        Room fromRoom = rooms.get(fromRoomId);
+        Room fromRoom = getRoomById(fromRoomId);
         if (fromRoom == null) return null;
         
         return getRoomsByType(roomType).stream()
@@ -220,63 +830,191 @@ public class NavigationGraph {
     }
     
     /**
-     * Get building statistics
+     * Building statistics for the current version, from counters kept by every change: O(1)
+     * once built, and built at most once per version
      */
-    public Map<String, Object> getBuildingStats() {
-        Map<String, Object> stats = new HashMap<>();
-        
-        stats.put("total_rooms", rooms.size());
-        stats.put("total_paths", adjacencyList.values().stream().mapToInt(List::size).sum() / 2); // Divide by 2 for bidirectional
-        stats.put("floors", floorMap.keySet().size());
-        stats.put("accessible_rooms", getAccessibleRooms().size());
-        stats.put("blocked_rooms", rooms.values().stream().mapToInt(room -> room.isBlocked() ? 1 : 0).sum());
-        stats.put("temporarily_blocked_paths", temporarilyBlockedPaths.size() / 2); // Divide by 2 for bidirectional
-        
-        // Room type distribution
-        Map<RoomType, Long> roomTypes = rooms.values().stream()
-                                            .collect(Collectors.groupingBy(Room::getRoomType, Collectors.counting()));
-        stats.put("room_types", roomTypes);
-        
-        return stats;
+    public BuildingStats getBuildingStats() {
+        BuildingStats stats = buildingStats;
+        return stats != null ? stats : buildBuildingStats();
+    }
+    
+    private synchronized BuildingStats buildBuildingStats() {
+        if (buildingStats == null) {
+            GraphSnapshot pinned = snapshot;
+            buildingStats = new BuildingStats(pinned.getVersion(), pinned.getRoomCount(),
+                                              pinned.getEdgeCount() / 2, // Divide by 2 for bidirectional
+                                              roomAttributes.getAccessibleOpenCount(),
+                                              roomAttributes.getBlockedCount(),
+                                              roomAttributes.getEmergencyExitCount(),
+                                              blockedEdgeCount / 2,
+                                              pinned.getTemporarilyBlockedCount() / 2,
+                                              roomAttributes.getTypeCounts(), roomAttributes.getFloorCounts());
+        }
+        return buildingStats;
+    }
+    
+    /**
+     * Rooms and paths nearest to a positioning fix on a floor, closest first, with paths snapped
+     * to the closest point along them. Only rooms with a position take part, and paths between
+     * two of them on the same floor.
+     */
+    public List<SnappedPosition> findNearestPositions(double x, double y, int floor, int k) {
+        return spatialIndex().nearest(x, y, floor, k);
+    }
+    
+    /**
+     * Rooms and paths within the radius (meters) of a positioning fix, closest first
+     */
+    public List<SnappedPosition> findPositionsWithin(double x, double y, int floor, double radius) {
+        return spatialIndex().within(x, y, floor, radius);
+    }
+    
+    private RoomSpatialIndex spatialIndex() {
+        RoomSpatialIndex index = spatialIndex;
+        return index != null ? index : buildSpatialIndex();
+    }
+    
+    private synchronized RoomSpatialIndex buildSpatialIndex() {
+        if (spatialIndex == null) {
+            spatialIndex = RoomSpatialIndex.build(snapshot);
+        }
+        return spatialIndex;
     }
     
     // Getters
     public String getGraphName() { return graphName; }
     public String getDescription() { return description; }
-    public Room getRoomById(String id) { return rooms.get(id); }
-    public Room getRoomByQRCode(String qrCode) {
-        return rooms.values().stream()
-                   .filter(room -> room.getQrCode().equals(qrCode))
-                   .findFirst()
-                   .orElse(null);
+    public Room getRoomById(String id) { return snapshot.getRoomById(id); }
+    public synchronized Room getRoomByQRCode(String qrCode) {
+        return snapshot.getRoomByIndex(roomAttributes.findByQrCode(qrCode));
     }
     
-    public Collection<Room> getAllRooms() { return rooms.values(); }
+    public Collection<Room> getAllRooms() { return snapshot.getAllRooms(); }
     public List<Path> getPathsFromRoom(String roomId) { 
-        return adjacencyList.getOrDefault(roomId, new ArrayList<>());
+        return snapshot.getPathsFromRoom(roomId);
+    }
+    
+    /**
+     * Directed path between two rooms, or null if they are not connected
+     */
+    public Path getPath(String fromRoomId, String toRoomId) {
+        return snapshot.getPath(fromRoomId, toRoomId);
+    }
+    
+    /**
+     * Dense index of a room for array-based algorithms, or -1 if the room does not exist
+     */
+    public int getRoomIndex(String roomId) {
+        return snapshot.getRoomIndex(roomId);
+    }
+    
+    public Room getRoomByIndex(int index) {
+        return snapshot.getRoomByIndex(index);
+    }
+    
+    /**
+     * Size of the room index space, including tombstones of removed rooms
+     */
+    public int getRoomIndexCapacity() { return snapshot.getRoomIndexCapacity(); }
+    
+    /**
+     * Access groups that appear anywhere in this building (a superset once masks are cleared)
+     */
+    public int getAccessGroupsInUse() { return snapshot.getAccessGroupsInUse(); }
+    
+    /**
+     * Credentials reduced to the groups this building uses. Users in the same class see the
+     * same routable graph, so per-class precomputation can be shared between them.
+     */
+    public int getCredentialClass(int credentialMask) {
+        return snapshot.getCredentialClass(credentialMask);
     }
     
-    public Room findRoomByName(String name) {
-        return rooms.values().stream()
-                   .filter(room -> room.getName().toLowerCase().contains(name.toLowerCase()))
-                   .findFirst()
-                   .orElse(null);
+    /**
+     * Room with exactly this name (ignoring case), else the first whose name contains it
+     */
+    public synchronized Room findRoomByName(String name) {
+        int index = roomAttributes.findFirstByName(name);
+        if (index < 0) index = roomAttributes.findFirstNameContaining(name);
+        return snapshot.getRoomByIndex(index);
     }
     
-    public List<Room> searchRooms(String query) {
-        String lowerQuery = query.toLowerCase();
-        return rooms.values().stream()
-                   .filter(room -> 
-                       room.getName().toLowerCase().contains(lowerQuery) ||
-                       room.getDescription().toLowerCase().contains(lowerQuery) ||
-                       room.getRoomType().getDisplayName().toLowerCase().contains(lowerQuery) ||
-                       room.getLandmarks().stream().anyMatch(landmark -> 
-                           landmark.toLowerCase().contains(lowerQuery)))
-                   .collect(Collectors.toList());
+    /**
+     * Rooms whose name, description, type or a landmark contains the query (ignoring case)
+     */
+    public synchronized List<Room> searchRooms(String query) {
+        if (roomText == null) roomText = RoomTextIndex.build(snapshot);
+        int[] indices = roomText.search(query);
+        List<Room> rooms = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            rooms.add(snapshot.getRoomByIndex(index));
+        }
+        return rooms;
     }
     
-    public Set<Integer> getFloors() { return floorMap.keySet(); }
-    public List<Path> getTemporarilyBlockedPaths() { return new ArrayList<>(temporarilyBlockedPaths); }
+    /**
+     * Rooms whose name, landmarks or type match every query word within a small edit distance
+     * (up to two typos for longer words), closest first, then the most requested destinations
+     */
+    public synchronized List<Room> fuzzySearchRooms(String query, int limit) {
+        if (roomFuzzy == null) roomFuzzy = RoomFuzzyIndex.build(snapshot);
+        RoomFuzzyIndex.Matches matches = roomFuzzy.search(query);
+        Map<Integer, Integer> popularity = new HashMap<>(); // Position in matches -> requests
+        if (destinationRequests.size() < matches.size()) {
+            for (Map.Entry<String, Integer> request : destinationRequests.entrySet()) {
+                int position = matches.indexOf(snapshot.getRoomIndex(request.getKey()));
+                if (position >= 0) popularity.put(position, request.getValue());
+            }
+        } else {
+            for (int position = 0; position < matches.size(); position++) {
+                Integer requests = destinationRequests.get(snapshot.getRoomByIndex(matches.roomIndices[position]).getId());
+                if (requests != null) popularity.put(position, requests);
+            }
+        }
+        
+        List<Room> rooms = new ArrayList<>();
+        for (int roomIndex : matches.top(limit, popularity)) {
+            rooms.add(snapshot.getRoomByIndex(roomIndex));
+        }
+        return rooms;
+    }
+    
+    /**
+     * Up to limit unblocked rooms whose name, id or a landmark starts with the prefix, or
+     * has a word that does (ignoring case). Frequently requested rooms and rooms near the
+     * origin, if given, rank first; the origin itself is left out.
+     */
+    public synchronized List<Room> completeDestination(String prefix, Room origin, int limit) {
+        GraphSnapshot pinned = snapshot;
+        int originIndex = origin != null ? pinned.getRoomIndex(origin.getId()) : -1;
+        if (roomPrefixes == null) roomPrefixes = RoomPrefixIndex.build(pinned, destinationRequests);
+        int[] indices = roomPrefixes.complete(prefix, originIndex, limit,
+                                              index -> index == originIndex || pinned.getNode(index).isBlocked());
+        List<Room> rooms = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            rooms.add(pinned.getRoomByIndex(index));
+        }
+        return rooms;
+    }
+    
+    /**
+     * Count a navigation request to the room; popular destinations rank first in fuzzy search
+     * and completion
+     */
+    public synchronized void recordDestinationRequest(String roomId) {
+        destinationRequests.merge(roomId, 1, Integer::sum);
+        if (roomPrefixes != null) roomPrefixes.recordRequest(snapshot.getRoomIndex(roomId));
+    }
+    
+    public synchronized Set<Integer> getFloors() { return roomAttributes.getFloors(); }
+    
+    /**
+     * Smallest distance per floor travelled over any vertical path ever added
+     * (infinite when the building has no vertical connections)
+     */
+    public double getMinDistancePerFloorChange() { return snapshot.getMinDistancePerFloorChange(); }
+    public List<Path> getTemporarilyBlockedPaths() { return snapshot.getTemporarilyBlockedPaths(); }
+    public String getBlockageInfo(Path path) { return snapshot.getBlockageInfo(path); }
     
     public void setGraphName(String graphName) { this.graphName = graphName; }
     public void setDescription(String description) { this.description = description; }
@@ -7,7 +7,8 @@ public enum NavigationMode {
     VISUALLY_IMPAIRED("Visually Impaired", 
                      "Prefers wider corridors, avoids stairs, needs audio cues") {
         @Override
-        public double calculatePathWeight(Path path, Room fromRoom, Room toRoom) {
+        public double calculatePathWeight(Path path, Room fromRoom, Room toRoom,
+                                          double fromCrowdFactor, double toCrowdFactor) {
             double baseWeight = path.getDistance();
             
             // Heavily penalize stairs
@@ -21,8 +22,8 @@ public enum NavigationMode {
             }
             
             // Avoid crowded areas
-            baseWeight *= fromRoom.getRoomType().getCrowdFactor();
-            baseWeight *= toRoom.getRoomType().getCrowdFactor();
+            baseWeight *= fromCrowdFactor;
+            baseWeight *= toCrowdFactor;
             
             // Prefer wider corridors (simulated by corridor paths being preferred)
             if (path.getPathType().equals("corridor")) {
@@ -36,12 +37,19 @@ public enum NavigationMode {
         public boolean isPathAllowed(Path path) {
             return !path.isBlocked() && path.isAccessible();
         }
+        
+        @Override
+        public double getMinimumWeightFactor() {
+            double minCrowd = RoomType.getMinimumCrowdFactor();
+            return Math.min(0.8, minCrowd * minCrowd * 0.9);
+        }
     },
     
     WHEELCHAIR("Wheelchair User", 
               "Requires wheelchair accessible paths, no stairs") {
         @Override
-        public double calculatePathWeight(Path path, Room fromRoom, Room toRoom) {
+        public double calculatePathWeight(Path path, Room fromRoom, Room toRoom,
+                                          double fromCrowdFactor, double toCrowdFactor) {
             double baseWeight = path.getDistance();
             
             // Completely avoid stairs
@@ -70,12 +78,18 @@ public enum NavigationMode {
             return !path.isBlocked() && path.isAccessible() && 
                    !path.getPathType().equals("stairs");
         }
+        
+        @Override
+        public double getMinimumWeightFactor() {
+            return 0.7; // Ramps
+        }
     },
     
     EMERGENCY("Emergency Mode", 
              "Fastest route regardless of accessibility") {
         @Override
-        public double calculatePathWeight(Path path, Room fromRoom, Room toRoom) {
+        public double calculatePathWeight(Path path, Room fromRoom, Room toRoom,
+                                          double fromCrowdFactor, double toCrowdFactor) {
             // In emergency mode, only distance matters
             return path.getDistance();
         }
@@ -84,12 +98,18 @@ public enum NavigationMode {
         public boolean isPathAllowed(Path path) {
             return !path.isBlocked(); // Allow any non-blocked path
         }
+        
+        @Override
+        public double getMinimumWeightFactor() {
+            return 1.0;
+        }
     },
     
     STANDARD("Standard", 
             "Normal navigation with no special requirements") {
         @Override
-        public double calculatePathWeight(Path path, Room fromRoom, Room toRoom) {
+        public double calculatePathWeight(Path path, Room fromRoom, Room toRoom,
+                                          double fromCrowdFactor, double toCrowdFactor) {
             double baseWeight = path.getDistance();
             
             // Slight preference for elevators over stairs
@@ -101,8 +121,7 @@ public enum NavigationMode {
             }
             
             // Consider crowd factors
-            baseWeight *= (fromRoom.getRoomType().getCrowdFactor() + 
-                          toRoom.getRoomType().getCrowdFactor()) / 2.0;
+            baseWeight *= (fromCrowdFactor + toCrowdFactor) / 2.0;
             
             return baseWeight;
         }
@@ -111,6 +130,11 @@ public enum NavigationMode {
         public boolean isPathAllowed(Path path) {
             return !path.isBlocked();
         }
+        
+        @Override
+        public double getMinimumWeightFactor() {
+            return Math.min(1.1, RoomType.getMinimumCrowdFactor());
+        }
     };
 
     private final String displayName;
@@ -125,12 +149,29 @@ public enum NavigationMode {
     public String getDescription() { return description; }
 
     /**
-     * Calculate the weight of a path based on this navigation mode
+     * Calculate the weight of a path based on this navigation mode, with the rooms' static
+     * crowd factors
      */
-    public abstract double calculatePathWeight(Path path, Room fromRoom, Room toRoom);
+    public double calculatePathWeight(Path path, Room fromRoom, Room toRoom) {
+        return calculatePathWeight(path, fromRoom, toRoom, 
+                                   fromRoom.getRoomType().getCrowdFactor(), toRoom.getRoomType().getCrowdFactor());
+    }
+
+    /**
+     * Calculate the weight of a path based on this navigation mode, given how crowded its end
+     * rooms are (live estimates when measured, never below RoomType.getMinimumCrowdFactor())
+     */
+    public abstract double calculatePathWeight(Path path, Room fromRoom, Room toRoom,
+                                               double fromCrowdFactor, double toCrowdFactor);
 
     /**
      * Determine if a path is allowed for this navigation mode
      */
     public abstract boolean isPathAllowed(Path path);
+
+    /**
+     * Lower bound on calculatePathWeight(path, ...) / path.getDistance() for any path.
+     * Used to build admissible A* heuristics from distances.
+     */
+    public abstract double getMinimumWeightFactor();
 }
\ No newline at end of file
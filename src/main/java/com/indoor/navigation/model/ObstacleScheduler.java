@@ -0,0 +1,275 @@
+package com.indoor.navigation.model;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Single-threaded scheduler for obstacle expiries and monitoring tasks, backed by a
+ * hierarchical timing wheel (256 slots of one tick, then three levels of 64 slots).
+ * Scheduling and cancelling are O(1) list operations; timers far in the future sit in a
+ * coarse slot and cascade down as the wheel turns. Everything that expires on the same tick
+ * for the same handler is delivered as one batch, so a graph can apply it as one update.
+ */
+public final class ObstacleScheduler {
+    public static final long DEFAULT_TICK_MILLIS = 100;
+    
+    private static final int ROOT_BITS = 8;
+    private static final int LEVEL_BITS = 6;
+    private static final int ROOT_SIZE = 1 << ROOT_BITS;
+    private static final int LEVEL_SIZE = 1 << LEVEL_BITS;
+    private static final int LEVELS = 3;
+    private static final long MAX_DELTA = (1L << (ROOT_BITS + LEVELS * LEVEL_BITS)) - 1;
+    
+    private static final Consumer<List<Runnable>> RUN_TASKS = tasks -> tasks.forEach(Runnable::run);
+    
+    private static volatile ObstacleScheduler shared;
+    
+    /**
+     * Pending expiry; cancel() unlinks it from its slot
+     */
+    public final class Timeout {
+        private final Consumer<List<Object>> handler;
+        private final Object payload;
+        private final long periodTicks; // 0 for one-shot
+        private long deadline; // Absolute tick
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+        private boolean cancelled;
+        
+        private Timeout(Consumer<List<Object>> handler, Object payload, long deadline, long periodTicks) {
+            this.handler = handler;
+            this.payload = payload;
+            this.deadline = deadline;
+            this.periodTicks = periodTicks;
+        }
+        
+        public boolean cancel() {
+            synchronized (ObstacleScheduler.this) {
+                if (cancelled) return false;
+                cancelled = true;
+                if (bucket != null) {
+                    bucket.remove(this);
+                    pending--;
+                }
+                return true;
+            }
+        }
+        
+        public boolean isCancelled() {
+            synchronized (ObstacleScheduler.this) { return cancelled; }
+        }
+    }
+    
+    private static final class Bucket {
+        private Timeout head;
+        
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = null;
+            timeout.next = head;
+            if (head != null) head.prev = timeout;
+            head = timeout;
+        }
+        
+        void remove(Timeout timeout) {
+            if (timeout.prev != null) timeout.prev.next = timeout.next; else head = timeout.next;
+            if (timeout.next != null) timeout.next.prev = timeout.prev;
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+        
+        Timeout takeAll() {
+            Timeout all = head;
+            head = null;
+            return all;
+        }
+    }
+    
+    private final long tickNanos;
+    private final long startNanos;
+    private final Bucket[] root = newBuckets(ROOT_SIZE);
+    private final Bucket[][] levels = new Bucket[LEVELS][];
+    private long currentTick; // Next tick to process
+    private int pending;
+    private Thread worker;
+    
+    public ObstacleScheduler() {
+        this(DEFAULT_TICK_MILLIS);
+    }
+    
+    public ObstacleScheduler(long tickMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive: " + tickMillis);
+        }
+        this.tickNanos = tickMillis * 1_000_000L;
+        this.startNanos = System.nanoTime();
+        for (int i = 0; i < LEVELS; i++) {
+            levels[i] = newBuckets(LEVEL_SIZE);
+        }
+    }
+    
+    /**
+     * Process-wide scheduler shared by every graph and navigation session
+     */
+    public static ObstacleScheduler shared() {
+        ObstacleScheduler scheduler = shared;
+        if (scheduler == null) {
+            synchronized (ObstacleScheduler.class) {
+                if (shared == null) shared = new ObstacleScheduler();
+                scheduler = shared;
+            }
+        }
+        return scheduler;
+    }
+    
+    /**
+     * Deliver payload to handler after the delay, batched with every other payload
+     * for the same handler that expires on the same tick
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> Timeout schedule(Consumer<List<T>> handler, T payload, long delayMillis) {
+        return add((Consumer<List<Object>>) (Consumer<?>) handler, payload, delayMillis, 0);
+    }
+    
+    public Timeout schedule(Runnable task, long delayMillis) {
+        return schedule(RUN_TASKS, task, delayMillis);
+    }
+    
+    /**
+     * Run the task repeatedly until its timeout is cancelled
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized Timeout scheduleAtFixedRate(Runnable task, long initialDelayMillis, long periodMillis) {
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("Period must be positive: " + periodMillis);
+        }
+        return add((Consumer<List<Object>>) (Consumer<?>) RUN_TASKS, task, initialDelayMillis, toTicks(periodMillis));
+    }
+    
+    public synchronized int getPendingCount() { return pending; }
+    
+    private Timeout add(Consumer<List<Object>> handler, Object payload, long delayMillis, long periodTicks) {
+        if (pending == 0) {
+            currentTick = Math.max(currentTick, elapsedTicks()); // Idle wheel: skip ahead instead of replaying ticks
+        }
+        Timeout timeout = new Timeout(handler, payload, elapsedTicks() + toTicks(delayMillis), periodTicks);
+        place(timeout);
+        pending++;
+        
+        if (worker == null) {
+            worker = new Thread(this::run, "obstacle-scheduler");
+            worker.setDaemon(true);
+            worker.start();
+        } else if (pending == 1) {
+            notifyAll();
+        }
+        return timeout;
+    }
+    
+    private void place(Timeout timeout) {
+        long deadline = Math.max(timeout.deadline, currentTick);
+        long delta = Math.min(deadline - currentTick, MAX_DELTA);
+        deadline = currentTick + delta;
+        
+        if (delta < ROOT_SIZE) {
+            root[(int) (deadline & (ROOT_SIZE - 1))].add(timeout);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = ROOT_BITS + level * LEVEL_BITS;
+            if (delta < 1L << (shift + LEVEL_BITS) || level == LEVELS - 1) {
+                levels[level][(int) ((deadline >>> shift) & (LEVEL_SIZE - 1))].add(timeout);
+                return;
+            }
+        }
+    }
+    
+    private void run() {
+        while (true) {
+            Map<Consumer<List<Object>>, List<Timeout>> batches = new LinkedHashMap<>();
+            synchronized (this) {
+                try {
+                    while (pending == 0) wait();
+                    long now = elapsedTicks();
+                    if (currentTick > now) {
+                        long waitNanos = (currentTick - now) * tickNanos - (System.nanoTime() - startNanos) % tickNanos;
+                        wait(Math.max(1, waitNanos / 1_000_000L));
+                        continue;
+                    }
+                    while (currentTick <= now && batches.isEmpty()) {
+                        advance(batches);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            
+            // Handlers run outside the lock so they can schedule or cancel freely
+            for (Map.Entry<Consumer<List<Object>>, List<Timeout>> batch : batches.entrySet()) {
+                List<Object> payloads = new ArrayList<>();
+                for (Timeout timeout : batch.getValue()) {
+                    if (!timeout.isCancelled()) payloads.add(timeout.payload);
+                }
+                if (payloads.isEmpty()) continue;
+                try {
+                    batch.getKey().accept(payloads);
+                } catch (RuntimeException e) {
+                    System.err.println("Obstacle scheduler task failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Process one tick: cascade coarse slots whose window begins now, then expire the root slot
+     */
+    private void advance(Map<Consumer<List<Object>>, List<Timeout>> batches) {
+        int index = (int) (currentTick & (ROOT_SIZE - 1));
+        for (int level = 0; level < LEVELS && index == 0; level++) {
+            index = (int) ((currentTick >>> (ROOT_BITS + level * LEVEL_BITS)) & (LEVEL_SIZE - 1));
+            for (Timeout timeout = levels[level][index].takeAll(); timeout != null; ) {
+                Timeout next = timeout.next;
+                timeout.bucket = null;
+                place(timeout);
+                timeout = next;
+            }
+        }
+        
+        Timeout timeout = root[(int) (currentTick & (ROOT_SIZE - 1))].takeAll();
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.bucket = null;
+            if (timeout.deadline > currentTick) {
+                place(timeout); // Was clamped to the wheel's horizon
+            } else {
+                batches.computeIfAbsent(timeout.handler, k -> new ArrayList<>()).add(timeout);
+                if (timeout.periodTicks > 0) {
+                    timeout.deadline = currentTick + timeout.periodTicks;
+                    place(timeout);
+                } else {
+                    pending--;
+                }
+            }
+            timeout = next;
+        }
+        currentTick++;
+    }
+    
+    private long elapsedTicks() {
+        return (System.nanoTime() - startNanos) / tickNanos;
+    }
+    
+    private long toTicks(long millis) {
+        return Math.max(0, (millis * 1_000_000L + tickNanos - 1) / tickNanos);
+    }
+    
+    private static Bucket[] newBuckets(int count) {
+        Bucket[] buckets = new Bucket[count];
+        for (int i = 0; i < count; i++) {
+            buckets[i] = new Bucket();
+        }
+        return buckets;
+    }
+}
\ No newline at end of file
@@ -1,18 +1,23 @@
 package com.indoor.navigation.model;
 
+/**
+ * A walkable connection between two rooms. Landmark instructions are generated from the
+ * destination and path type on first use and cached, since most are never spoken; a reverse
+ * path created by the graph reverses its twin's text the first time it is read.
+ */
 public class Path {
     private Room fromRoom;
     private Room toRoom;
     private double distance; // in meters
-    private String instruction;
-    private String landmarkInstruction; // Human-like instruction using landmarks
+    private String instruction; // The twin's text until reversed on first read
+    private String landmarkInstruction; // Explicitly set, else null and generated on first use
+    private String generatedLandmarkInstruction; // Human-like instruction using landmarks, cached
+    private volatile boolean reverseText; // instruction and landmarkInstruction still read in the twin's direction
     private boolean isAccessible;
     private boolean isBlocked;
-    private boolean isTemporarilyBlocked; // For dynamic obstacles
     private String pathType; // "corridor", "stairs", "elevator", "ramp"
     private double width; // path width in meters
-    private String blockageReason; // Why the path is blocked
-    private long blockageTimestamp; // When the path was blocked
+    private int accessGroups; // AccessGroup bitmask required to use this path, PUBLIC if none
     
     public Path(Room fromRoom, Room toRoom, double distance, String instruction) {
         this.fromRoom = fromRoom;
@@ -21,17 +26,14 @@ public class Path {
         this.instruction = instruction;
         this.isAccessible = true;
         this.isBlocked = false;
-        this.isTemporarilyBlocked = false;
         this.pathType = "corridor";
         this.width = 2.0; // Default 2 meters wide
-        this.landmarkInstruction = generateLandmarkInstruction();
     }
     
     public Path(Room fromRoom, Room toRoom, double distance, String instruction, String pathType) {
         this(fromRoom, toRoom, distance, instruction);
-        this.pathType = pathType;
+        this.pathType = StringPool.intern(pathType);
         this.isAccessible = !pathType.equals("stairs"); // stairs not accessible by default
-        this.landmarkInstruction = generateLandmarkInstruction();
     }
     
     public Path(Room fromRoom, Room toRoom, double distance, String instruction, String pathType, double width) {
@@ -39,6 +41,79 @@ public class Path {
         this.width = width;
     }
     
+    /**
+     * The same connection walked the other way; its text is reversed lazily from this path's
+     */
+    Path reversed() {
+        Path reverse = new Path(toRoom, fromRoom, distance, null, pathType, width);
+        if (reverseText) resolveReverseText();
+        reverse.instruction = instruction;
+        reverse.landmarkInstruction = landmarkInstruction; // Null: generated for the reverse destination
+        reverse.reverseText = true;
+        reverse.isAccessible = isAccessible;
+        reverse.isBlocked = isBlocked;
+        reverse.accessGroups = accessGroups;
+        return reverse;
+    }
+    
+    /**
+     * The same connection between the given copies of its rooms. The graph edits copies, since
+     * published snapshots keep sharing the original; generated text is redone for the new rooms.
+     */
+    synchronized Path withRooms(Room newFromRoom, Room newToRoom) {
+        Path copy = new Path(newFromRoom, newToRoom, distance, null);
+        copy.instruction = instruction;
+        copy.landmarkInstruction = landmarkInstruction;
+        copy.reverseText = reverseText;
+        copy.isAccessible = isAccessible;
+        copy.isBlocked = isBlocked;
+        copy.pathType = pathType;
+        copy.width = width;
+        copy.accessGroups = accessGroups;
+        return copy;
+    }
+    
+    private synchronized void resolveReverseText() {
+        if (!reverseText) return;
+        instruction = reverseInstruction(instruction);
+        landmarkInstruction = reverseInstruction(landmarkInstruction);
+        reverseText = false;
+    }
+    
+    /**
+     * Swap directional phrases in one pass, so a swapped phrase is never swapped back
+     */
+    static String reverseInstruction(String instruction) {
+        if (instruction == null || instruction.isEmpty()) return instruction;
+        
+        StringBuilder sb = new StringBuilder(instruction.length() + 16);
+        int i = 0;
+        next:
+        while (i < instruction.length()) {
+            for (int p = 0; p < REVERSE_PHRASES.length; p += 2) {
+                if (instruction.startsWith(REVERSE_PHRASES[p], i)) {
+                    sb.append(REVERSE_PHRASES[p + 1]);
+                    i += REVERSE_PHRASES[p].length();
+                    continue next;
+                }
+            }
+            sb.append(instruction.charAt(i++));
+        }
+        return sb.toString();
+    }
+    
+    // Phrase and its reverse; longer phrases first where one contains another
+    private static final String[] REVERSE_PHRASES = {
+        "Go straight back", "Go straight",
+        "Go straight", "Go straight back",
+        "Turn left", "Turn right",
+        "Turn right", "Turn left",
+        "ahead", "behind you",
+        "up to", "down to",
+        "down to", "up to",
+        "towards", "away from",
+    };
+    
     private String generateLandmarkInstruction() {
         StringBuilder sb = new StringBuilder();
         
@@ -101,63 +176,76 @@ public class Path {
         return sb.toString();
     }
     
-    public void setTemporarilyBlocked(boolean blocked, String reason) {
-        this.isTemporarilyBlocked = blocked;
-        this.blockageReason = reason;
-        this.blockageTimestamp = blocked ? System.currentTimeMillis() : 0;
+    // Getters and setters
+    public Room getFromRoom() { return fromRoom; }
+    public Room getToRoom() { return toRoom; }
+    public double getDistance() { return distance; }
+    public String getInstruction() {
+        if (reverseText) resolveReverseText();
+        return instruction;
     }
     
-    public boolean isCurrentlyBlocked() {
-        return isBlocked || isTemporarilyBlocked;
+    public String getLandmarkInstruction() {
+        if (reverseText) resolveReverseText();
+        if (landmarkInstruction != null) return landmarkInstruction;
+        
+        String generated = generatedLandmarkInstruction;
+        if (generated == null) {
+            generated = generateLandmarkInstruction();
+            generatedLandmarkInstruction = generated; // Racing threads generate equal text
+        }
+        return generated;
     }
     
-    public String getBlockageInfo() {
-        if (isTemporarilyBlocked) {
-            return "Temporarily blocked: " + (blockageReason != null ? blockageReason : "Unknown reason");
-        } else if (isBlocked) {
-            return "Permanently blocked";
-        }
-        return "Not blocked";
+    /**
+     * Whether the landmark instruction was set explicitly rather than generated
+     */
+    public boolean hasCustomLandmarkInstruction() {
+        if (reverseText) resolveReverseText();
+        return landmarkInstruction != null;
     }
     
-    // Getters and setters
-    public Room getFromRoom() { return fromRoom; }
-    public Room getToRoom() { return toRoom; }
-    public double getDistance() { return distance; }
-    public String getInstruction() { return instruction; }
-    public String getLandmarkInstruction() { return landmarkInstruction; }
     public boolean isAccessible() { return isAccessible; }
     public boolean isBlocked() { return isBlocked; }
-    public boolean isTemporarilyBlocked() { return isTemporarilyBlocked; }
     public String getPathType() { return pathType; }
     public double getWidth() { return width; }
-    public String getBlockageReason() { return blockageReason; }
-    public long getBlockageTimestamp() { return blockageTimestamp; }
+    public int getAccessGroups() { return accessGroups; }
+    
+    /**
+     * Groups needed to traverse this path: its own plus those of the room it enters
+     */
+    public int getRequiredAccess() { return accessGroups | toRoom.getAccessGroups(); }
     
     public void setDistance(double distance) { this.distance = distance; }
-    public void setInstruction(String instruction) { 
+    public synchronized void setInstruction(String instruction) { 
         this.instruction = instruction;
-        this.landmarkInstruction = generateLandmarkInstruction();
+        this.landmarkInstruction = null; // Back to the generated text
+        this.generatedLandmarkInstruction = null;
+        this.reverseText = false;
     }
-    public void setLandmarkInstruction(String landmarkInstruction) { 
+    public synchronized void setLandmarkInstruction(String landmarkInstruction) { 
+        if (reverseText) resolveReverseText();
         this.landmarkInstruction = landmarkInstruction; 
     }
     public void setAccessible(boolean accessible) { this.isAccessible = accessible; }
     public void setBlocked(boolean blocked) { this.isBlocked = blocked; }
     public void setPathType(String pathType) { 
-        this.pathType = pathType;
+        this.pathType = StringPool.intern(pathType);
         // Auto-set accessibility based on path type
         if (pathType.equals("stairs")) {
             this.isAccessible = false;
         }
-        this.landmarkInstruction = generateLandmarkInstruction();
+        if (reverseText) resolveReverseText();
+        this.landmarkInstruction = null; // Back to the generated text
+        this.generatedLandmarkInstruction = null;
     }
     public void setWidth(double width) { this.width = width; }
+    public void setAccessGroups(int accessGroups) { this.accessGroups = accessGroups; }
     
     @Override
     public String toString() {
         String status = "";
-        if (isCurrentlyBlocked()) {
+        if (isBlocked) {
             status = " [BLOCKED]";
         } else if (!isAccessible) {
             status = " [NOT ACCESSIBLE]";
@@ -0,0 +1,103 @@
+package com.indoor.navigation.model;
+
+/**
+ * Immutable array backed by a 32-way trie. Updates copy only the nodes on the path to the
+ * changed slot (O(log32 n)) and share everything else with the previous version, which is
+ * what makes publishing a new graph snapshot cheap.
+ */
+final class PersistentArray<T> {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    
+    private static final PersistentArray<?> EMPTY = new PersistentArray<>(new Object[WIDTH], 0, 0);
+    
+    private final Object[] root;
+    private final int shift; // 0 when the root is a leaf
+    private final int size;
+    
+    private PersistentArray(Object[] root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+    
+    @SuppressWarnings("unchecked")
+    static <T> PersistentArray<T> empty() {
+        return (PersistentArray<T>) EMPTY;
+    }
+    
+    /**
+     * Array holding the first size values, built bottom-up in O(n) rather than by appending
+     */
+    @SuppressWarnings("unchecked")
+    static <T> PersistentArray<T> of(Object[] values, int size) {
+        if (size == 0) return empty();
+        
+        Object[] level = new Object[(size + MASK) >>> BITS];
+        for (int i = 0; i < level.length; i++) {
+            Object[] leaf = new Object[WIDTH];
+            System.arraycopy(values, i << BITS, leaf, 0, Math.min(WIDTH, size - (i << BITS)));
+            level[i] = leaf;
+        }
+        int shift = 0;
+        while (level.length > 1) {
+            Object[] parents = new Object[(level.length + MASK) >>> BITS];
+            for (int i = 0; i < parents.length; i++) {
+                Object[] parent = new Object[WIDTH];
+                System.arraycopy(level, i << BITS, parent, 0, Math.min(WIDTH, level.length - (i << BITS)));
+                parents[i] = parent;
+            }
+            level = parents;
+            shift += BITS;
+        }
+        return new PersistentArray<>((Object[]) level[0], shift, size);
+    }
+    
+    int size() { return size; }
+    
+    @SuppressWarnings("unchecked")
+    T get(int index) {
+        if (index < 0 || index >= size) return null;
+        
+        Object[] node = root;
+        for (int level = shift; level > 0 && node != null; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return node != null ? (T) node[index & MASK] : null;
+    }
+    
+    /**
+     * New array with the slot replaced; setting index size() appends
+     */
+    PersistentArray<T> set(int index, T value) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index " + index + " outside 0.." + size);
+        }
+        
+        Object[] newRoot = root;
+        int newShift = shift;
+        if (index >= 1 << (shift + BITS)) {
+            // Full at this depth: push the current root one level down
+            newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            newShift += BITS;
+        }
+        return new PersistentArray<>(setIn(newRoot, newShift, index, value), newShift, Math.max(size, index + 1));
+    }
+    
+    PersistentArray<T> append(T value) {
+        return set(size, value);
+    }
+    
+    private static Object[] setIn(Object[] node, int level, int index, Object value) {
+        Object[] copy = node != null ? node.clone() : new Object[WIDTH];
+        if (level == 0) {
+            copy[index & MASK] = value;
+        } else {
+            int slot = (index >>> level) & MASK;
+            copy[slot] = setIn((Object[]) copy[slot], level - BITS, index, value);
+        }
+        return copy;
+    }
+}
\ No newline at end of file
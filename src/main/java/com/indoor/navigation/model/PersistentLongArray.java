@@ -0,0 +1,110 @@
+package com.indoor.navigation.model;
+
+import java.util.Arrays;
+
+/**
+ * Immutable array of longs backed by a 32-way trie with primitive leaves, for per-edge
+ * attributes stored column-wise. Updates copy only the nodes on the path to the changed slot,
+ * like PersistentArray, without boxing a value per slot.
+ */
+final class PersistentLongArray {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    
+    private final Object root; // long[] leaf when shift is 0, else Object[] of children
+    private final int shift;
+    private final int size;
+    private final long missing; // Value of slots never written
+    
+    private PersistentLongArray(Object root, int shift, int size, long missing) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+        this.missing = missing;
+    }
+    
+    static PersistentLongArray empty(long missing) {
+        return new PersistentLongArray(leaf(missing), 0, 0, missing);
+    }
+    
+    /**
+     * Array holding the first size values, built bottom-up in O(n) rather than by appending
+     */
+    static PersistentLongArray of(long[] values, int size, long missing) {
+        if (size == 0) return empty(missing);
+        
+        Object[] level = new Object[(size + MASK) >>> BITS];
+        for (int i = 0; i < level.length; i++) {
+            long[] leaf = leaf(missing);
+            System.arraycopy(values, i << BITS, leaf, 0, Math.min(WIDTH, size - (i << BITS)));
+            level[i] = leaf;
+        }
+        int shift = 0;
+        while (level.length > 1) {
+            Object[] parents = new Object[(level.length + MASK) >>> BITS];
+            for (int i = 0; i < parents.length; i++) {
+                Object[] parent = new Object[WIDTH];
+                System.arraycopy(level, i << BITS, parent, 0, Math.min(WIDTH, level.length - (i << BITS)));
+                parents[i] = parent;
+            }
+            level = parents;
+            shift += BITS;
+        }
+        return new PersistentLongArray(level[0], shift, size, missing);
+    }
+    
+    int size() { return size; }
+    
+    long get(int index) {
+        if (index < 0 || index >= size) return missing;
+        
+        Object node = root;
+        for (int level = shift; level > 0 && node != null; level -= BITS) {
+            node = ((Object[]) node)[(index >>> level) & MASK];
+        }
+        return node != null ? ((long[]) node)[index & MASK] : missing;
+    }
+    
+    /**
+     * New array with the slot replaced; setting at or past size() grows the array, and slots
+     * skipped over read as missing without being allocated
+     */
+    PersistentLongArray set(int index, long value) {
+        if (index < 0) throw new IndexOutOfBoundsException("Index " + index);
+        
+        Object newRoot = root;
+        int newShift = shift;
+        while (newShift + BITS < Integer.SIZE - 1 && index >= 1 << (newShift + BITS)) {
+            // Full at this depth: push the current root one level down
+            Object[] pushed = new Object[WIDTH];
+            pushed[0] = newRoot;
+            newRoot = pushed;
+            newShift += BITS;
+        }
+        return new PersistentLongArray(setIn(newRoot, newShift, index, value), newShift,
+                                       Math.max(size, index + 1), missing);
+    }
+    
+    PersistentLongArray append(long value) {
+        return set(size, value);
+    }
+    
+    private Object setIn(Object node, int level, int index, long value) {
+        if (level == 0) {
+            long[] copy = node != null ? ((long[]) node).clone() : leaf(missing);
+            copy[index & MASK] = value;
+            return copy;
+        }
+        Object[] copy = node != null ? ((Object[]) node).clone() : new Object[WIDTH];
+        int slot = (index >>> level) & MASK;
+        copy[slot] = setIn(copy[slot], level - BITS, index, value);
+        return copy;
+    }
+    
+    private static long[] leaf(long missing) {
+        long[] leaf = new long[WIDTH];
+        if (missing != 0) Arrays.fill(leaf, missing);
+        return leaf;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.indoor.navigation.model;
+
+import java.util.Arrays;
+
+/**
+ * Sorted, duplicate-free room indices for the search indexes
+ */
+final class PostingList {
+    private int[] ids = new int[4];
+    private int size;
+    
+    void add(int id) {
+        if (size == 0 || ids[size - 1] < id) {
+            ensureCapacity();
+            ids[size++] = id; // Common case: rooms are indexed in ascending order
+            return;
+        }
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        if (position >= 0) return;
+        
+        position = -position - 1;
+        ensureCapacity();
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        ids[position] = id;
+        size++;
+    }
+    
+    void remove(int id) {
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        if (position < 0) return;
+        System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+        size--;
+    }
+    
+    int size() { return size; }
+    int get(int i) { return ids[i]; }
+    
+    int[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+    
+    /**
+     * Keep only the first count sorted candidates that are also in this list, in place; a merge.
+     * Returns how many were kept.
+     */
+    int retainIn(int[] candidates, int count) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < size; i++) {
+            while (j < size && ids[j] < candidates[i]) j++;
+            if (j < size && ids[j] == candidates[i]) candidates[kept++] = candidates[i];
+        }
+        return kept;
+    }
+    
+    private void ensureCapacity() {
+        if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+    }
+}
\ No newline at end of file
@@ -11,10 +11,13 @@ public class Room {
     private boolean isAccessible;
     private boolean isBlocked;
     private String qrCode;
-    private Map<String, String> features; // accessibility features
-    private List<String> landmarks; // Notable landmarks in/near this room
+    private Map<String, String> features; // accessibility features, a shared empty map until the first is added
+    private List<String> landmarks; // Notable landmarks in/near this room, likewise
     private double width; // corridor width in meters (for accessibility)
     private boolean isEmergencyExit;
+    private int accessGroups; // AccessGroup bitmask required to enter, PUBLIC if none
+    private double x = Double.NaN; // Position on the floor plan in meters, NaN if not surveyed
+    private double y = Double.NaN;
     
     public Room(String id, String name, String description) {
         this(id, name, description, RoomType.CORRIDOR, 1);
@@ -29,8 +32,8 @@ public class Room {
         this.isAccessible = true;
         this.isBlocked = false;
         this.qrCode = generateQRCode(id);
-        this.features = new HashMap<>();
-        this.landmarks = new ArrayList<>();
+        this.features = Collections.emptyMap();
+        this.landmarks = Collections.emptyList();
         this.width = 2.0; // Default 2 meters wide
         this.isEmergencyExit = roomType == RoomType.EMERGENCY_EXIT;
         
@@ -40,11 +43,31 @@ public class Room {
         }
     }
     
+    /**
+     * Copy with its own features and landmarks. The graph edits copies, since published
+     * snapshots keep sharing the original.
+     */
+    Room copy() {
+        Room copy = new Room(id, name, description, roomType, floor);
+        copy.isAccessible = isAccessible;
+        copy.isBlocked = isBlocked;
+        copy.qrCode = qrCode;
+        copy.features = features.isEmpty() ? Collections.emptyMap() : new HashMap<>(features);
+        copy.landmarks = landmarks.isEmpty() ? Collections.emptyList() : new ArrayList<>(landmarks);
+        copy.width = width;
+        copy.isEmergencyExit = isEmergencyExit;
+        copy.accessGroups = accessGroups;
+        copy.x = x;
+        copy.y = y;
+        return copy;
+    }
+    
     private String generateQRCode(String roomId) {
         return "QR_" + roomId.toUpperCase() + "_" + System.currentTimeMillis() % 10000;
     }
     
     public void addLandmark(String landmark) {
+        if (!(landmarks instanceof ArrayList)) landmarks = new ArrayList<>(2);
         this.landmarks.add(landmark);
     }
     
@@ -72,6 +95,10 @@ public class Room {
     public List<String> getLandmarks() { return landmarks; }
     public double getWidth() { return width; }
     public boolean isEmergencyExit() { return isEmergencyExit; }
+    public int getAccessGroups() { return accessGroups; }
+    public double getX() { return x; }
+    public double getY() { return y; }
+    public boolean hasPosition() { return !Double.isNaN(x) && !Double.isNaN(y); }
     
     public void setName(String name) { this.name = name; }
     public void setDescription(String description) { this.description = description; }
@@ -87,9 +114,17 @@ public class Room {
     public void setBlocked(boolean blocked) { this.isBlocked = blocked; }
     public void setWidth(double width) { this.width = width; }
     public void setEmergencyExit(boolean emergencyExit) { this.isEmergencyExit = emergencyExit; }
+    public void setAccessGroups(int accessGroups) { this.accessGroups = accessGroups; }
+    public void setPosition(double x, double y) { 
+        this.x = x; 
+        this.y = y; 
+    }
+    
+    public boolean isRestricted() { return accessGroups != AccessGroup.PUBLIC; }
     
     public void addFeature(String key, String value) { 
-        this.features.put(key, value); 
+        if (!(features instanceof HashMap)) features = new HashMap<>(4);
+        this.features.put(StringPool.intern(key), value); 
     }
     
     public void removeFeature(String key) {
@@ -0,0 +1,187 @@
+package com.indoor.navigation.model;
+
+import java.util.*;
+
+/**
+ * Secondary indexes over the rooms of one index generation: QR code and normalized name
+ * hash lookups, and per-type, per-floor, accessible and blocked bitmaps over room indices.
+ * Names are mostly unique, so each name keeps a sorted posting list rather than a bitmap.
+ * Compound filters are bitmap intersections. Per-type and per-floor room counts and the
+ * accessible, blocked and emergency exit totals are kept alongside for building statistics.
+ * Every room's indexed keys are remembered, so a room can be unindexed correctly after it
+ * was edited. Guarded by the graph lock.
+ */
+final class RoomAttributeIndex {
+    
+    /**
+     * Keys a room was indexed under
+     */
+    private static final class IndexedKeys {
+        final String qrCode;
+        final String name;
+        final RoomType type;
+        final int floor;
+        final boolean emergencyExit;
+        
+        IndexedKeys(Room room) {
+            this.qrCode = room.getQrCode();
+            this.name = normalize(room.getName());
+            this.type = room.getRoomType();
+            this.floor = room.getFloor();
+            this.emergencyExit = room.isEmergencyExit();
+        }
+    }
+    
+    private final Map<String, Integer> byQrCode = new HashMap<>();
+    private final Map<String, PostingList> byName = new HashMap<>(); // Normalized name -> rooms
+    private final Map<RoomType, BitSet> byType = new EnumMap<>(RoomType.class);
+    private final TreeMap<Integer, BitSet> byFloor = new TreeMap<>();
+    private final BitSet present = new BitSet();
+    private final BitSet accessible = new BitSet();
+    private final BitSet blocked = new BitSet();
+    private final Map<Integer, IndexedKeys> keys = new HashMap<>();
+    private final Map<RoomType, Integer> typeCounts = new EnumMap<>(RoomType.class);
+    private final SortedMap<Integer, Integer> floorCounts = new TreeMap<>();
+    private int accessibleOpenCount; // Accessible and not blocked
+    private int blockedCount;
+    private int emergencyExitCount;
+    
+    static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    void add(int index, Room room, boolean roomBlocked) {
+        remove(index);
+        IndexedKeys indexed = new IndexedKeys(room);
+        keys.put(index, indexed);
+        
+        if (indexed.qrCode != null) byQrCode.put(indexed.qrCode, index);
+        byName.computeIfAbsent(indexed.name, k -> new PostingList()).add(index);
+        byType.computeIfAbsent(indexed.type, k -> new BitSet()).set(index);
+        byFloor.computeIfAbsent(indexed.floor, k -> new BitSet()).set(index);
+        present.set(index);
+        accessible.set(index, room.isAccessible());
+        blocked.set(index, roomBlocked);
+        
+        typeCounts.merge(indexed.type, 1, Integer::sum);
+        floorCounts.merge(indexed.floor, 1, Integer::sum);
+        count(index, indexed, 1);
+    }
+    
+    void remove(int index) {
+        IndexedKeys indexed = keys.remove(index);
+        if (indexed == null) return;
+        
+        count(index, indexed, -1);
+        decrement(typeCounts, indexed.type);
+        decrement(floorCounts, indexed.floor);
+        if (indexed.qrCode != null) byQrCode.remove(indexed.qrCode, index);
+        PostingList named = byName.get(indexed.name);
+        if (named != null) {
+            named.remove(index);
+            if (named.size() == 0) byName.remove(indexed.name);
+        }
+        clear(byType, indexed.type, index);
+        clear(byFloor, indexed.floor, index);
+        present.clear(index);
+        accessible.clear(index);
+        blocked.clear(index);
+    }
+    
+    void setBlocked(int index, boolean roomBlocked) {
+        IndexedKeys indexed = keys.get(index);
+        if (indexed == null) return;
+        count(index, indexed, -1);
+        blocked.set(index, roomBlocked);
+        count(index, indexed, 1);
+    }
+    
+    /**
+     * Index of the room with this QR code, or -1
+     */
+    int findByQrCode(String qrCode) {
+        Integer index = qrCode != null ? byQrCode.get(qrCode) : null;
+        return index != null ? index : -1;
+    }
+    
+    /**
+     * First room in index order whose normalized name equals the normalized query, or -1
+     */
+    int findFirstByName(String name) {
+        PostingList rooms = byName.get(normalize(name));
+        return rooms != null ? rooms.get(0) : -1;
+    }
+    
+    /**
+     * First room in index order whose normalized name contains the normalized query, or -1
+     */
+    int findFirstNameContaining(String query) {
+        String normalized = normalize(query);
+        for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+            if (keys.get(i).name.contains(normalized)) return i;
+        }
+        return -1;
+    }
+    
+    /**
+     * Rooms matching every given filter; a null type or floor does not filter
+     */
+    BitSet filter(RoomType type, Integer floor, boolean accessibleOnly) {
+        BitSet result = copyOf(type != null ? byType.get(type) : floor != null ? byFloor.get(floor) : present);
+        if (type != null && floor != null) {
+            BitSet onFloor = byFloor.get(floor);
+            if (onFloor != null) result.and(onFloor); else result.clear();
+        }
+        if (accessibleOnly) {
+            result.and(accessible);
+            result.andNot(blocked);
+        }
+        return result;
+    }
+    
+    Set<Integer> getFloors() {
+        return new TreeSet<>(byFloor.keySet());
+    }
+    
+    Map<RoomType, Integer> getTypeCounts() { return typeCounts; }
+    SortedMap<Integer, Integer> getFloorCounts() { return floorCounts; }
+    int getAccessibleOpenCount() { return accessibleOpenCount; }
+    int getBlockedCount() { return blockedCount; }
+    int getEmergencyExitCount() { return emergencyExitCount; }
+    
+    /**
+     * Index rebuilt for a snapshot, e.g. after compaction renumbered the rooms
+     */
+    static RoomAttributeIndex build(GraphSnapshot snapshot) {
+        RoomAttributeIndex index = new RoomAttributeIndex();
+        for (int i = 0; i < snapshot.getRoomIndexCapacity(); i++) {
+            GraphSnapshot.RoomNode node = snapshot.getNode(i);
+            if (node != null) index.add(i, node.getRoom(), node.isBlocked());
+        }
+        return index;
+    }
+    
+    /**
+     * Add (delta 1) or take back (delta -1) the room's share of the flag totals
+     */
+    private void count(int index, IndexedKeys indexed, int delta) {
+        if (accessible.get(index) && !blocked.get(index)) accessibleOpenCount += delta;
+        if (blocked.get(index)) blockedCount += delta;
+        if (indexed.emergencyExit) emergencyExitCount += delta;
+    }
+    
+    private static <K> void decrement(Map<K, Integer> counts, K key) {
+        counts.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+    }
+    
+    private static BitSet copyOf(BitSet rooms) {
+        return rooms != null ? (BitSet) rooms.clone() : new BitSet();
+    }
+    
+    private static <K> void clear(Map<K, BitSet> index, K key, int roomIndex) {
+        BitSet rooms = index.get(key);
+        if (rooms == null) return;
+        rooms.clear(roomIndex);
+        if (rooms.isEmpty()) index.remove(key);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,303 @@
+package com.indoor.navigation.model;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Typo-tolerant lookup over the words of room names, landmarks and room type names.
+ * Distinct words form a sorted dictionary flattened into one char array. A query runs a
+ * Levenshtein automaton over it, kept as one dynamic-programming row per prefix length: words
+ * reuse the rows of the prefix they share with the previous word, and once a prefix is out of
+ * reach every word under it is skipped. Each term keeps a posting list of the rooms using it.
+ * Numbers are matched exactly rather than fuzzily. The dictionary is re-sorted lazily, on the
+ * first search after the vocabulary changed; guarded by the graph lock.
+ */
+final class RoomFuzzyIndex {
+    static final int MAX_EDIT_DISTANCE = 2;
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    
+    /**
+     * Rooms matching every query word, ascending by index, each with the summed edit distance
+     * of its best terms
+     */
+    static final class Matches {
+        static final Matches NONE = new Matches(new int[0], new int[0]);
+        
+        final int[] roomIndices;
+        final int[] distances;
+        
+        private Matches(int[] roomIndices, int[] distances) {
+            this.roomIndices = roomIndices;
+            this.distances = distances;
+        }
+        
+        int size() { return roomIndices.length; }
+        
+        /**
+         * Position of the room in this result, or a negative number
+         */
+        int indexOf(int roomIndex) {
+            return Arrays.binarySearch(roomIndices, roomIndex);
+        }
+        
+        /**
+         * These rooms plus the term's, keeping the smaller distance; a merge of sorted lists
+         */
+        Matches union(PostingList term, int distance) {
+            int[] rooms = new int[size() + term.size()];
+            int[] merged = new int[rooms.length];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size() || j < term.size()) {
+                int mine = i < size() ? roomIndices[i] : Integer.MAX_VALUE;
+                int theirs = j < term.size() ? term.get(j) : Integer.MAX_VALUE;
+                if (mine < theirs) {
+                    rooms[count] = mine;
+                    merged[count++] = distances[i++];
+                } else if (theirs < mine) {
+                    rooms[count] = theirs;
+                    merged[count++] = distance;
+                    j++;
+                } else {
+                    rooms[count] = mine;
+                    merged[count++] = Math.min(distances[i++], distance);
+                    j++;
+                }
+            }
+            return new Matches(Arrays.copyOf(rooms, count), Arrays.copyOf(merged, count));
+        }
+        
+        /**
+         * Rooms in both results, with their distances summed
+         */
+        Matches intersect(Matches other) {
+            int[] rooms = new int[Math.min(size(), other.size())];
+            int[] summed = new int[rooms.length];
+            int count = 0;
+            for (int i = 0, j = 0; i < size() && j < other.size(); ) {
+                if (roomIndices[i] < other.roomIndices[j]) {
+                    i++;
+                } else if (other.roomIndices[j] < roomIndices[i]) {
+                    j++;
+                } else {
+                    rooms[count] = roomIndices[i];
+                    summed[count++] = distances[i++] + other.distances[j++];
+                }
+            }
+            return new Matches(Arrays.copyOf(rooms, count), Arrays.copyOf(summed, count));
+        }
+        
+        /**
+         * Up to limit room indices ordered by distance, then by descending popularity, then by
+         * index. Popularity maps a position in this result to a count; absent means zero, so
+         * only the few popular rooms are ever sorted and the rest are taken in index order.
+         */
+        int[] top(int limit, Map<Integer, Integer> popularity) {
+            List<Integer> popular = new ArrayList<>(popularity.keySet());
+            popular.sort(Comparator.<Integer>comparingInt(position -> distances[position])
+                                   .thenComparing(position -> -popularity.get(position))
+                                   .thenComparingInt(position -> roomIndices[position]));
+            int maxDistance = 0;
+            for (int distance : distances) maxDistance = Math.max(maxDistance, distance);
+            
+            int[] ranked = new int[Math.min(limit, size())];
+            int count = 0;
+            int next = 0;
+            for (int distance = 0; distance <= maxDistance && count < ranked.length; distance++) {
+                for (; next < popular.size() && distances[popular.get(next)] == distance && count < ranked.length; next++) {
+                    ranked[count++] = roomIndices[popular.get(next)];
+                }
+                for (int i = 0; i < size() && count < ranked.length; i++) {
+                    if (distances[i] == distance && !popularity.containsKey(i)) ranked[count++] = roomIndices[i];
+                }
+            }
+            return ranked;
+        }
+    }
+    
+    private final Map<String, PostingList> postings = new HashMap<>(); // Term -> rooms using it
+    private final Map<Integer, String[]> roomTerms = new HashMap<>(); // Room index -> its distinct terms
+    private char[] dictionary = new char[0]; // Sorted fuzzy terms, back to back
+    private int[] termStarts = {0}; // Term i spans termStarts[i] until termStarts[i + 1]
+    private int[] sharedPrefix = new int[0]; // Length of the prefix term i shares with term i - 1
+    private int maxTermLength;
+    private boolean dictionaryStale;
+    
+    void add(int index, Room room) {
+        remove(index);
+        Set<String> terms = new HashSet<>();
+        tokenize(room.getName(), terms);
+        tokenize(room.getRoomType().getDisplayName(), terms);
+        for (String landmark : room.getLandmarks()) {
+            tokenize(landmark, terms);
+        }
+        
+        roomTerms.put(index, terms.toArray(new String[0]));
+        for (String term : terms) {
+            PostingList list = postings.get(term);
+            if (list == null) {
+                list = new PostingList();
+                postings.put(term, list);
+                dictionaryStale |= isFuzzyTerm(term);
+            }
+            list.add(index);
+        }
+    }
+    
+    void remove(int index) {
+        String[] terms = roomTerms.remove(index);
+        if (terms == null) return;
+        
+        for (String term : terms) {
+            PostingList list = postings.get(term);
+            list.remove(index);
+            if (list.size() == 0) {
+                postings.remove(term);
+                dictionaryStale |= isFuzzyTerm(term);
+            }
+        }
+    }
+    
+    /**
+     * Rooms matching every word of the query within the allowed edit distance
+     */
+    Matches search(String query) {
+        Set<String> words = tokenize(query, new LinkedHashSet<>());
+        if (words.isEmpty()) return Matches.NONE;
+        
+        Matches result = null;
+        for (String word : words) {
+            Matches wordMatches = Matches.NONE;
+            for (Map.Entry<String, Integer> term : matchingTerms(word).entrySet()) {
+                wordMatches = wordMatches.union(postings.get(term.getKey()), term.getValue());
+            }
+            result = result == null ? wordMatches : result.intersect(wordMatches);
+            if (result.size() == 0) return Matches.NONE;
+        }
+        return result;
+    }
+    
+    static RoomFuzzyIndex build(GraphSnapshot snapshot) {
+        RoomFuzzyIndex index = new RoomFuzzyIndex();
+        for (int i = 0; i < snapshot.getRoomIndexCapacity(); i++) {
+            Room room = snapshot.getRoomByIndex(i);
+            if (room != null) index.add(i, room);
+        }
+        return index;
+    }
+    
+    /**
+     * Short words tolerate fewer typos: none up to 3 letters, one up to 5, then two
+     */
+    static int allowedDistance(String word) {
+        return word.length() <= 3 ? 0 : word.length() <= 5 ? 1 : MAX_EDIT_DISTANCE;
+    }
+    
+    /**
+     * Terms within the allowed distance of the word, with their distance
+     */
+    private Map<String, Integer> matchingTerms(String word) {
+        Map<String, Integer> matches = new HashMap<>();
+        if (postings.containsKey(word)) matches.put(word, 0);
+        if (!isFuzzyTerm(word)) return matches;
+        
+        if (dictionaryStale) sortDictionary();
+        
+        int limit = allowedDistance(word);
+        int[][] rows = new int[maxTermLength + 1][word.length() + 1]; // One row per prefix length
+        for (int j = 0; j <= word.length(); j++) rows[0][j] = j;
+        
+        int term = 0;
+        terms:
+        while (term < sharedPrefix.length) {
+            int start = termStarts[term];
+            int length = termStarts[term + 1] - start;
+            for (int depth = sharedPrefix[term] + 1; depth <= length; depth++) {
+                if (!advance(rows, depth, dictionary[start + depth - 1], word, limit)) {
+                    // No word starting with this prefix can get back within reach
+                    do term++; while (term < sharedPrefix.length && sharedPrefix[term] >= depth);
+                    continue terms;
+                }
+            }
+            
+            int distance = length >= word.length() - limit && length <= word.length() + limit
+                           ? rows[length][word.length()] : limit + 1;
+            if (distance <= limit) {
+                matches.merge(new String(dictionary, start, length), distance, Math::min);
+            }
+            term++;
+        }
+        return matches;
+    }
+    
+    /**
+     * Compute the row for a prefix of the given length from the row of the one before it.
+     * A row holds the distance from the prefix to every prefix of the word; cells further than
+     * the limit off the diagonal can never come back within reach, so only the band around it
+     * is computed. Returns false if the whole band is out of reach.
+     */
+    private static boolean advance(int[][] rows, int depth, char key, String word, int limit) {
+        int[] previous = rows[depth - 1];
+        int[] row = rows[depth];
+        int first = Math.max(1, depth - limit);
+        int last = Math.min(word.length(), depth + limit);
+        
+        row[0] = depth;
+        if (first > 1) row[first - 1] = limit + 1;
+        int rowMin = depth <= limit ? depth : limit + 1;
+        for (int j = first; j <= last; j++) {
+            int substitution = previous[j - 1] + (word.charAt(j - 1) == key ? 0 : 1);
+            int insertion = j < depth + limit ? previous[j] + 1 : limit + 1;
+            row[j] = Math.min(substitution, Math.min(insertion, row[j - 1] + 1));
+            rowMin = Math.min(rowMin, row[j]);
+        }
+        if (last < word.length()) row[last + 1] = limit + 1;
+        return rowMin <= limit;
+    }
+    
+    private void sortDictionary() {
+        List<String> terms = new ArrayList<>();
+        int totalLength = 0;
+        for (String term : postings.keySet()) {
+            if (!isFuzzyTerm(term)) continue;
+            terms.add(term);
+            totalLength += term.length();
+        }
+        Collections.sort(terms);
+        
+        dictionary = new char[totalLength];
+        termStarts = new int[terms.size() + 1];
+        sharedPrefix = new int[terms.size()];
+        maxTermLength = 0;
+        for (int i = 0; i < terms.size(); i++) {
+            String term = terms.get(i);
+            term.getChars(0, term.length(), dictionary, termStarts[i]);
+            termStarts[i + 1] = termStarts[i] + term.length();
+            sharedPrefix[i] = i > 0 ? commonPrefixLength(terms.get(i - 1), term) : 0;
+            maxTermLength = Math.max(maxTermLength, term.length());
+        }
+        dictionaryStale = false;
+    }
+    
+    private static int commonPrefixLength(String a, String b) {
+        int length = 0;
+        while (length < a.length() && length < b.length() && a.charAt(length) == b.charAt(length)) length++;
+        return length;
+    }
+    
+    private static boolean isFuzzyTerm(String term) {
+        for (int i = 0; i < term.length(); i++) {
+            if (Character.isLetter(term.charAt(i))) return true;
+        }
+        return false;
+    }
+    
+    private static <C extends Collection<String>> C tokenize(String text, C terms) {
+        if (text == null) return terms;
+        for (String word : WORD_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!word.isEmpty()) terms.add(word);
+        }
+        return terms;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,280 @@
+package com.indoor.navigation.model;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * Ranked prefix completion over room names, room ids and landmarks. Every key is indexed
+ * whole and from each later word, so "lab" completes "Chemistry Lab". Keys form a sorted
+ * dictionary flattened into one char array, with the rooms of each key in one flat int array:
+ * the keys under a prefix are a contiguous run, found by two binary searches, like the leaves
+ * under a trie node. Each room keeps its request count and position in parallel arrays, so
+ * ranking the run reads no maps. The dictionary is re-sorted lazily, on the first completion
+ * after the keys changed; guarded by the graph lock.
+ */
+final class RoomPrefixIndex {
+    static final double FLOOR_CHANGE_METERS = 30.0; // Distance a floor change counts as when ranking by proximity
+    static final double UNKNOWN_DISTANCE_METERS = 50.0; // For a room or origin without a position, on the same floor
+    private static final double PROXIMITY_SCALE_METERS = 100.0; // Distance that halves a room's rank, like half the requests
+    
+    private final Map<String, PostingList> postings = new HashMap<>(); // Key -> rooms completing to it
+    private final Map<Integer, String[]> roomKeys = new HashMap<>(); // Room index -> its distinct keys
+    private int[] requests = new int[0]; // Room index -> times chosen as a destination
+    private float[] x = new float[0]; // Room index -> position, NaN if unknown
+    private float[] y = new float[0];
+    private int[] floors = new int[0];
+    private boolean[] indexed = new boolean[0];
+    private char[] dictionary = new char[0]; // Sorted keys, back to back
+    private int[] keyStarts = {0}; // Key i spans keyStarts[i] until keyStarts[i + 1]
+    private int[] roomStarts = {0}; // Rooms of key i span roomStarts[i] until roomStarts[i + 1]
+    private int[] rooms = new int[0];
+    private boolean dictionaryStale;
+    private int[] seen = new int[0]; // Room index -> stamp of the last completion that ranked it
+    private int stamp;
+    
+    void add(int index, Room room) {
+        remove(index);
+        Set<String> keys = new HashSet<>();
+        addKeys(room.getName(), keys);
+        addKeys(room.getId(), keys);
+        for (String landmark : room.getLandmarks()) {
+            addKeys(landmark, keys);
+        }
+        
+        ensureRoomCapacity(index + 1);
+        x[index] = room.hasPosition() ? (float) room.getX() : Float.NaN;
+        y[index] = room.hasPosition() ? (float) room.getY() : Float.NaN;
+        floors[index] = room.getFloor();
+        indexed[index] = true;
+        roomKeys.put(index, keys.toArray(new String[0]));
+        for (String key : keys) {
+            postings.computeIfAbsent(key, k -> new PostingList()).add(index);
+        }
+        dictionaryStale = true;
+    }
+    
+    void remove(int index) {
+        String[] keys = roomKeys.remove(index);
+        if (keys == null) return;
+        
+        for (String key : keys) {
+            PostingList list = postings.get(key);
+            list.remove(index);
+            if (list.size() == 0) postings.remove(key);
+        }
+        indexed[index] = false;
+        dictionaryStale = true;
+    }
+    
+    void recordRequest(int index) {
+        if (index >= 0 && index < requests.length) requests[index]++;
+    }
+    
+    /**
+     * Up to limit room indices whose keys start with the prefix (ignoring case), best first.
+     * A room's score is (1 + requests) / (1 + distance / PROXIMITY_SCALE_METERS) from the
+     * origin room, if any; ties go to the lower index. Excluded rooms are skipped. Distance
+     * only lowers a score, so rooms whose requests alone cannot beat the last of the best so
+     * far are passed over without measuring it.
+     */
+    int[] complete(String prefix, int originIndex, int limit, IntPredicate excluded) {
+        if (limit <= 0) return new int[0];
+        if (dictionaryStale) sortDictionary();
+        
+        String normalized = normalize(prefix);
+        Ranking ranking = new Ranking(limit);
+        if (normalized.isEmpty()) {
+            // Every room completes the empty prefix: rank them once each, no deduplication
+            for (int room = 0; room < indexed.length; room++) {
+                if (indexed[room]) ranking.offer(room, originIndex, excluded);
+            }
+            return ranking.toArray();
+        }
+        
+        int first = lowerBound(normalized, false);
+        int last = lowerBound(normalized, true);
+        if (first >= last) return new int[0];
+        if (++stamp == 0) {
+            Arrays.fill(seen, 0);
+            stamp = 1;
+        }
+        
+        for (int i = roomStarts[first]; i < roomStarts[last]; i++) {
+            int room = rooms[i];
+            if (seen[room] == stamp) continue; // Reached through another key
+            seen[room] = stamp;
+            ranking.offer(room, originIndex, excluded);
+        }
+        return ranking.toArray();
+    }
+    
+    /**
+     * The best rooms offered so far, kept sorted by descending score
+     */
+    private final class Ranking {
+        final int[] best;
+        final double[] scores;
+        int count;
+        
+        Ranking(int limit) {
+            best = new int[limit];
+            scores = new double[limit];
+        }
+        
+        void offer(int room, int originIndex, IntPredicate excluded) {
+            double bound = 1 + requests[room];
+            if (count == best.length && !better(bound, room, scores[count - 1], best[count - 1])) return;
+            
+            double score = bound / (1 + distance(room, originIndex) / PROXIMITY_SCALE_METERS);
+            if (count == best.length && !better(score, room, scores[count - 1], best[count - 1])) return;
+            if (excluded != null && excluded.test(room)) return;
+            
+            int position = count < best.length ? count++ : count - 1;
+            while (position > 0 && better(score, room, scores[position - 1], best[position - 1])) {
+                best[position] = best[position - 1];
+                scores[position] = scores[position - 1];
+                position--;
+            }
+            best[position] = room;
+            scores[position] = score;
+        }
+        
+        int[] toArray() {
+            return Arrays.copyOf(best, count);
+        }
+    }
+    
+    static RoomPrefixIndex build(GraphSnapshot snapshot, Map<String, Integer> destinationRequests) {
+        RoomPrefixIndex index = new RoomPrefixIndex();
+        for (int i = 0; i < snapshot.getRoomIndexCapacity(); i++) {
+            Room room = snapshot.getRoomByIndex(i);
+            if (room != null) index.add(i, room);
+        }
+        for (Map.Entry<String, Integer> request : destinationRequests.entrySet()) {
+            int room = snapshot.getRoomIndex(request.getKey());
+            if (room >= 0) index.requests[room] = request.getValue();
+        }
+        return index;
+    }
+    
+    /**
+     * Walking distance estimate between two rooms: straight line plus a fixed cost per floor
+     */
+    private double distance(int room, int originIndex) {
+        if (originIndex < 0 || originIndex >= floors.length || room == originIndex) return 0;
+        
+        double distance = Math.abs(floors[room] - floors[originIndex]) * FLOOR_CHANGE_METERS;
+        if (Float.isNaN(x[room]) || Float.isNaN(x[originIndex])) return distance + UNKNOWN_DISTANCE_METERS;
+        
+        double dx = x[room] - x[originIndex];
+        double dy = y[room] - y[originIndex];
+        return distance + Math.sqrt(dx * dx + dy * dy);
+    }
+    
+    private static boolean better(double score, int room, double otherScore, int otherRoom) {
+        return score > otherScore || (score == otherScore && room < otherRoom);
+    }
+    
+    /**
+     * First key not below the prefix, or with afterPrefix, first key past every key starting
+     * with it
+     */
+    private int lowerBound(String prefix, boolean afterPrefix) {
+        int low = 0;
+        int high = keyStarts.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int cmp = compareToPrefix(middle, prefix);
+            if (cmp < 0 || (afterPrefix && cmp == 0)) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+    
+    /**
+     * Order of the key against the prefix, 0 if the key starts with it
+     */
+    private int compareToPrefix(int key, String prefix) {
+        int start = keyStarts[key];
+        int length = keyStarts[key + 1] - start;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (i == length) return -1;
+            int cmp = Character.compare(dictionary[start + i], prefix.charAt(i));
+            if (cmp != 0) return cmp;
+        }
+        return 0;
+    }
+    
+    private void sortDictionary() {
+        List<String> keys = new ArrayList<>(postings.keySet());
+        Collections.sort(keys);
+        int totalLength = 0;
+        int totalRooms = 0;
+        for (String key : keys) {
+            totalLength += key.length();
+            totalRooms += postings.get(key).size();
+        }
+        
+        dictionary = new char[totalLength];
+        keyStarts = new int[keys.size() + 1];
+        roomStarts = new int[keys.size() + 1];
+        rooms = new int[totalRooms];
+        for (int i = 0; i < keys.size(); i++) {
+            String key = keys.get(i);
+            PostingList list = postings.get(key);
+            key.getChars(0, key.length(), dictionary, keyStarts[i]);
+            keyStarts[i + 1] = keyStarts[i] + key.length();
+            for (int j = 0; j < list.size(); j++) {
+                rooms[roomStarts[i] + j] = list.get(j);
+            }
+            roomStarts[i + 1] = roomStarts[i] + list.size();
+        }
+        dictionaryStale = false;
+    }
+    
+    private void ensureRoomCapacity(int capacity) {
+        if (capacity <= requests.length) return;
+        
+        int newCapacity = Math.max(capacity, requests.length * 2);
+        requests = Arrays.copyOf(requests, newCapacity);
+        x = Arrays.copyOf(x, newCapacity);
+        y = Arrays.copyOf(y, newCapacity);
+        floors = Arrays.copyOf(floors, newCapacity);
+        indexed = Arrays.copyOf(indexed, newCapacity);
+        seen = Arrays.copyOf(seen, newCapacity);
+    }
+    
+    /**
+     * The text as one key, plus the rest of it from each later word onwards
+     */
+    private static void addKeys(String text, Set<String> keys) {
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) return;
+        
+        keys.add(normalized);
+        for (int i = 1; i < normalized.length(); i++) {
+            if (normalized.charAt(i - 1) == ' ') keys.add(normalized.substring(i));
+        }
+    }
+    
+    /**
+     * Lowercase words separated by single spaces, so "Room  101-A" and "room 101 a" agree
+     */
+    private static String normalize(String text) {
+        if (text == null) return "";
+        String lower = text.toLowerCase(Locale.ROOT);
+        StringBuilder normalized = new StringBuilder(lower.length());
+        boolean separator = false;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (separator && normalized.length() > 0) normalized.append(' ');
+                normalized.append(c);
+                separator = false;
+            } else {
+                separator = true;
+            }
+        }
+        return normalized.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,276 @@
+package com.indoor.navigation.model;
+
+import java.util.*;
+
+/**
+ * Per-floor uniform grids over room positions and the paths between positioned rooms on the
+ * same floor, for snapping positioning fixes onto the floor plan. Each grid is sized for a
+ * few items per cell; a room sits in one cell and a path in every cell its bounding box
+ * touches, stored as flat cell-start and item arrays. Nearest-k searches ring by ring
+ * outward and stops once nothing unvisited can be closer. Immutable once built.
+ */
+final class RoomSpatialIndex {
+    private static final int ITEMS_PER_CELL = 4;
+    private static final int MAX_CELLS_PER_AXIS = 1024;
+    private static final double MIN_CELL_SIZE = 1.0; // meters
+    
+    private static final class FloorGrid {
+        final int floor;
+        final Room[] rooms;
+        final double[] roomX;
+        final double[] roomY;
+        final Path[] paths;
+        final double[] pathX; // Start and end coordinates, two per path
+        final double[] pathY;
+        final double minX;
+        final double minY;
+        final double cellSize;
+        final int columns;
+        final int rows;
+        final int[] cellStarts; // Items of cell c are cellItems[cellStarts[c] .. cellStarts[c + 1])
+        final int[] cellItems; // Room i as i, path j as rooms.length + j
+        
+        FloorGrid(int floor, List<Room> roomList, List<Path> pathList) {
+            this.floor = floor;
+            this.rooms = roomList.toArray(new Room[0]);
+            this.paths = pathList.toArray(new Path[0]);
+            this.roomX = new double[rooms.length];
+            this.roomY = new double[rooms.length];
+            this.pathX = new double[paths.length * 2];
+            this.pathY = new double[paths.length * 2];
+            
+            double lowX = Double.POSITIVE_INFINITY, lowY = Double.POSITIVE_INFINITY;
+            double highX = Double.NEGATIVE_INFINITY, highY = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < rooms.length; i++) {
+                roomX[i] = rooms[i].getX();
+                roomY[i] = rooms[i].getY();
+                lowX = Math.min(lowX, roomX[i]);
+                lowY = Math.min(lowY, roomY[i]);
+                highX = Math.max(highX, roomX[i]);
+                highY = Math.max(highY, roomY[i]);
+            }
+            for (int j = 0; j < paths.length; j++) {
+                pathX[2 * j] = paths[j].getFromRoom().getX();
+                pathY[2 * j] = paths[j].getFromRoom().getY();
+                pathX[2 * j + 1] = paths[j].getToRoom().getX();
+                pathY[2 * j + 1] = paths[j].getToRoom().getY();
+            }
+            
+            // Path endpoints are positioned rooms, so the room bounds cover every item
+            double width = highX - lowX;
+            double height = highY - lowY;
+            int items = rooms.length + paths.length;
+            double cell = Math.sqrt(Math.max(width, 1) * Math.max(height, 1) * ITEMS_PER_CELL / items);
+            cell = Math.max(cell, Math.max(MIN_CELL_SIZE, Math.max(width, height) / MAX_CELLS_PER_AXIS));
+            this.minX = lowX;
+            this.minY = lowY;
+            this.cellSize = cell;
+            this.columns = (int) (width / cell) + 1;
+            this.rows = (int) (height / cell) + 1;
+            
+            // Count items per cell, then place them
+            this.cellStarts = new int[columns * rows + 1];
+            for (int item = 0; item < items; item++) {
+                forEachCell(item, c -> cellStarts[c + 1]++);
+            }
+            for (int c = 0; c < columns * rows; c++) {
+                cellStarts[c + 1] += cellStarts[c];
+            }
+            this.cellItems = new int[cellStarts[columns * rows]];
+            int[] fill = Arrays.copyOf(cellStarts, columns * rows);
+            for (int item = 0; item < items; item++) {
+                final int placed = item;
+                forEachCell(item, c -> cellItems[fill[c]++] = placed);
+            }
+        }
+        
+        private interface CellVisitor {
+            void visit(int cell);
+        }
+        
+        private void forEachCell(int item, CellVisitor visitor) {
+            if (item < rooms.length) {
+                visitor.visit(row(roomY[item]) * columns + column(roomX[item]));
+                return;
+            }
+            int j = item - rooms.length;
+            int fromColumn = column(Math.min(pathX[2 * j], pathX[2 * j + 1]));
+            int toColumn = column(Math.max(pathX[2 * j], pathX[2 * j + 1]));
+            int fromRow = row(Math.min(pathY[2 * j], pathY[2 * j + 1]));
+            int toRow = row(Math.max(pathY[2 * j], pathY[2 * j + 1]));
+            for (int row = fromRow; row <= toRow; row++) {
+                for (int column = fromColumn; column <= toColumn; column++) {
+                    visitor.visit(row * columns + column);
+                }
+            }
+        }
+        
+        private int column(double x) {
+            return Math.max(0, Math.min(columns - 1, (int) Math.floor((x - minX) / cellSize)));
+        }
+        
+        private int row(double y) {
+            return Math.max(0, Math.min(rows - 1, (int) Math.floor((y - minY) / cellSize)));
+        }
+        
+        /**
+         * Position along the path nearest to (x, y), from 0 at its start to 1 at its end
+         */
+        private double fractionAlong(int j, double x, double y) {
+            double dx = pathX[2 * j + 1] - pathX[2 * j];
+            double dy = pathY[2 * j + 1] - pathY[2 * j];
+            double lengthSquared = dx * dx + dy * dy;
+            if (lengthSquared == 0) return 0;
+            double t = ((x - pathX[2 * j]) * dx + (y - pathY[2 * j]) * dy) / lengthSquared;
+            return Math.max(0, Math.min(1, t));
+        }
+        
+        private double distanceTo(int item, double x, double y) {
+            if (item < rooms.length) return Math.hypot(x - roomX[item], y - roomY[item]);
+            
+            int j = item - rooms.length;
+            double t = fractionAlong(j, x, y);
+            return Math.hypot(x - (pathX[2 * j] + t * (pathX[2 * j + 1] - pathX[2 * j])),
+                              y - (pathY[2 * j] + t * (pathY[2 * j + 1] - pathY[2 * j])));
+        }
+        
+        private SnappedPosition snap(int item, double x, double y) {
+            if (item < rooms.length) {
+                return new SnappedPosition(rooms[item], null, 0, roomX[item], roomY[item], floor,
+                                           Math.hypot(x - roomX[item], y - roomY[item]));
+            }
+            
+            int j = item - rooms.length;
+            double t = fractionAlong(j, x, y);
+            double snappedX = pathX[2 * j] + t * (pathX[2 * j + 1] - pathX[2 * j]);
+            double snappedY = pathY[2 * j] + t * (pathY[2 * j + 1] - pathY[2 * j]);
+            Path path = paths[j];
+            return new SnappedPosition(t <= 0.5 ? path.getFromRoom() : path.getToRoom(), path, t,
+                                       snappedX, snappedY, floor, Math.hypot(x - snappedX, y - snappedY));
+        }
+        
+        List<SnappedPosition> nearest(double x, double y, int k) {
+            k = Math.min(k, rooms.length + paths.length);
+            int[] best = new int[k]; // Closest items so far, ordered by distance
+            double[] bestDistance = new double[k];
+            int found = 0;
+            int centerColumn = column(x);
+            int centerRow = row(y);
+            
+            for (int ring = 0; ; ring++) {
+                int left = centerColumn - ring, right = centerColumn + ring;
+                int bottom = centerRow - ring, top = centerRow + ring;
+                for (int row = Math.max(bottom, 0); row <= Math.min(top, rows - 1); row++) {
+                    if (row == bottom || row == top) {
+                        for (int column = Math.max(left, 0); column <= Math.min(right, columns - 1); column++) {
+                            found = scan(row * columns + column, x, y, best, bestDistance, found);
+                        }
+                    } else {
+                        if (left >= 0) found = scan(row * columns + left, x, y, best, bestDistance, found);
+                        if (right < columns) found = scan(row * columns + right, x, y, best, bestDistance, found);
+                    }
+                }
+                
+                // Anything not yet visited lies outside the square of rings searched so far
+                double unvisited = Double.POSITIVE_INFINITY;
+                if (left > 0) unvisited = Math.min(unvisited, x - (minX + left * cellSize));
+                if (right < columns - 1) unvisited = Math.min(unvisited, minX + (right + 1) * cellSize - x);
+                if (bottom > 0) unvisited = Math.min(unvisited, y - (minY + bottom * cellSize));
+                if (top < rows - 1) unvisited = Math.min(unvisited, minY + (top + 1) * cellSize - y);
+                if (unvisited == Double.POSITIVE_INFINITY || (found == k && bestDistance[k - 1] <= unvisited)) break;
+            }
+            
+            List<SnappedPosition> result = new ArrayList<>(found);
+            for (int i = 0; i < found; i++) {
+                result.add(snap(best[i], x, y));
+            }
+            return result;
+        }
+        
+        private int scan(int cell, double x, double y, int[] best, double[] bestDistance, int found) {
+            for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+                found = offer(cellItems[i], distanceTo(cellItems[i], x, y), best, bestDistance, found);
+            }
+            return found;
+        }
+        
+        /**
+         * Insert an item into the ordered top-k arrays; a path seen again from another cell is skipped
+         */
+        private static int offer(int item, double distance, int[] best, double[] bestDistance, int found) {
+            if (found == best.length && distance >= bestDistance[found - 1]) return found;
+            for (int i = 0; i < found; i++) {
+                if (best[i] == item) return found;
+            }
+            
+            int i = found == best.length ? found - 1 : found++;
+            for (; i > 0 && bestDistance[i - 1] > distance; i--) {
+                best[i] = best[i - 1];
+                bestDistance[i] = bestDistance[i - 1];
+            }
+            best[i] = item;
+            bestDistance[i] = distance;
+            return found;
+        }
+        
+        List<SnappedPosition> within(double x, double y, double radius) {
+            BitSet seen = new BitSet(rooms.length + paths.length);
+            List<SnappedPosition> result = new ArrayList<>();
+            for (int row = row(y - radius); row <= row(y + radius); row++) {
+                for (int column = column(x - radius); column <= column(x + radius); column++) {
+                    int cell = row * columns + column;
+                    for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+                        int item = cellItems[i];
+                        if (seen.get(item)) continue;
+                        seen.set(item);
+                        if (distanceTo(item, x, y) <= radius) result.add(snap(item, x, y));
+                    }
+                }
+            }
+            result.sort(Comparator.comparingDouble(SnappedPosition::getDistance));
+            return result;
+        }
+    }
+    
+    private final Map<Integer, FloorGrid> floors;
+    
+    private RoomSpatialIndex(Map<Integer, FloorGrid> floors) {
+        this.floors = floors;
+    }
+    
+    static RoomSpatialIndex build(GraphSnapshot snapshot) {
+        Map<Integer, List<Room>> roomsByFloor = new HashMap<>();
+        Map<Integer, List<Path>> pathsByFloor = new HashMap<>();
+        for (Room room : snapshot.getAllRooms()) {
+            if (room.hasPosition()) roomsByFloor.computeIfAbsent(room.getFloor(), f -> new ArrayList<>()).add(room);
+        }
+        for (int edgeId = 0; edgeId < snapshot.getEdgeCapacity(); edgeId++) {
+            Path path = snapshot.getEdge(edgeId);
+            int twinEdgeId = snapshot.getTwinEdgeId(edgeId);
+            if (path == null || (twinEdgeId >= 0 && twinEdgeId < edgeId)) continue; // One entry per pair
+            
+            Room from = path.getFromRoom();
+            Room to = path.getToRoom();
+            if (from.hasPosition() && to.hasPosition() && from.getFloor() == to.getFloor()) {
+                pathsByFloor.computeIfAbsent(from.getFloor(), f -> new ArrayList<>()).add(path);
+            }
+        }
+        
+        Map<Integer, FloorGrid> floors = new HashMap<>();
+        for (Map.Entry<Integer, List<Room>> entry : roomsByFloor.entrySet()) {
+            floors.put(entry.getKey(), new FloorGrid(entry.getKey(), entry.getValue(),
+                       pathsByFloor.getOrDefault(entry.getKey(), Collections.emptyList())));
+        }
+        return new RoomSpatialIndex(floors);
+    }
+    
+    List<SnappedPosition> nearest(double x, double y, int floor, int k) {
+        FloorGrid grid = floors.get(floor);
+        return grid != null && k > 0 ? grid.nearest(x, y, k) : Collections.emptyList();
+    }
+    
+    List<SnappedPosition> within(double x, double y, int floor, double radius) {
+        FloorGrid grid = floors.get(floor);
+        return grid != null && radius >= 0 ? grid.within(x, y, radius) : Collections.emptyList();
+    }
+}
\ No newline at end of file
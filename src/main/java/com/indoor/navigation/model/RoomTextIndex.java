@@ -0,0 +1,111 @@
+package com.indoor.navigation.model;
+
+import java.util.*;
+
+/**
+ * Inverted trigram index over the searchable text of each room: name, description, room
+ * type and landmarks. Posting lists are sorted arrays of room indices. A substring query
+ * intersects the lists of its trigrams, rarest first, and verifies the few survivors against
+ * the stored lowercase text. Queries shorter than a trigram scan that stored text instead.
+ * Updated incrementally per room; guarded by the graph lock.
+ */
+final class RoomTextIndex {
+    private static final int GRAM = 3;
+    
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Map<Integer, String[]> fields = new TreeMap<>(); // Room index -> lowercase searchable text
+    
+    void add(int index, Room room) {
+        remove(index);
+        List<String> text = new ArrayList<>();
+        text.add(room.getName());
+        text.add(room.getDescription());
+        text.add(room.getRoomType().getDisplayName());
+        text.addAll(room.getLandmarks());
+        
+        String[] normalized = new String[text.size()];
+        for (int i = 0; i < normalized.length; i++) {
+            normalized[i] = RoomAttributeIndex.normalize(text.get(i));
+        }
+        fields.put(index, normalized);
+        for (String gram : grams(normalized)) {
+            postings.computeIfAbsent(gram, k -> new PostingList()).add(index);
+        }
+    }
+    
+    void remove(int index) {
+        String[] normalized = fields.remove(index);
+        if (normalized == null) return;
+        
+        for (String gram : grams(normalized)) {
+            PostingList list = postings.get(gram);
+            if (list == null) continue;
+            list.remove(index);
+            if (list.size() == 0) postings.remove(gram);
+        }
+    }
+    
+    /**
+     * Indices, ascending, of rooms where some field contains the query (ignoring case)
+     */
+    int[] search(String query) {
+        String normalized = RoomAttributeIndex.normalize(query);
+        if (normalized.length() < GRAM) return scan(normalized);
+        
+        List<PostingList> lists = new ArrayList<>();
+        for (String gram : grams(new String[] {normalized})) {
+            PostingList list = postings.get(gram);
+            if (list == null) return new int[0];
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(PostingList::size));
+        
+        int[] candidates = lists.get(0).toArray();
+        int count = candidates.length;
+        for (int i = 1; i < lists.size() && count > 0; i++) {
+            count = lists.get(i).retainIn(candidates, count);
+        }
+        
+        // Trigrams may match in different fields or out of order: verify each candidate
+        int matches = 0;
+        for (int i = 0; i < count; i++) {
+            if (contains(fields.get(candidates[i]), normalized)) candidates[matches++] = candidates[i];
+        }
+        return Arrays.copyOf(candidates, matches);
+    }
+    
+    static RoomTextIndex build(GraphSnapshot snapshot) {
+        RoomTextIndex index = new RoomTextIndex();
+        for (int i = 0; i < snapshot.getRoomIndexCapacity(); i++) {
+            Room room = snapshot.getRoomByIndex(i);
+            if (room != null) index.add(i, room);
+        }
+        return index;
+    }
+    
+    private int[] scan(String normalized) {
+        int[] matches = new int[fields.size()];
+        int count = 0;
+        for (Map.Entry<Integer, String[]> entry : fields.entrySet()) {
+            if (contains(entry.getValue(), normalized)) matches[count++] = entry.getKey();
+        }
+        return Arrays.copyOf(matches, count);
+    }
+    
+    private static boolean contains(String[] normalized, String query) {
+        for (String field : normalized) {
+            if (field.contains(query)) return true;
+        }
+        return false;
+    }
+    
+    private static Set<String> grams(String[] normalized) {
+        Set<String> grams = new HashSet<>();
+        for (String field : normalized) {
+            for (int i = 0; i + GRAM <= field.length(); i++) {
+                grams.add(field.substring(i, i + GRAM));
+            }
+        }
+        return grams;
+    }
+}
\ No newline at end of file
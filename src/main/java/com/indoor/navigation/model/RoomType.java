@@ -37,6 +37,17 @@ public enum RoomType {
     public double getCrowdFactor() { return crowdFactor; }
     public boolean requiresSpecialAccess() { return requiresSpecialAccess; }
 
+    /**
+     * Smallest crowd factor of any room type, used to bound mode weights from below
+     */
+    public static double getMinimumCrowdFactor() {
+        double min = Double.POSITIVE_INFINITY;
+        for (RoomType roomType : values()) {
+            min = Math.min(min, roomType.crowdFactor);
+        }
+        return min;
+    }
+
     public static RoomType fromString(String type) {
         for (RoomType roomType : values()) {
             if (roomType.name().equalsIgnoreCase(type) || 
@@ -0,0 +1,42 @@
+package com.indoor.navigation.model;
+
+/**
+ * A positioning fix snapped onto the floor plan: either a room's own position or the closest
+ * point along a path between two rooms on the same floor.
+ */
+public final class SnappedPosition {
+    private final Room room; // The matched room, or the path endpoint nearer to the fix
+    private final Path path; // Null when the fix snapped to a room
+    private final double fraction; // Position along the path from its start room, 0 to 1
+    private final double x;
+    private final double y;
+    private final int floor;
+    private final double distance; // From the fix to the snapped point, in meters
+    
+    SnappedPosition(Room room, Path path, double fraction, double x, double y, int floor, double distance) {
+        this.room = room;
+        this.path = path;
+        this.fraction = fraction;
+        this.x = x;
+        this.y = y;
+        this.floor = floor;
+        this.distance = distance;
+    }
+    
+    public Room getRoom() { return room; }
+    public Path getPath() { return path; }
+    public double getFraction() { return fraction; }
+    public double getX() { return x; }
+    public double getY() { return y; }
+    public int getFloor() { return floor; }
+    public double getDistance() { return distance; }
+    
+    public boolean isOnPath() { return path != null; }
+    
+    @Override
+    public String toString() {
+        return isOnPath() ? String.format("SnappedPosition{%s → %s at %.0f%%, %.1fm away}",
+                                          path.getFromRoom().getId(), path.getToRoom().getId(), fraction * 100, distance) :
+                            String.format("SnappedPosition{%s, %.1fm away}", room.getId(), distance);
+    }
+}
\ No newline at end of file
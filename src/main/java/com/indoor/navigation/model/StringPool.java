@@ -0,0 +1,28 @@
+package com.indoor.navigation.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Deduplicating pool for the small closed vocabularies repeated across a map (path types and
+ * feature keys), so every path or room holding the same text shares one String. Loaders
+ * produce a fresh String per record otherwise. Free text such as instructions and feature
+ * values is never pooled, and once the pool holds MAX_SIZE strings new text passes through
+ * unpooled, so a map with an open-ended vocabulary cannot grow it without bound.
+ */
+final class StringPool {
+    static final int MAX_SIZE = 4096;
+    private static final Map<String, String> POOL = new ConcurrentHashMap<>();
+    
+    private StringPool() {}
+    
+    static String intern(String text) {
+        if (text == null) return null;
+        String pooled = POOL.get(text);
+        if (pooled != null) return pooled;
+        if (POOL.size() >= MAX_SIZE) return text;
+        
+        pooled = POOL.putIfAbsent(text, text);
+        return pooled != null ? pooled : text;
+    }
+}
\ No newline at end of file
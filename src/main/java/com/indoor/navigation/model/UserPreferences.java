@@ -18,6 +18,7 @@ public class UserPreferences {
     private List<String> navigationHistory;
     private String preferredVoice;
     private double instructionPauseTime; // seconds between instructions
+    private int credentialMask; // AccessGroup bitmask the user may enter
     
     public UserPreferences() {
         this("default_user");
@@ -36,6 +37,7 @@ public class UserPreferences {
         this.navigationHistory = new ArrayList<>();
         this.preferredVoice = "default";
         this.instructionPauseTime = 2.0;
+        this.credentialMask = AccessGroup.PUBLIC;
     }
     
     public void addToHistory(String destination) {
@@ -87,6 +89,7 @@ public class UserPreferences {
     public List<String> getNavigationHistory() { return navigationHistory; }
     public String getPreferredVoice() { return preferredVoice; }
     public double getInstructionPauseTime() { return instructionPauseTime; }
+    public int getCredentialMask() { return credentialMask; }
     
     public void setUserId(String userId) { this.userId = userId; }
     public void setPreferredMode(NavigationMode preferredMode) { this.preferredMode = preferredMode; }
@@ -101,6 +104,9 @@ public class UserPreferences {
         this.useLandmarkInstructions = useLandmarkInstructions; 
     }
     public void setPreferredVoice(String preferredVoice) { this.preferredVoice = preferredVoice; }
+    public void setCredentialMask(int credentialMask) { this.credentialMask = credentialMask; }
+    public void grantAccess(AccessGroup group) { this.credentialMask |= group.getMask(); }
+    public void revokeAccess(AccessGroup group) { this.credentialMask &= ~group.getMask(); }
     public void setInstructionPauseTime(double instructionPauseTime) { 
         this.instructionPauseTime = Math.max(0.5, Math.min(10.0, instructionPauseTime)); 
     }
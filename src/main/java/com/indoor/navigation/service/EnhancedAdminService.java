@@ -4,7 +4,6 @@ import com.indoor.navigation.model.*;
 import com.indoor.navigation.storage.DataPersistenceManager;
 import com.indoor.navigation.utils.EnhancedSampleDataInitializer;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Enhanced admin service with comprehensive building management
@@ -216,10 +215,18 @@ public class EnhancedAdminService {
         System.out.println("\n✏️ EDIT ROOM PROPERTIES");
         System.out.println("═══════════════════════════════════");
         
-        Room room = selectRoom();
-        if (room == null) return;
+        Room selected = selectRoom();
+        if (selected == null) return;
+        String roomId = selected.getId();
         
         while (true) {
+            // Edits publish a copy, so show the room as the graph holds it now
+            Room room = graph.getRoomById(roomId);
+            if (room == null) {
+                System.out.println("❌ Room no longer exists!");
+                return;
+            }
+            
             System.out.println("\nCurrent Room Properties:");
             System.out.println("1. Name: " + room.getName());
             System.out.println("2. Description: " + room.getDescription());
@@ -238,11 +245,13 @@ public class EnhancedAdminService {
             switch (choice) {
                 case "1":
                     System.out.print("New name: ");
-                    room.setName(scanner.nextLine().trim());
+                    String newName = scanner.nextLine().trim();
+                    graph.updateRoom(roomId, r -> r.setName(newName));
                     break;
                 case "2":
                     System.out.print("New description: ");
-                    room.setDescription(scanner.nextLine().trim());
+                    String newDescription = scanner.nextLine().trim();
+                    graph.updateRoom(roomId, r -> r.setDescription(newDescription));
                     break;
                 case "3":
                     // Room type selection logic here
@@ -250,7 +259,8 @@ public class EnhancedAdminService {
                 case "4":
                     System.out.print("New floor: ");
                     try {
-                        room.setFloor(Integer.parseInt(scanner.nextLine().trim()));
+                        int newFloor = Integer.parseInt(scanner.nextLine().trim());
+                        graph.updateRoom(roomId, r -> r.setFloor(newFloor));
                     } catch (NumberFormatException e) {
                         System.out.println("❌ Invalid floor number!");
                     }
@@ -258,24 +268,25 @@ public class EnhancedAdminService {
                 case "5":
                     System.out.print("New width (meters): ");
                     try {
-                        room.setWidth(Double.parseDouble(scanner.nextLine().trim()));
+                        double newWidth = Double.parseDouble(scanner.nextLine().trim());
+                        graph.updateRoom(roomId, r -> r.setWidth(newWidth));
                     } catch (NumberFormatException e) {
                         System.out.println("❌ Invalid width!");
                     }
                     break;
                 case "6":
-                    room.setAccessible(!room.isAccessible());
-                    System.out.println("Accessibility toggled to: " + room.isAccessible());
+                    graph.updateRoom(roomId, r -> r.setAccessible(!r.isAccessible()));
+                    System.out.println("Accessibility toggled to: " + graph.getRoomById(roomId).isAccessible());
                     break;
                 case "7":
-                    room.setEmergencyExit(!room.isEmergencyExit());
-                    System.out.println("Emergency exit toggled to: " + room.isEmergencyExit());
+                    graph.updateRoom(roomId, r -> r.setEmergencyExit(!r.isEmergencyExit()));
+                    System.out.println("Emergency exit toggled to: " + graph.getRoomById(roomId).isEmergencyExit());
                     break;
                 case "8":
-                    editRoomFeatures(room);
+                    editRoomFeatures(roomId);
                     break;
                 case "9":
-                    editRoomLandmarks(room);
+                    editRoomLandmarks(roomId);
                     break;
                 case "0":
                     System.out.println("✅ Room properties updated!");
@@ -286,8 +297,11 @@ public class EnhancedAdminService {
         }
     }
     
-    private void editRoomFeatures(Room room) {
+    private void editRoomFeatures(String roomId) {
         while (true) {
+            Room room = graph.getRoomById(roomId);
+            if (room == null) return;
+            
             System.out.println("\nCurrent Features:");
             if (room.getFeatures().isEmpty()) {
                 System.out.println("  No features defined");
@@ -309,13 +323,13 @@ public class EnhancedAdminService {
                     String name = scanner.nextLine().trim();
                     System.out.print("Feature value: ");
                     String value = scanner.nextLine().trim();
-                    room.addFeature(name, value);
+                    graph.updateRoom(roomId, r -> r.addFeature(name, value));
                     System.out.println("✓ Feature added");
                     break;
                 case "2":
                     System.out.print("Feature name to remove: ");
                     String toRemove = scanner.nextLine().trim();
-                    room.removeFeature(toRemove);
+                    graph.updateRoom(roomId, r -> r.removeFeature(toRemove));
                     System.out.println("✓ Feature removed");
                     break;
                 case "0":
@@ -324,8 +338,11 @@ public class EnhancedAdminService {
         }
     }
     
-    private void editRoomLandmarks(Room room) {
+    private void editRoomLandmarks(String roomId) {
         while (true) {
+            Room room = graph.getRoomById(roomId);
+            if (room == null) return;
+            
             System.out.println("\nCurrent Landmarks:");
             if (room.getLandmarks().isEmpty()) {
                 System.out.println("  No landmarks defined");
@@ -346,7 +363,7 @@ public class EnhancedAdminService {
                 case "1":
                     System.out.print("Landmark description: ");
                     String landmark = scanner.nextLine().trim();
-                    room.addLandmark(landmark);
+                    graph.updateRoom(roomId, r -> r.addLandmark(landmark));
                     System.out.println("✓ Landmark added");
                     break;
                 case "2":
@@ -355,7 +372,7 @@ public class EnhancedAdminService {
                         int index = Integer.parseInt(scanner.nextLine().trim()) - 1;
                         if (index >= 0 && index < room.getLandmarks().size()) {
                             String removed = room.getLandmarks().get(index);
-                            room.removeLandmark(removed);
+                            graph.updateRoom(roomId, r -> r.removeLandmark(removed));
                             System.out.println("✓ Landmark removed: " + removed);
                         } else {
                             System.out.println("❌ Invalid landmark number!");
@@ -404,48 +421,39 @@ public class EnhancedAdminService {
         System.out.println("\n📊 BUILDING STATISTICS");
         System.out.println("═══════════════════════════════════════════════════════");
         
-        Map<String, Object> stats = graph.getBuildingStats();
+        BuildingStats stats = graph.getBuildingStats();
         
         System.out.println("📈 GENERAL STATISTICS:");
-        System.out.printf("  Total Rooms: %d%n", stats.get("total_rooms"));
-        System.out.printf("  Total Paths: %d%n", stats.get("total_paths"));
-        System.out.printf("  Number of Floors: %d%n", stats.get("floors"));
-        System.out.printf("  Accessible Rooms: %d%n", stats.get("accessible_rooms"));
-        System.out.printf("  Blocked Rooms: %d%n", stats.get("blocked_rooms"));
-        System.out.printf("  Temporarily Blocked Paths: %d%n", stats.get("temporarily_blocked_paths"));
-        
-        @SuppressWarnings("unchecked")
-        Map<RoomType, Long> roomTypes = (Map<RoomType, Long>) stats.get("room_types");
+        System.out.printf("  Total Rooms: %d%n", stats.getTotalRooms());
+        System.out.printf("  Total Paths: %d%n", stats.getTotalPaths());
+        System.out.printf("  Number of Floors: %d%n", stats.getFloorCount());
+        System.out.printf("  Accessible Rooms: %d%n", stats.getAccessibleRooms());
+        System.out.printf("  Blocked Rooms: %d%n", stats.getBlockedRooms());
+        System.out.printf("  Blocked Paths: %d%n", stats.getBlockedPaths());
+        System.out.printf("  Temporarily Blocked Paths: %d%n", stats.getTemporarilyBlockedPaths());
+        
         System.out.println("\n🏢 ROOM TYPE DISTRIBUTION:");
-        roomTypes.entrySet().stream()
-            .sorted(Map.Entry.<RoomType, Long>comparingByValue().reversed())
+        stats.getRoomTypes().entrySet().stream()
+            .sorted(Map.Entry.<RoomType, Integer>comparingByValue().reversed())
             .forEach(entry -> System.out.printf("  %-20s: %d%n", 
                                                entry.getKey().getDisplayName(), 
                                                entry.getValue()));
         
         // Floor statistics
         System.out.println("\n🏗️ FLOOR DISTRIBUTION:");
-        Map<Integer, Long> floorStats = graph.getAllRooms().stream()
-            .collect(Collectors.groupingBy(Room::getFloor, Collectors.counting()));
-        floorStats.entrySet().stream()
-            .sorted(Map.Entry.comparingByKey())
-            .forEach(entry -> System.out.printf("  Floor %d: %d rooms%n", 
-                                               entry.getKey(), entry.getValue()));
+        stats.getRoomsPerFloor()
+            .forEach((floor, rooms) -> System.out.printf("  Floor %d: %d rooms%n", floor, rooms));
         
         // Accessibility statistics
         System.out.println("\n♿ ACCESSIBILITY STATISTICS:");
-        long accessibleRooms = graph.getAllRooms().stream()
-            .mapToLong(room -> room.isAccessible() ? 1 : 0).sum();
         long roomsWithFeatures = graph.getAllRooms().stream()
             .mapToLong(room -> room.getFeatures().isEmpty() ? 0 : 1).sum();
-        long emergencyExits = graph.getAllRooms().stream()
-            .mapToLong(room -> room.isEmergencyExit() ? 1 : 0).sum();
         
         System.out.printf("  Accessible Rooms: %d (%.1f%%)%n", 
-                         accessibleRooms, 
-                         100.0 * accessibleRooms / graph.getAllRooms().size());
+                         stats.getAccessibleRooms(), 
+                         100.0 * stats.getAccessibleRooms() / stats.getTotalRooms());
         System.out.printf("  Rooms with Accessibility Features: %d%n", roomsWithFeatures);
-        System.out.printf("  Emergency Exits: %d%n", emergencyExits);
+        System.out.printf("  Emergency Exits: %d%n", stats.getEmergencyExits());
     }
     
     private void generateAccessibilityReport() {
@@ -501,9 +509,10 @@ public class EnhancedAdminService {
         List<Path> allPaths = new ArrayList<>();
         int pathIndex = 1;
         
-        for (Room room : graph.getAllRooms()) {
-            for (Path path : graph.getPathsFromRoom(room.getId())) {
-                if (!path.isCurrentlyBlocked()) {
+        GraphSnapshot snapshot = graph.getSnapshot();
+        for (Room room : snapshot.getAllRooms()) {
+            for (Path path : snapshot.getPathsFromRoom(room.getId())) {
+                if (!snapshot.isPathBlocked(path)) {
                     System.out.printf("%2d. %s → %s (%.1fm)%n", 
                                     pathIndex++, 
                                     path.getFromRoom().getName(),
@@ -590,14 +599,69 @@ public class EnhancedAdminService {
     private void exportMap() { /* Implementation */ }
     private void importSampleData() { 
         NavigationGraph sampleGraph = EnhancedSampleDataInitializer.createComprehensiveSampleMap();
-        // Copy rooms and paths from sample to current graph
-        System.out.println("✅ Sample data imported");
+        // Copy rooms and paths from sample to current graph, as a single version
+        NavigationGraph.Batch batch = graph.batch();
+        sampleGraph.getAllRooms().forEach(batch::addRoom);
+        Set<String> copiedPairs = new HashSet<>();
+        for (Room room : sampleGraph.getAllRooms()) {
+            for (Path path : sampleGraph.getPathsFromRoom(room.getId())) {
+                // addPath creates the reverse direction itself
+                String toId = path.getToRoom().getId();
+                if (copiedPairs.contains(toId + "|" + room.getId())) continue;
+                copiedPairs.add(room.getId() + "|" + toId);
+                batch.addPath(path);
+            }
+        }
+        batch.commit();
+        System.out.printf("✅ Sample data imported: %d rooms, %d paths%n", 
+                         sampleGraph.getAllRooms().size(), copiedPairs.size());
     }
     private void generateQRCodes() { qrCodeService.generateQRCodes("qr_codes"); }
     private void validateQRCodes() { qrCodeService.validateQRCodes(); }
     private void showQRCodeStatistics() { qrCodeService.showQRCodeStatistics(); }
     private void generateInstallationGuide() { /* Implementation */ }
-    private void bulkOperations() { /* Implementation */ }
+    private void bulkOperations() {
+        System.out.println("\n📦 BULK OPERATIONS");
+        System.out.println("═══════════════════════════════════");
+        System.out.println("1. Block all paths on a floor");
+        System.out.println("2. Unblock all paths on a floor");
+        System.out.println("3. Remove all rooms on a floor");
+        System.out.print("Choose operation: ");
+        String operation = scanner.nextLine().trim();
+        
+        System.out.print("Floor: ");
+        int floor;
+        try {
+            floor = Integer.parseInt(scanner.nextLine().trim());
+        } catch (NumberFormatException e) {
+            System.out.println("❌ Invalid floor!");
+            return;
+        }
+        
+        // Staged and committed as one version, so navigation and caches see a single change
+        NavigationGraph.Batch batch = graph.batch();
+        switch (operation) {
+            case "1":
+            case "2":
+                boolean block = operation.equals("1");
+                for (Room room : graph.getRoomsOnFloor(floor)) {
+                    for (Path path : graph.getPathsFromRoom(room.getId())) {
+                        batch.blockPath(room.getId(), path.getToRoom().getId(), block, "Floor closed by administrator");
+                    }
+                }
+                break;
+            case "3":
+                graph.getRoomsOnFloor(floor).forEach(room -> batch.removeRoom(room.getId()));
+                break;
+            default:
+                System.out.println("❌ Invalid option!");
+                return;
+        }
+        
+        int changes = batch.size();
+        long version = batch.commit();
+        System.out.printf("✅ Applied %d changes as graph version %d%n", changes, version);
+    }
     private void systemMaintenance() { /* Implementation */ }
     private void testNavigation() { /* Implementation */ }
     private void performanceAnalysis() { /* Implementation */ }
@@ -2,10 +2,19 @@ package com.indoor.navigation.service;
 
 import com.indoor.navigation.algorithm.EnhancedDijkstraPathfinder;
 import com.indoor.navigation.algorithm.EnhancedDijkstraPathfinder.PathResult;
+import com.indoor.navigation.algorithm.MeetingPointFinder;
+import com.indoor.navigation.algorithm.MeetingPointFinder.MeetingPoint;
+import com.indoor.navigation.algorithm.MultiStopPlanner;
+import com.indoor.navigation.algorithm.CapacityOverlays;
+import com.indoor.navigation.algorithm.ReverseRouteTreeCache;
+import com.indoor.navigation.algorithm.RouteQueryOptions;
 import com.indoor.navigation.model.*;
 import com.indoor.navigation.storage.DataPersistenceManager;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Enhanced navigation service with mode-aware pathfinding and dynamic re-routing
@@ -16,12 +25,19 @@ public class EnhancedNavigationService {
     private VoiceRecognitionService voiceService;
     private QRCodeService qrService;
     private DataPersistenceManager dataManager;
-    private Room currentLocation;
-    private PathResult lastPath;
+    private volatile Room currentLocation; // Also read when rerouting off the caller's thread
+    private volatile PathResult lastPath;
     private UserPreferences userPreferences;
     private NavigationMode currentMode;
-    private List<PathResult> alternativeRoutes;
-    private Timer reRoutingTimer;
+    private volatile List<PathResult> alternativeRoutes; // Replaced whole, never modified
+    private volatile PathResult monitoredRoute; // Route checked against graph changes, or null
+    private final GraphChangeFeed.Subscription graphChanges;
+    private volatile long invalidatedVersion; // Newest version with a change that may block routes
+    private final AtomicBoolean rerouteQueued = new AtomicBoolean();
+    private final ExecutorService rerouter; // Checks, reroutes and announces off the change feed thread
+    private RouteQueryOptions routeQueryOptions; // null = exact routing without a deadline
+    private ReverseRouteTreeCache routeTreeCache; // Off-route recovery towards hot destinations
+    private final CapacityOverlays capacityOverlays; // Width-pruned graphs for beds, carts and wheelchairs
     
     public EnhancedNavigationService(NavigationGraph graph) {
         this.graph = graph;
@@ -32,6 +48,14 @@ public class EnhancedNavigationService {
         this.userPreferences = new UserPreferences();
         this.currentMode = NavigationMode.STANDARD;
         this.alternativeRoutes = new ArrayList<>();
+        this.routeTreeCache = new ReverseRouteTreeCache(graph);
+        this.capacityOverlays = new CapacityOverlays(graph);
+        this.rerouter = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "navigation-reroute");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.graphChanges = graph.getChangeFeed().subscribe(this::onGraphChanges);
         
         // Set up services with preferences
         ttsService.setUserPreferences(userPreferences);
@@ -59,6 +83,7 @@ public class EnhancedNavigationService {
         Room scannedRoom = qrService.scanQRCode();
         if (scannedRoom != null) {
             currentLocation = scannedRoom;
+            graph.getCrowdMonitor().recordScan(scannedRoom.getId());
             String message = String.format("Current location set to: %s on floor %d - %s", 
                                          scannedRoom.getName(), scannedRoom.getFloor(), scannedRoom.getDescription());
             System.out.println("📍 " + message);
@@ -66,11 +91,39 @@ public class EnhancedNavigationService {
             
             // Add to navigation history
             userPreferences.addToHistory(scannedRoom.getName());
+            
+            // Scanned a room that is not on the active route: the user wandered off
+            if (monitoredRoute != null && lastPath != null && !lastPath.getPath().contains(scannedRoom)) {
+                ttsService.speakWarning("You have left the planned route");
+                recoverRoute();
+            }
             return true;
         }
         return false;
     }
     
+    /**
+     * Set the current location from a positioning fix (BLE, Wi-Fi, dead reckoning) instead of
+     * a QR scan: the nearest room, or the nearer end of the nearest path, within maxDistance meters
+     */
+    public boolean setCurrentLocationFromFix(double x, double y, int floor, double maxDistance) {
+        List<SnappedPosition> nearest = graph.findNearestPositions(x, y, floor, 1);
+        if (nearest.isEmpty() || nearest.get(0).getDistance() > maxDistance) {
+            return false;
+        }
+        
+        Room room = nearest.get(0).getRoom();
+        if (!room.equals(currentLocation)) {
+            currentLocation = room;
+            userPreferences.addToHistory(room.getName());
+            if (monitoredRoute != null && lastPath != null && !lastPath.getPath().contains(room)) {
+                ttsService.speakWarning("You have left the planned route");
+                recoverRoute();
+            }
+        }
+        return true;
+    }
+    
     public PathResult navigateToDestination(String destination) {
         return navigateToDestination(destination, currentMode, true);
     }
@@ -107,11 +160,16 @@ public class EnhancedNavigationService {
             return null;
         }
         
+        graph.recordDestinationRequest(targetRoom.getId());
+        
         EnhancedDijkstraPathfinder pathfinder = new EnhancedDijkstraPathfinder();
         UserPreferences prefs = usePreferences ? userPreferences : null;
         
-        PathResult result = pathfinder.findShortestPath(graph, currentLocation.getId(), 
-                                                      targetRoom.getId(), mode, prefs);
+        // Moving a bed or cart: search only paths wide enough for it
+        CapacityClass capacityClass = CapacityClass.fromSetting(userPreferences.getCustomSetting("capacity_class"));
+        PathResult result = capacityClass != null ?
+            capacityOverlays.findShortestPath(currentLocation.getId(), targetRoom.getId(), capacityClass, mode, prefs) :
+            pathfinder.findShortestPath(graph, currentLocation.getId(), targetRoom.getId(), mode, prefs, routeQueryOptions);
         
         if (result.isEmpty()) {
             String error = "No path found to " + destination + " using " + mode.getDisplayName() + " mode";
@@ -140,8 +198,171 @@ public class EnhancedNavigationService {
         return result;
     }
     
+    /**
+     * Navigate through several destinations in the best visiting order,
+     * optionally finishing at a fixed final destination
+     */
+    public PathResult navigateMultiStop(List<String> destinations, String finalDestination) {
+        if (currentLocation == null) {
+            String error = "Please scan QR code to set your current location first.";
+            System.out.println("❌ " + error);
+            ttsService.speakError(error);
+            return null;
+        }
+        
+        List<String> stopIds = new ArrayList<>();
+        for (String destination : destinations) {
+            Room room = findDestinationRoom(destination);
+            if (room == null) {
+                String error = "Destination not found: " + destination;
+                System.out.println("❌ " + error);
+                ttsService.speakError(error);
+                suggestSimilarDestinations(destination);
+                return null;
+            }
+            stopIds.add(room.getId());
+        }
+        
+        String endId = null;
+        if (finalDestination != null) {
+            Room endRoom = findDestinationRoom(finalDestination);
+            if (endRoom == null) {
+                String error = "Final destination not found: " + finalDestination;
+                System.out.println("❌ " + error);
+                ttsService.speakError(error);
+                return null;
+            }
+            endId = endRoom.getId();
+        }
+        
+        MultiStopPlanner planner = new MultiStopPlanner();
+        MultiStopPlanner.Itinerary itinerary = planner.plan(graph, currentLocation.getId(), stopIds, endId, 
+                                                            currentMode, userPreferences);
+        PathResult result = itinerary.getRoute();
+        
+        if (result.isEmpty()) {
+            String error = "No route found that visits all " + stopIds.size() + " stops using " + 
+                          currentMode.getDisplayName() + " mode";
+            System.out.println("❌ " + error);
+            ttsService.speakError(error);
+            return null;
+        }
+        
+        // Announce the chosen visiting order; the route may pass a stop before it is due
+        List<String> order = new ArrayList<>();
+        for (Room stop : itinerary.getStopOrder()) {
+            order.add(stop.getName());
+        }
+        String orderInfo = "Visiting order: " + String.join(" → ", order);
+        System.out.println("🗺️ " + orderInfo);
+        ttsService.speak(orderInfo);
+        
+        lastPath = result;
+        alternativeRoutes = new ArrayList<>();
+        displayNavigationInstructions(result);
+        
+        for (String destination : destinations) {
+            userPreferences.addToHistory(destination);
+        }
+        startDynamicMonitoring(result);
+        
+        return result;
+    }
+    
+    /**
+     * Find a fair meeting room for people at several locations, minimizing either the
+     * total or the longest walk. Allowed types may be empty to consider every room.
+     */
+    public MeetingPoint findMeetingPoint(List<String> participantLocations, MeetingPointFinder.Objective objective,
+                                         Set<RoomType> allowedTypes) {
+        List<String> participantIds = new ArrayList<>();
+        for (String location : participantLocations) {
+            Room room = graph.getRoomById(location);
+            if (room == null) room = graph.findRoomByName(location);
+            if (room == null) {
+                String error = "Participant location not found: " + location;
+                System.out.println("❌ " + error);
+                ttsService.speakError(error);
+                return null;
+            }
+            participantIds.add(room.getId());
+        }
+        
+        MeetingPointFinder finder = new MeetingPointFinder();
+        MeetingPoint meetingPoint = finder.findMeetingPoint(graph, participantIds, objective, allowedTypes, 
+                                                          currentMode, userPreferences);
+        
+        if (meetingPoint == null) {
+            String error = "No meeting place is reachable by everyone";
+            System.out.println("❌ " + error);
+            ttsService.speakError(error);
+            return null;
+        }
+        
+        Room room = meetingPoint.getRoom();
+        String message = String.format("Meet at %s on floor %d (%s: %.1f meters)", 
+                                     room.getName(), room.getFloor(), 
+                                     objective.getDisplayName(), meetingPoint.getObjectiveCost());
+        System.out.println("🤝 " + message);
+        for (int i = 0; i < participantIds.size(); i++) {
+            System.out.printf("   %s: %.1f meters%n", graph.getRoomById(participantIds.get(i)).getName(), 
+                            meetingPoint.getParticipantCosts().get(i));
+        }
+        ttsService.speak(message);
+        
+        return meetingPoint;
+    }
+    
+    /**
+     * Continue to the last destination from the current location. Walks a cached reverse
+     * shortest-path tree when possible and falls back to a full reroute otherwise.
+     */
+    public PathResult recoverRoute() {
+        if (lastPath == null || lastPath.isEmpty() || currentLocation == null) {
+            ttsService.speak("No active navigation to recover");
+            return null;
+        }
+        
+        Room destination = lastPath.getPath().get(lastPath.getPath().size() - 1);
+        
+        // Cached trees ignore personal avoid lists, so only use them when there are none
+        boolean treeUsable = userPreferences.getAvoidRoomTypes().isEmpty() && 
+                            userPreferences.getAvoidPathTypes().isEmpty();
+        if (treeUsable) {
+            int credentials = userPreferences.getCredentialMask();
+            PathResult recovered = routeTreeCache.recover(currentLocation.getId(), destination.getId(), 
+                                                        currentMode, credentials);
+            if (recovered == null) {
+                // A stale tree was dropped during the walk; retry once on a fresh tree
+                recovered = routeTreeCache.recover(currentLocation.getId(), destination.getId(), 
+                                                 currentMode, credentials);
+            }
+            if (recovered != null && !recovered.isEmpty()) {
+                ttsService.speak("Route updated");
+                lastPath = recovered;
+                alternativeRoutes = new ArrayList<>();
+                displayNavigationInstructions(recovered);
+                startDynamicMonitoring(recovered);
+                return recovered;
+            }
+        }
+        
+        ttsService.speak("Recalculating route");
+        return navigateToDestination(destination.getId());
+    }
+    
+    /**
+     * Precompute recovery trees for frequently requested destinations in every navigation mode
+     */
+    public void warmUpRouteTrees(Collection<String> destinationIds) {
+        routeTreeCache.warmUp(destinationIds, NavigationMode.values());
+    }
+    
     private void suggestSimilarDestinations(String query) {
         List<Room> suggestions = graph.searchRooms(query);
+        if (suggestions.isEmpty()) {
+            suggestions = graph.fuzzySearchRooms(query, 5); // Misspelled or misheard names
+        }
         if (!suggestions.isEmpty() && suggestions.size() <= 5) {
             ttsService.speak("Did you mean one of these locations?");
             System.out.println("\n💡 Similar destinations found:");
@@ -194,23 +415,47 @@ public class EnhancedNavigationService {
     }
     
     private void startDynamicMonitoring(PathResult pathResult) {
-        if (reRoutingTimer != null) {
-            reRoutingTimer.cancel();
+        monitoredRoute = pathResult;
+    }
+    
+    /**
+     * Called on the change feed thread as soon as the graph publishes changes. Only notes the
+     * newest change that may block routes: the feed thread serves every subscriber, so the
+     * route check, rerouting and spoken warnings run on the rerouter instead. Changes arriving
+     * while a check is queued are covered by that check.
+     */
+    private void onGraphChanges(List<GraphChangeEvent> changes) {
+        for (int i = changes.size() - 1; i >= 0; i--) {
+            if (changes.get(i).mayInvalidateRoutes()) {
+                invalidatedVersion = Math.max(invalidatedVersion, changes.get(i).getVersion());
+                break;
+            }
         }
+        PathResult route = monitoredRoute;
+        if (route == null || route.getGraphVersion() >= invalidatedVersion) return;
         
-        reRoutingTimer = new Timer();
-        reRoutingTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                checkForDynamicObstacles(pathResult);
-            }
-        }, 10000, 15000); // Check every 15 seconds after initial 10 second delay
+        if (rerouteQueued.compareAndSet(false, true)) {
+            rerouter.execute(this::checkMonitoredRoute);
+        }
+    }
+    
+    private void checkMonitoredRoute() {
+        rerouteQueued.set(false);
+        PathResult route = monitoredRoute;
+        if (route != null && route.getGraphVersion() < invalidatedVersion) {
+            checkForDynamicObstacles(route);
+        }
     }
     
     private void checkForDynamicObstacles(PathResult pathResult) {
+        GraphSnapshot snapshot = graph.getSnapshot();
+        
         // Check if any path in the current route is now blocked
         for (Path pathSegment : pathResult.getPathSegments()) {
-            if (pathSegment.isCurrentlyBlocked()) {
+            if (snapshot.isPathBlocked(pathSegment) || snapshot.isRoomBlocked(pathSegment.getToRoom().getId())) {
+                // Not if the user started another navigation in the meantime
+                if (monitoredRoute != pathResult) return;
+                monitoredRoute = null;
                 handleDynamicObstacle(pathSegment);
                 break;
             }
@@ -221,24 +466,22 @@ public class EnhancedNavigationService {
         String warning = String.format("Path from %s to %s is now blocked: %s", 
                                      blockedPath.getFromRoom().getName(), 
                                      blockedPath.getToRoom().getName(),
-                                     blockedPath.getBlockageInfo());
+                                     graph.getBlockageInfo(blockedPath));
         
         System.out.println("⚠️ " + warning);
         ttsService.speakWarning(warning);
         
         // Try to use alternative route
-        if (!alternativeRoutes.isEmpty()) {
-            PathResult alternative = alternativeRoutes.get(1); // Use second route as alternative
+        List<PathResult> alternatives = alternativeRoutes;
+        if (alternatives.size() > 1) {
+            PathResult alternative = alternatives.get(1); // Use second route as alternative
             ttsService.speak("Switching to alternative route");
             displayNavigationInstructions(alternative);
             lastPath = alternative;
+            startDynamicMonitoring(alternative);
         } else {
             // Recalculate route
-            ttsService.speak("Recalculating route");
-            if (lastPath != null && !lastPath.getPath().isEmpty()) {
-                String lastDestination = lastPath.getPath().get(lastPath.getPath().size() - 1).getName();
-                navigateToDestination(lastDestination);
-            }
+            recoverRoute();
         }
     }
     
@@ -315,7 +558,11 @@ public class EnhancedNavigationService {
         
         // Try search with partial matches
         List<Room> searchResults = graph.searchRooms(destination);
-        return searchResults.isEmpty() ? null : searchResults.get(0);
+        if (!searchResults.isEmpty()) return searchResults.get(0);
+        
+        // Tolerate typos such as "cafetria"
+        List<Room> fuzzyResults = graph.fuzzySearchRooms(destination, 1);
+        return fuzzyResults.isEmpty() ? null : fuzzyResults.get(0);
     }
     
     private void displayNavigationInstructions(PathResult result) {
@@ -441,9 +688,10 @@ public class EnhancedNavigationService {
     }
     
     public void shutdown() {
-        if (reRoutingTimer != null) {
-            reRoutingTimer.cancel();
-        }
+        graphChanges.cancel();
+        rerouter.shutdownNow();
+        routeTreeCache.close();
+        capacityOverlays.close();
         ttsService.shutdown();
         saveUserPreferences();
     }
@@ -456,4 +704,8 @@ public class EnhancedNavigationService {
     public UserPreferences getUserPreferences() { return userPreferences; }
     public NavigationMode getCurrentMode() { return currentMode; }
     public DataPersistenceManager getDataManager() { return dataManager; }
+    public RouteQueryOptions getRouteQueryOptions() { return routeQueryOptions; }
+    public void setRouteQueryOptions(RouteQueryOptions routeQueryOptions) { 
+        this.routeQueryOptions = routeQueryOptions; 
+    }
 }
\ No newline at end of file
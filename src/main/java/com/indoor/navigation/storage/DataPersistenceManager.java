@@ -3,6 +3,7 @@ package com.indoor.navigation.storage;
 import com.indoor.navigation.model.*;
 import java.io.*;
 import java.nio.file.*;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.logging.Logger;
 
@@ -46,7 +47,7 @@ public class DataPersistenceManager {
                 // Save rooms
                 writer.println("ROOMS:");
                 for (Room room : graph.getAllRooms()) {
-                    writer.printf("ROOM|%s|%s|%s|%s|%d|%s|%s|%.1f|%s%n",
+                    writer.printf("ROOM|%s|%s|%s|%s|%d|%s|%s|%.1f|%s|%d|%s|%s%n",
                                 room.getId(),
                                 escapeString(room.getName()),
                                 escapeString(room.getDescription()),
@@ -55,7 +56,10 @@ public class DataPersistenceManager {
                                 room.isAccessible(),
                                 room.isBlocked(),
                                 room.getWidth(),
-                                room.isEmergencyExit());
+                                room.isEmergencyExit(),
+                                room.getAccessGroups(),
+                                room.getX(),
+                                room.getY());
                     
                     // Save room features
                     for (Map.Entry<String, String> feature : room.getFeatures().entrySet()) {
@@ -77,22 +81,24 @@ public class DataPersistenceManager {
                 // Save paths (avoid duplicates by only saving from lower ID to higher ID)
                 Set<String> savedPaths = new HashSet<>();
                 for (Room room : graph.getAllRooms()) {
-                    for (Path path : graph.getPathsFromRoom(room.getId())) {
+                    for (com.indoor.navigation.model.Path path : graph.getPathsFromRoom(room.getId())) {
                         String pathKey = room.getId().compareTo(path.getToRoom().getId()) < 0 ?
                                        room.getId() + "->" + path.getToRoom().getId() :
                                        path.getToRoom().getId() + "->" + room.getId();
                         
                         if (!savedPaths.contains(pathKey)) {
-                            writer.printf("PATH|%s|%s|%.1f|%s|%s|%s|%s|%s|%.1f%n",
+                            writer.printf("PATH|%s|%s|%.1f|%s|%s|%s|%s|%s|%.1f|%d%n",
                                         path.getFromRoom().getId(),
                                         path.getToRoom().getId(),
                                         path.getDistance(),
                                         escapeString(path.getInstruction()),
-                                        escapeString(path.getLandmarkInstruction()),
+                                        escapeString(path.hasCustomLandmarkInstruction() ?
+                                                     path.getLandmarkInstruction() : ""), // Regenerated on load
                                         path.getPathType(),
                                         path.isAccessible(),
                                         path.isBlocked(),
-                                        path.getWidth());
+                                        path.getWidth(),
+                                        path.getAccessGroups());
                             savedPaths.add(pathKey);
                         }
                     }
@@ -112,12 +118,12 @@ public class DataPersistenceManager {
      * Load navigation graph from file
      */
     public NavigationGraph loadNavigationGraph(String mapName) {
-        NavigationGraph graph = new NavigationGraph();
+        GraphBuilder builder = new GraphBuilder();
         Path filePath = Paths.get(DATA_DIR, mapName + "_map.txt");
         
         if (!Files.exists(filePath)) {
             logger.warning("Map file not found: " + filePath);
-            return graph;
+            return builder.build();
         }
         
         try (BufferedReader reader = Files.newBufferedReader(filePath)) {
@@ -132,22 +138,22 @@ public class DataPersistenceManager {
                 switch (parts[0]) {
                     case "ROOM":
                         if (parts.length >= 9) {
-                            parseRoom(parts, graph);
+                            parseRoom(parts, builder);
                         }
                         break;
                     case "FEATURE":
                         if (parts.length >= 4) {
-                            parseRoomFeature(parts, graph);
+                            parseRoomFeature(parts, builder);
                         }
                         break;
                     case "LANDMARK":
                         if (parts.length >= 3) {
-                            parseRoomLandmark(parts, graph);
+                            parseRoomLandmark(parts, builder);
                         }
                         break;
                     case "PATH":
                         if (parts.length >= 9) {
-                            parsePath(parts, graph);
+                            parsePath(parts, builder);
                         }
                         break;
                 }
@@ -159,10 +165,44 @@ public class DataPersistenceManager {
             logger.severe("Error loading navigation graph: " + e.getMessage());
         }
         
-        return graph;
+        return builder.build();
     }
     
-    private void parseRoom(String[] parts, NavigationGraph graph) {
+    /**
+     * Export the graph as a memory-mapped image for off-heap, read-only serving
+     */
+    public boolean exportMappedGraph(NavigationGraph graph, String mapName) {
+        try {
+            Path filePath = Paths.get(DATA_DIR, mapName + "_map.img");
+            MappedGraphStore.write(graph, filePath);
+            logger.info("Navigation graph image written to: " + filePath);
+            return true;
+        } catch (IOException e) {
+            logger.severe("Error writing navigation graph image: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Map a graph image exported earlier, or null if there is none; JVMs on one host that open
+     * the same image share its pages
+     */
+    public MappedGraphStore openMappedGraph(String mapName) {
+        Path filePath = Paths.get(DATA_DIR, mapName + "_map.img");
+        if (!Files.exists(filePath)) {
+            logger.warning("Map image not found: " + filePath);
+            return null;
+        }
+        
+        try {
+            return MappedGraphStore.open(filePath);
+        } catch (IOException e) {
+            logger.severe("Error mapping navigation graph image: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    private void parseRoom(String[] parts, GraphBuilder builder) {
         try {
             String id = parts[1];
             String name = unescapeString(parts[2]);
@@ -179,21 +219,27 @@ public class DataPersistenceManager {
             room.setBlocked(blocked);
             room.setWidth(width);
             room.setEmergencyExit(emergencyExit);
+            if (parts.length > 10) {
+                room.setAccessGroups(Integer.parseInt(parts[10]));
+            }
+            if (parts.length > 12) {
+                room.setPosition(Double.parseDouble(parts[11]), Double.parseDouble(parts[12]));
+            }
             
-            graph.addRoom(room);
+            builder.addRoom(room);
             
         } catch (Exception e) {
             logger.warning("Error parsing room: " + e.getMessage());
         }
     }
     
-    private void parseRoomFeature(String[] parts, NavigationGraph graph) {
+    private void parseRoomFeature(String[] parts, GraphBuilder builder) {
         try {
             String roomId = parts[1];
             String key = unescapeString(parts[2]);
             String value = unescapeString(parts[3]);
             
-            Room room = graph.getRoomById(roomId);
+            Room room = builder.getRoom(roomId);
             if (room != null) {
                 room.addFeature(key, value);
             }
@@ -202,12 +248,12 @@ public class DataPersistenceManager {
         }
     }
     
-    private void parseRoomLandmark(String[] parts, NavigationGraph graph) {
+    private void parseRoomLandmark(String[] parts, GraphBuilder builder) {
         try {
             String roomId = parts[1];
             String landmark = unescapeString(parts[2]);
             
-            Room room = graph.getRoomById(roomId);
+            Room room = builder.getRoom(roomId);
             if (room != null) {
                 room.addLandmark(landmark);
             }
@@ -216,7 +262,7 @@ public class DataPersistenceManager {
         }
     }
     
-    private void parsePath(String[] parts, NavigationGraph graph) {
+    private void parsePath(String[] parts, GraphBuilder builder) {
         try {
             String fromId = parts[1];
             String toId = parts[2];
@@ -228,16 +274,22 @@ public class DataPersistenceManager {
             boolean blocked = Boolean.parseBoolean(parts[8]);
             double width = Double.parseDouble(parts[9]);
             
-            Room fromRoom = graph.getRoomById(fromId);
-            Room toRoom = graph.getRoomById(toId);
+            Room fromRoom = builder.getRoom(fromId);
+            Room toRoom = builder.getRoom(toId);
             
             if (fromRoom != null && toRoom != null) {
-                Path path = new Path(fromRoom, toRoom, distance, instruction, pathType, width);
-                path.setLandmarkInstruction(landmarkInstruction);
+                com.indoor.navigation.model.Path path = 
+                    new com.indoor.navigation.model.Path(fromRoom, toRoom, distance, instruction, pathType, width);
+                if (!landmarkInstruction.isEmpty()) {
+                    path.setLandmarkInstruction(landmarkInstruction);
+                }
                 path.setAccessible(accessible);
                 path.setBlocked(blocked);
+                if (parts.length > 10) {
+                    path.setAccessGroups(Integer.parseInt(parts[10]));
+                }
                 
-                graph.addPath(path);
+                builder.addPath(path);
             }
             
         } catch (Exception e) {
@@ -265,6 +317,7 @@ public class DataPersistenceManager {
                 writer.println("USE_LANDMARK_INSTRUCTIONS=" + preferences.isUseLandmarkInstructions());
                 writer.println("PREFERRED_VOICE=" + preferences.getPreferredVoice());
                 writer.println("INSTRUCTION_PAUSE_TIME=" + preferences.getInstructionPauseTime());
+                writer.println("CREDENTIAL_MASK=" + preferences.getCredentialMask());
                 
                 // Save avoid room types
                 if (!preferences.getAvoidRoomTypes().isEmpty()) {
@@ -345,6 +398,9 @@ public class DataPersistenceManager {
                         case "INSTRUCTION_PAUSE_TIME":
                             preferences.setInstructionPauseTime(Double.parseDouble(value));
                             break;
+                        case "CREDENTIAL_MASK":
+                            preferences.setCredentialMask(Integer.parseInt(value));
+                            break;
                         case "AVOID_ROOM_TYPES":
                             for (String roomType : value.split(",")) {
                                 preferences.addAvoidRoomType(RoomType.valueOf(roomType.trim()));
@@ -0,0 +1,578 @@
+package com.indoor.navigation.storage;
+
+import com.indoor.navigation.algorithm.EnhancedDijkstraPathfinder.PathResult;
+import com.indoor.navigation.model.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Read-only image of a navigation graph in a memory-mapped file, kept off the GC heap: rooms
+ * and edges as fixed-size records with each room's outgoing edges contiguous (CSR order), a
+ * table of static edge weights per navigation mode, and a pooled string section. Every JVM
+ * mapping the same file shares one physical copy through the page cache. Room and Path
+ * objects are created on demand as views; routing runs on the mapped records and only
+ * materializes the rooms on the route it finds. Temporary blocks and crowd factors are
+ * captured as of the export; live changes need a new image.
+ */
+public final class MappedGraphStore {
+    private static final int MAGIC = 0x49475246; // "IGRF"
+    private static final int FORMAT_VERSION = 1;
+    private static final int NONE = -1;
+    private static final long MAX_IMAGE_BYTES = Integer.MAX_VALUE; // One mapping per image
+    
+    // Header: counts, then the byte offset of each section
+    private static final int H_MAGIC = 0, H_FORMAT = 4, H_GRAPH_VERSION = 8, H_ROOMS = 16, H_EDGES = 20,
+                             H_MODES = 24, H_PATH_TYPES = 28, H_ROOMS_AT = 32, H_IDS_AT = 36, H_OFFSETS_AT = 40,
+                             H_EDGES_AT = 44, H_WEIGHTS_AT = 48, H_PATH_TYPES_AT = 52, H_STRINGS_AT = 56,
+                             HEADER_BYTES = 64;
+    
+    // Room record; strings are offsets into the string section, NONE for null
+    private static final int R_ID = 0, R_NAME = 4, R_DESCRIPTION = 8, R_LANDMARKS = 12, R_FEATURES = 16,
+                             R_FLOOR = 20, R_ACCESS = 24, R_TYPE = 28, R_FLAGS = 30, R_WIDTH = 32, R_X = 40,
+                             R_Y = 48, ROOM_BYTES = 56;
+    
+    // Edge record; the source is implied by the CSR offsets
+    private static final int E_TARGET = 0, E_PATH_TYPE = 4, E_FLAGS = 6, E_INSTRUCTION = 8, E_LANDMARK = 12,
+                             E_ACCESS = 16, E_REQUIRED_ACCESS = 20, E_DISTANCE = 24, E_WIDTH = 32, EDGE_BYTES = 40;
+    
+    private static final short ACCESSIBLE = 1, BLOCKED = 2, EMERGENCY_EXIT = 4;
+    
+    private final ByteBuffer image;
+    private final long graphVersion;
+    private final int roomCount;
+    private final int edgeCount;
+    private final int pathTypeCount;
+    private final int roomsAt, idsAt, offsetsAt, edgesAt, weightsAt, pathTypesAt, stringsAt;
+    private final ThreadLocal<SearchState> searchState;
+    
+    private MappedGraphStore(ByteBuffer image) throws IOException {
+        if (image.capacity() < HEADER_BYTES || image.getInt(H_MAGIC) != MAGIC) {
+            throw new IOException("Not a navigation graph image");
+        }
+        if (image.getInt(H_FORMAT) != FORMAT_VERSION || image.getInt(H_MODES) != NavigationMode.values().length) {
+            throw new IOException("Graph image written by an incompatible version, export it again");
+        }
+        this.image = image;
+        this.graphVersion = image.getLong(H_GRAPH_VERSION);
+        this.roomCount = image.getInt(H_ROOMS);
+        this.edgeCount = image.getInt(H_EDGES);
+        this.pathTypeCount = image.getInt(H_PATH_TYPES);
+        this.roomsAt = image.getInt(H_ROOMS_AT);
+        this.idsAt = image.getInt(H_IDS_AT);
+        this.offsetsAt = image.getInt(H_OFFSETS_AT);
+        this.edgesAt = image.getInt(H_EDGES_AT);
+        this.weightsAt = image.getInt(H_WEIGHTS_AT);
+        this.pathTypesAt = image.getInt(H_PATH_TYPES_AT);
+        this.stringsAt = image.getInt(H_STRINGS_AT);
+        this.searchState = ThreadLocal.withInitial(() -> new SearchState(roomCount));
+    }
+    
+    /**
+     * Map an image read-only; the mapping outlives the channel and is released with the store
+     */
+    public static MappedGraphStore open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > MAX_IMAGE_BYTES) throw new IOException("Graph image too large: " + file);
+            ByteBuffer image = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedGraphStore(image.order(ByteOrder.LITTLE_ENDIAN));
+        }
+    }
+    
+    /**
+     * Write an image of the graph's current snapshot. The image is built beside the target and
+     * moved over it, so JVMs still mapping the previous image keep a consistent copy.
+     */
+    public static void write(NavigationGraph graph, Path file) throws IOException {
+        GraphSnapshot snapshot = graph.getSnapshot();
+        List<Room> rooms = new ArrayList<>(snapshot.getAllRooms());
+        Map<String, Integer> roomIndex = new HashMap<>();
+        for (int i = 0; i < rooms.size(); i++) {
+            roomIndex.put(rooms.get(i).getId(), i);
+        }
+        
+        List<com.indoor.navigation.model.Path> edges = new ArrayList<>(snapshot.getEdgeCount());
+        int[] offsets = new int[rooms.size() + 1];
+        for (int i = 0; i < rooms.size(); i++) {
+            offsets[i] = edges.size();
+            for (com.indoor.navigation.model.Path path : snapshot.getPathsFromRoom(rooms.get(i).getId())) {
+                if (roomIndex.containsKey(path.getToRoom().getId())) edges.add(path);
+            }
+        }
+        offsets[rooms.size()] = edges.size();
+        
+        StringSection strings = new StringSection();
+        List<String> pathTypes = new ArrayList<>();
+        Map<String, Integer> pathTypeCodes = new HashMap<>();
+        for (com.indoor.navigation.model.Path path : edges) {
+            pathTypeCodes.computeIfAbsent(path.getPathType(), type -> {
+                pathTypes.add(type);
+                return pathTypes.size() - 1;
+            });
+        }
+        if (pathTypes.size() > Short.MAX_VALUE) throw new IOException("Too many distinct path types");
+        
+        NavigationMode[] modes = NavigationMode.values();
+        long fixedSize = align(HEADER_BYTES + (long) rooms.size() * (ROOM_BYTES + Integer.BYTES) + (rooms.size() + 1) * Integer.BYTES) +
+                         (long) edges.size() * (EDGE_BYTES + modes.length * Double.BYTES) + pathTypes.size() * Integer.BYTES;
+        if (fixedSize > MAX_IMAGE_BYTES) throw new IOException("Graph too large for one image");
+        
+        int roomsAt = HEADER_BYTES;
+        int idsAt = roomsAt + rooms.size() * ROOM_BYTES;
+        int offsetsAt = idsAt + rooms.size() * Integer.BYTES;
+        int edgesAt = (int) align(offsetsAt + (rooms.size() + 1) * Integer.BYTES);
+        int weightsAt = edgesAt + edges.size() * EDGE_BYTES;
+        int pathTypesAt = weightsAt + modes.length * edges.size() * Double.BYTES;
+        int stringsAt = pathTypesAt + pathTypes.size() * Integer.BYTES;
+        
+        // Records first, into a heap buffer of the fixed sections; strings are appended as met
+        ByteBuffer fixed = ByteBuffer.allocate(stringsAt).order(ByteOrder.LITTLE_ENDIAN);
+        fixed.putInt(H_MAGIC, MAGIC).putInt(H_FORMAT, FORMAT_VERSION).putLong(H_GRAPH_VERSION, snapshot.getVersion())
+             .putInt(H_ROOMS, rooms.size()).putInt(H_EDGES, edges.size()).putInt(H_MODES, modes.length)
+             .putInt(H_PATH_TYPES, pathTypes.size()).putInt(H_ROOMS_AT, roomsAt).putInt(H_IDS_AT, idsAt)
+             .putInt(H_OFFSETS_AT, offsetsAt).putInt(H_EDGES_AT, edgesAt).putInt(H_WEIGHTS_AT, weightsAt)
+             .putInt(H_PATH_TYPES_AT, pathTypesAt).putInt(H_STRINGS_AT, stringsAt);
+        
+        for (int i = 0; i < rooms.size(); i++) {
+            Room room = rooms.get(i);
+            int at = roomsAt + i * ROOM_BYTES;
+            short flags = (short) ((room.isAccessible() ? ACCESSIBLE : 0) |
+                                   (snapshot.isRoomBlocked(room.getId()) ? BLOCKED : 0) |
+                                   (room.isEmergencyExit() ? EMERGENCY_EXIT : 0));
+            fixed.putInt(at + R_ID, strings.add(room.getId()))
+                 .putInt(at + R_NAME, strings.add(room.getName()))
+                 .putInt(at + R_DESCRIPTION, strings.add(room.getDescription()))
+                 .putInt(at + R_LANDMARKS, strings.add(room.getLandmarks().isEmpty() ? null :
+                                                       String.join("\n", room.getLandmarks())))
+                 .putInt(at + R_FEATURES, strings.add(encodeFeatures(room.getFeatures())))
+                 .putInt(at + R_FLOOR, room.getFloor())
+                 .putInt(at + R_ACCESS, room.getAccessGroups())
+                 .putShort(at + R_TYPE, (short) room.getRoomType().ordinal())
+                 .putShort(at + R_FLAGS, flags)
+                 .putDouble(at + R_WIDTH, room.getWidth())
+                 .putDouble(at + R_X, room.getX())
+                 .putDouble(at + R_Y, room.getY());
+        }
+        
+        // Room indices in unsigned UTF-8 order of their ids, for lookups without decoding
+        byte[][] idBytes = new byte[rooms.size()][];
+        Integer[] byId = new Integer[rooms.size()];
+        for (int i = 0; i < rooms.size(); i++) {
+            idBytes[i] = rooms.get(i).getId().getBytes(StandardCharsets.UTF_8);
+            byId[i] = i;
+        }
+        Arrays.sort(byId, (a, b) -> Arrays.compareUnsigned(idBytes[a], idBytes[b]));
+        for (int i = 0; i < rooms.size(); i++) {
+            fixed.putInt(idsAt + i * Integer.BYTES, byId[i]);
+        }
+        for (int i = 0; i <= rooms.size(); i++) {
+            fixed.putInt(offsetsAt + i * Integer.BYTES, offsets[i]);
+        }
+        
+        for (int e = 0; e < edges.size(); e++) {
+            com.indoor.navigation.model.Path path = edges.get(e);
+            int at = edgesAt + e * EDGE_BYTES;
+            boolean blocked = snapshot.isPathBlocked(path);
+            short flags = (short) ((path.isAccessible() ? ACCESSIBLE : 0) | (blocked ? BLOCKED : 0));
+            fixed.putInt(at + E_TARGET, roomIndex.get(path.getToRoom().getId()))
+                 .putShort(at + E_PATH_TYPE, (short) (int) pathTypeCodes.get(path.getPathType()))
+                 .putShort(at + E_FLAGS, flags)
+                 .putInt(at + E_INSTRUCTION, strings.add(path.getInstruction()))
+                 .putInt(at + E_LANDMARK, path.hasCustomLandmarkInstruction() ?
+                                          strings.add(path.getLandmarkInstruction()) : NONE)
+                 .putInt(at + E_ACCESS, path.getAccessGroups())
+                 .putInt(at + E_REQUIRED_ACCESS, path.getRequiredAccess())
+                 .putDouble(at + E_DISTANCE, path.getDistance())
+                 .putDouble(at + E_WIDTH, path.getWidth());
+            
+            // Static weights with the room types' crowd factors; the live ones stay on the heap
+            boolean roomBlocked = snapshot.isRoomBlocked(path.getToRoom().getId());
+            for (NavigationMode mode : modes) {
+                double weight = blocked || roomBlocked || !mode.isPathAllowed(path) ? Double.POSITIVE_INFINITY :
+                                mode.calculatePathWeight(path, path.getFromRoom(), path.getToRoom());
+                fixed.putDouble(weightsAt + (mode.ordinal() * edges.size() + e) * Double.BYTES, weight);
+            }
+        }
+        for (int i = 0; i < pathTypes.size(); i++) {
+            fixed.putInt(pathTypesAt + i * Integer.BYTES, strings.add(pathTypes.get(i)));
+        }
+        
+        long size = stringsAt + strings.size();
+        if (size > MAX_IMAGE_BYTES) throw new IOException("Graph too large for one image");
+        
+        Path target = file.toAbsolutePath();
+        Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                fixed.clear();
+                while (fixed.hasRemaining()) channel.write(fixed);
+                ByteBuffer stringBytes = strings.toBuffer();
+                while (stringBytes.hasRemaining()) channel.write(stringBytes);
+                channel.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+    
+    public long getGraphVersion() { return graphVersion; }
+    public int getRoomCount() { return roomCount; }
+    public int getEdgeCount() { return edgeCount; }
+    public long getImageBytes() { return image.capacity(); }
+    
+    /**
+     * Index of the room with this id, or -1: a binary search over the sorted id table
+     */
+    public int indexOf(String roomId) {
+        byte[] key = roomId.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = roomCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int index = image.getInt(idsAt + mid * Integer.BYTES);
+            int cmp = compareString(image.getInt(roomAt(index) + R_ID), key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return index;
+            }
+        }
+        return NONE;
+    }
+    
+    /**
+     * A new on-heap view of the room at this index
+     */
+    public Room getRoom(int index) {
+        int at = roomAt(index);
+        Room room = new Room(string(image.getInt(at + R_ID)), string(image.getInt(at + R_NAME)),
+                             string(image.getInt(at + R_DESCRIPTION)),
+                             RoomType.values()[image.getShort(at + R_TYPE)], image.getInt(at + R_FLOOR));
+        short flags = image.getShort(at + R_FLAGS);
+        room.setAccessible((flags & ACCESSIBLE) != 0);
+        room.setBlocked((flags & BLOCKED) != 0);
+        room.setEmergencyExit((flags & EMERGENCY_EXIT) != 0);
+        room.setAccessGroups(image.getInt(at + R_ACCESS));
+        room.setWidth(image.getDouble(at + R_WIDTH));
+        room.setPosition(image.getDouble(at + R_X), image.getDouble(at + R_Y));
+        
+        String landmarks = string(image.getInt(at + R_LANDMARKS));
+        if (landmarks != null) {
+            for (String landmark : landmarks.split("\n")) {
+                room.addLandmark(landmark);
+            }
+        }
+        String features = string(image.getInt(at + R_FEATURES));
+        if (features != null) {
+            for (String feature : features.split("\n")) {
+                int separator = feature.indexOf('\t');
+                room.addFeature(feature.substring(0, separator), feature.substring(separator + 1));
+            }
+        }
+        return room;
+    }
+    
+    public Room getRoomById(String roomId) {
+        int index = indexOf(roomId);
+        return index >= 0 ? getRoom(index) : null;
+    }
+    
+    /**
+     * New on-heap views of the paths leaving a room, empty if the room is unknown
+     */
+    public List<com.indoor.navigation.model.Path> getPathsFromRoom(String roomId) {
+        int index = indexOf(roomId);
+        if (index < 0) return Collections.emptyList();
+        
+        Room from = getRoom(index);
+        List<com.indoor.navigation.model.Path> paths = new ArrayList<>();
+        for (int e = firstEdge(index), end = firstEdge(index + 1); e < end; e++) {
+            paths.add(getPath(e, from, getRoom(image.getInt(edgeAt(e) + E_TARGET))));
+        }
+        return paths;
+    }
+    
+    /**
+     * Shortest route under the mode's static weights, searched over the mapped records.
+     * Preferences contribute credentials and avoided room and path types.
+     */
+    public PathResult findShortestPath(String startRoomId, String endRoomId, NavigationMode mode,
+                                       UserPreferences preferences) {
+        int start = indexOf(startRoomId);
+        int goal = indexOf(endRoomId);
+        if (start < 0 || goal < 0) return noRoute(mode);
+        
+        int deniedAccess = ~(preferences != null ? preferences.getCredentialMask() : AccessGroup.PUBLIC);
+        boolean[] avoidedPathTypes = new boolean[pathTypeCount];
+        boolean[] avoidedRoomTypes = new boolean[RoomType.values().length];
+        if (preferences != null) {
+            for (int i = 0; i < pathTypeCount; i++) {
+                avoidedPathTypes[i] = preferences.getAvoidPathTypes().contains(string(image.getInt(pathTypesAt + i * Integer.BYTES)));
+            }
+            for (RoomType type : preferences.getAvoidRoomTypes()) {
+                avoidedRoomTypes[type.ordinal()] = true;
+            }
+        }
+        
+        SearchState state = searchState.get();
+        state.reset();
+        state.improve(start, 0.0, NONE);
+        int weightBase = weightsAt + mode.ordinal() * edgeCount * Double.BYTES;
+        for (int current = state.poll(); current != NONE && current != goal; current = state.poll()) {
+            double distance = state.distance(current);
+            for (int e = firstEdge(current), end = firstEdge(current + 1); e < end; e++) {
+                int at = edgeAt(e);
+                int target = image.getInt(at + E_TARGET);
+                if ((image.getInt(at + E_REQUIRED_ACCESS) & deniedAccess) != 0 ||
+                    avoidedPathTypes[image.getShort(at + E_PATH_TYPE)] ||
+                    avoidedRoomTypes[image.getShort(roomAt(target) + R_TYPE)]) continue;
+                
+                double weight = image.getDouble(weightBase + e * Double.BYTES);
+                if (weight < Double.POSITIVE_INFINITY) state.improve(target, distance + weight, e);
+            }
+        }
+        if (!state.reached(goal)) return noRoute(mode);
+        
+        // Materialize only the rooms and paths on the route
+        Deque<Integer> hops = new ArrayDeque<>();
+        for (int e = state.via(goal); e != NONE; e = state.via(edgeSource(e))) {
+            hops.push(e);
+        }
+        List<Room> route = new ArrayList<>();
+        List<String> instructions = new ArrayList<>();
+        List<String> landmarkInstructions = new ArrayList<>();
+        List<com.indoor.navigation.model.Path> segments = new ArrayList<>();
+        boolean useLandmarks = preferences == null || preferences.isUseLandmarkInstructions();
+        boolean accessible = true;
+        Room from = getRoom(start);
+        route.add(from);
+        for (int e : hops) {
+            Room to = getRoom(image.getInt(edgeAt(e) + E_TARGET));
+            com.indoor.navigation.model.Path segment = getPath(e, from, to);
+            segments.add(segment);
+            instructions.add(useLandmarks ? segment.getLandmarkInstruction() : segment.getInstruction());
+            landmarkInstructions.add(segment.getLandmarkInstruction());
+            accessible &= mode.isPathAllowed(segment);
+            route.add(to);
+            from = to;
+        }
+        return new PathResult(route, instructions, landmarkInstructions, state.distance(goal), accessible, mode,
+                              segments, 1.0, graphVersion);
+    }
+    
+    private PathResult noRoute(NavigationMode mode) {
+        return new PathResult(Collections.emptyList(), Collections.emptyList(), Collections.emptyList(),
+                              Double.POSITIVE_INFINITY, false, mode, Collections.emptyList(),
+                              Double.POSITIVE_INFINITY, graphVersion);
+    }
+    
+    private com.indoor.navigation.model.Path getPath(int edge, Room from, Room to) {
+        int at = edgeAt(edge);
+        String pathType = string(image.getInt(pathTypesAt + image.getShort(at + E_PATH_TYPE) * Integer.BYTES));
+        com.indoor.navigation.model.Path path = new com.indoor.navigation.model.Path(
+            from, to, image.getDouble(at + E_DISTANCE), string(image.getInt(at + E_INSTRUCTION)),
+            pathType, image.getDouble(at + E_WIDTH));
+        short flags = image.getShort(at + E_FLAGS);
+        path.setAccessible((flags & ACCESSIBLE) != 0);
+        path.setBlocked((flags & BLOCKED) != 0);
+        path.setAccessGroups(image.getInt(at + E_ACCESS));
+        int landmark = image.getInt(at + E_LANDMARK);
+        if (landmark != NONE) path.setLandmarkInstruction(string(landmark));
+        return path;
+    }
+    
+    private int roomAt(int index) { return roomsAt + index * ROOM_BYTES; }
+    private int edgeAt(int edge) { return edgesAt + edge * EDGE_BYTES; }
+    private int firstEdge(int index) { return image.getInt(offsetsAt + index * Integer.BYTES); }
+    
+    /**
+     * Room an edge leaves: the last room whose edges start at or before it
+     */
+    private int edgeSource(int edge) {
+        int low = 0;
+        int high = roomCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (firstEdge(mid) <= edge) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+    
+    private String string(int offset) {
+        if (offset == NONE) return null;
+        
+        int at = stringsAt + offset;
+        byte[] bytes = new byte[image.getInt(at)];
+        image.get(at + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private int compareString(int offset, byte[] key) {
+        int at = stringsAt + offset;
+        int length = image.getInt(at);
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Integer.compare(image.get(at + Integer.BYTES + i) & 0xFF, key[i] & 0xFF);
+            if (cmp != 0) return cmp;
+        }
+        return Integer.compare(length, key.length);
+    }
+    
+    private static long align(long offset) {
+        return (offset + Double.BYTES - 1) & -Double.BYTES;
+    }
+    
+    private static String encodeFeatures(Map<String, String> features) {
+        if (features.isEmpty()) return null;
+        
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> feature : features.entrySet()) {
+            if (sb.length() > 0) sb.append('\n');
+            sb.append(feature.getKey()).append('\t').append(feature.getValue());
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Length-prefixed UTF-8 strings, each distinct string stored once
+     */
+    private static final class StringSection {
+        private final Map<String, Integer> offsets = new HashMap<>();
+        private final List<byte[]> encoded = new ArrayList<>();
+        private long size;
+        
+        int add(String text) throws IOException {
+            if (text == null) return NONE;
+            
+            Integer offset = offsets.get(text);
+            if (offset != null) return offset;
+            if (size > MAX_IMAGE_BYTES) throw new IOException("Graph too large for one image");
+            
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            offsets.put(text, (int) size);
+            encoded.add(bytes);
+            int added = (int) size;
+            size += Integer.BYTES + bytes.length;
+            return added;
+        }
+        
+        long size() { return size; }
+        
+        ByteBuffer toBuffer() {
+            ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+            for (byte[] bytes : encoded) {
+                buffer.putInt(bytes.length).put(bytes);
+            }
+            return buffer.flip();
+        }
+    }
+    
+    /**
+     * Per-thread Dijkstra state over room indices: distances stamped with the query so nothing
+     * is cleared between searches, and a binary heap of (distance, room) with lazy deletion
+     */
+    private static final class SearchState {
+        private final double[] distance;
+        private final int[] via; // Edge the best distance arrived by
+        private final int[] stamp;
+        private final boolean[] settled;
+        private int query;
+        private double[] heapKeys = new double[64];
+        private int[] heapRooms = new int[64];
+        private int heapSize;
+        
+        SearchState(int roomCount) {
+            distance = new double[roomCount];
+            via = new int[roomCount];
+            stamp = new int[roomCount];
+            settled = new boolean[roomCount];
+        }
+        
+        void reset() {
+            if (++query == 0) { // Wrapped: stamps could collide
+                Arrays.fill(stamp, 0);
+                query = 1;
+            }
+            heapSize = 0;
+        }
+        
+        boolean reached(int room) { return stamp[room] == query; }
+        double distance(int room) { return reached(room) ? distance[room] : Double.POSITIVE_INFINITY; }
+        int via(int room) { return via[room]; }
+        
+        void improve(int room, double newDistance, int edge) {
+            if (reached(room)) {
+                if (settled[room] || newDistance >= distance[room]) return;
+            } else {
+                stamp[room] = query;
+                settled[room] = false;
+            }
+            distance[room] = newDistance;
+            via[room] = edge;
+            push(newDistance, room);
+        }
+        
+        /**
+         * Settle and return the closest unsettled room, or NONE once all are settled
+         */
+        int poll() {
+            while (heapSize > 0) {
+                int room = heapRooms[0];
+                double key = heapKeys[0];
+                heapSize--;
+                if (heapSize > 0) {
+                    siftDown(heapKeys[heapSize], heapRooms[heapSize]);
+                }
+                if (!settled[room] && key == distance[room]) {
+                    settled[room] = true;
+                    return room;
+                }
+            }
+            return NONE;
+        }
+        
+        private void push(double key, int room) {
+            if (heapSize == heapKeys.length) {
+                heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+                heapRooms = Arrays.copyOf(heapRooms, heapSize * 2);
+            }
+            int i = heapSize++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heapKeys[parent] <= key) break;
+                heapKeys[i] = heapKeys[parent];
+                heapRooms[i] = heapRooms[parent];
+                i = parent;
+            }
+            heapKeys[i] = key;
+            heapRooms[i] = room;
+        }
+        
+        private void siftDown(double key, int room) {
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= heapSize) break;
+                if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) child++;
+                if (heapKeys[child] >= key) break;
+                heapKeys[i] = heapKeys[child];
+                heapRooms[i] = heapRooms[child];
+                i = child;
+            }
+            heapKeys[i] = key;
+            heapRooms[i] = room;
+        }
+    }
+}
\ No newline at end of file
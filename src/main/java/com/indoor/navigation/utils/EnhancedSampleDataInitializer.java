@@ -8,8 +8,8 @@ import com.indoor.navigation.model.*;
 public class EnhancedSampleDataInitializer {
     
     public static NavigationGraph createComprehensiveSampleMap() {
-        NavigationGraph graph = new NavigationGraph("Medical Center Building", 
-                                                   "Multi-floor medical facility with comprehensive navigation");
+        GraphBuilder builder = new GraphBuilder("Medical Center Building", 
+                                                "Multi-floor medical facility with comprehensive navigation");
         
         // GROUND FLOOR (Floor 1)
         Room mainEntrance = new Room("ENT", "Main Entrance", "Primary building entrance with automatic doors", 
@@ -154,101 +154,101 @@ public class EnhancedSampleDataInitializer {
         };
         
         for (Room room : allRooms) {
-            graph.addRoom(room);
+            builder.addRoom(room);
         }
         
         // Create paths with enhanced instructions and landmarks
         
         // GROUND FLOOR PATHS
-        graph.addPath(new Path(mainEntrance, lobby, 8.0, 
-                             "Walk straight through the main doors into the lobby", "corridor", 4.0));
+        builder.addPath(new Path(mainEntrance, lobby, 8.0, 
+                               "Walk straight through the main doors into the lobby", "corridor", 4.0));
         
-        graph.addPath(new Path(lobby, reception, 5.0, 
-                             "Head towards the reception desk on your left", "corridor", 3.0));
+        builder.addPath(new Path(lobby, reception, 5.0, 
+                               "Head towards the reception desk on your left", "corridor", 3.0));
         
-        graph.addPath(new Path(lobby, elevator1, 12.0, 
-                             "Walk towards the elevator bank on the right side of the lobby", "corridor", 3.0));
+        builder.addPath(new Path(lobby, elevator1, 12.0, 
+                               "Walk towards the elevator bank on the right side of the lobby", "corridor", 3.0));
         
-        graph.addPath(new Path(lobby, restroom1, 15.0, 
-                             "Follow the corridor to the left, restroom is on your right", "corridor", 2.5));
+        builder.addPath(new Path(lobby, restroom1, 15.0, 
+                               "Follow the corridor to the left, restroom is on your right", "corridor", 2.5));
         
-        graph.addPath(new Path(lobby, cafeteria, 20.0, 
-                             "Walk straight past the reception desk, cafeteria entrance is ahead", "corridor", 3.0));
+        builder.addPath(new Path(lobby, cafeteria, 20.0, 
+                               "Walk straight past the reception desk, cafeteria entrance is ahead", "corridor", 3.0));
         
-        graph.addPath(new Path(cafeteria, pharmacy, 8.0, 
-                             "Exit cafeteria and turn left, pharmacy is next door", "corridor", 2.0));
+        builder.addPath(new Path(cafeteria, pharmacy, 8.0, 
+                               "Exit cafeteria and turn left, pharmacy is next door", "corridor", 2.0));
         
-        graph.addPath(new Path(restroom1, emergencyExit1, 10.0, 
-                             "Continue down the corridor, emergency exit is at the end", "corridor", 2.5));
+        builder.addPath(new Path(restroom1, emergencyExit1, 10.0, 
+                               "Continue down the corridor, emergency exit is at the end", "corridor", 2.5));
         
         // ELEVATOR CONNECTIONS (Multi-floor)
-        graph.addPath(new Path(elevator1, elevator2, 0.5, 
-                             "Take the elevator up to the second floor", "elevator", 2.0));
+        builder.addPath(new Path(elevator1, elevator2, 0.5, 
+                               "Take the elevator up to the second floor", "elevator", 2.0));
         
-        graph.addPath(new Path(elevator2, elevator3, 0.5, 
-                             "Take the elevator up to the third floor", "elevator", 2.0));
+        builder.addPath(new Path(elevator2, elevator3, 0.5, 
+                               "Take the elevator up to the third floor", "elevator", 2.0));
         
-        graph.addPath(new Path(elevator1, elevator3, 1.0, 
-                             "Take the elevator directly to the third floor", "elevator", 2.0));
+        builder.addPath(new Path(elevator1, elevator3, 1.0, 
+                               "Take the elevator directly to the third floor", "elevator", 2.0));
         
         // SECOND FLOOR PATHS
-        graph.addPath(new Path(elevator2, waitingArea2, 6.0, 
-                             "Exit elevator and turn right, waiting area is ahead", "corridor", 3.0));
+        builder.addPath(new Path(elevator2, waitingArea2, 6.0, 
+                               "Exit elevator and turn right, waiting area is ahead", "corridor", 3.0));
         
-        graph.addPath(new Path(waitingArea2, consultRoom1, 8.0, 
-                             "Walk down the corridor, room 201 is on your left", "corridor", 2.5));
+        builder.addPath(new Path(waitingArea2, consultRoom1, 8.0, 
+                               "Walk down the corridor, room 201 is on your left", "corridor", 2.5));
         
-        graph.addPath(new Path(consultRoom1, consultRoom2, 4.0, 
-                             "Continue down the corridor, room 202 is next door", "corridor", 2.5));
+        builder.addPath(new Path(consultRoom1, consultRoom2, 4.0, 
+                               "Continue down the corridor, room 202 is next door", "corridor", 2.5));
         
-        graph.addPath(new Path(waitingArea2, laboratory, 12.0, 
-                             "Walk towards the lab, follow signs for blood work", "corridor", 2.5));
+        builder.addPath(new Path(waitingArea2, laboratory, 12.0, 
+                               "Walk towards the lab, follow signs for blood work", "corridor", 2.5));
         
-        graph.addPath(new Path(elevator2, restroom2, 10.0, 
-                             "Turn left from elevator, restroom is at the end of the hall", "corridor", 2.5));
+        builder.addPath(new Path(elevator2, restroom2, 10.0, 
+                               "Turn left from elevator, restroom is at the end of the hall", "corridor", 2.5));
         
-        graph.addPath(new Path(elevator2, stairs2, 15.0, 
-                             "Walk to the far end of the corridor, stairs are on the right", "corridor", 2.0));
+        builder.addPath(new Path(elevator2, stairs2, 15.0, 
+                               "Walk to the far end of the corridor, stairs are on the right", "corridor", 2.0));
         
         // THIRD FLOOR PATHS
-        graph.addPath(new Path(elevator3, icu, 8.0, 
-                             "Turn left from elevator, ICU entrance is through the double doors", "corridor", 3.0));
+        builder.addPath(new Path(elevator3, icu, 8.0, 
+                               "Turn left from elevator, ICU entrance is through the double doors", "corridor", 3.0));
         
-        graph.addPath(new Path(elevator3, conferenceRoom, 10.0, 
-                             "Walk straight from elevator, conference room is on your right", "corridor", 2.5));
+        builder.addPath(new Path(elevator3, conferenceRoom, 10.0, 
+                               "Walk straight from elevator, conference room is on your right", "corridor", 2.5));
         
-        graph.addPath(new Path(conferenceRoom, library, 12.0, 
-                             "Continue down the corridor, library entrance is on your left", "corridor", 2.5));
+        builder.addPath(new Path(conferenceRoom, library, 12.0, 
+                               "Continue down the corridor, library entrance is on your left", "corridor", 2.5));
         
-        graph.addPath(new Path(library, adminOffice, 6.0, 
-                             "Walk towards the administration area, office is at the end", "corridor", 2.0));
+        builder.addPath(new Path(library, adminOffice, 6.0, 
+                               "Walk towards the administration area, office is at the end", "corridor", 2.0));
         
-        graph.addPath(new Path(elevator3, emergencyExit3, 18.0, 
-                             "Walk to the end of the corridor, emergency exit is on your right", "corridor", 2.5));
+        builder.addPath(new Path(elevator3, emergencyExit3, 18.0, 
+                               "Walk to the end of the corridor, emergency exit is on your right", "corridor", 2.5));
         
         // STAIR CONNECTIONS (Alternative routes, not accessible)
-        graph.addPath(new Path(lobby, stairs2, 25.0, 
-                             "Take the stairs to the second floor (not wheelchair accessible)", "stairs", 1.5));
+        builder.addPath(new Path(lobby, stairs2, 25.0, 
+                               "Take the stairs to the second floor (not wheelchair accessible)", "stairs", 1.5));
         
-        graph.addPath(new Path(stairs2, emergencyExit3, 20.0, 
-                             "Continue up the stairs to the third floor emergency exit", "stairs", 1.5));
+        builder.addPath(new Path(stairs2, emergencyExit3, 20.0, 
+                               "Continue up the stairs to the third floor emergency exit", "stairs", 1.5));
         
         // ALTERNATIVE ELEVATOR ROUTES (Backup paths)
-        graph.addPath(new Path(cafeteria, elevator1, 18.0, 
-                             "Walk back towards the lobby, elevators are on your right", "corridor", 3.0));
+        builder.addPath(new Path(cafeteria, elevator1, 18.0, 
+                               "Walk back towards the lobby, elevators are on your right", "corridor", 3.0));
         
-        graph.addPath(new Path(consultRoom2, restroom2, 15.0, 
-                             "Walk towards the elevator area, restroom is on your left", "corridor", 2.5));
+        builder.addPath(new Path(consultRoom2, restroom2, 15.0, 
+                               "Walk towards the elevator area, restroom is on your left", "corridor", 2.5));
         
-        return graph;
+        return builder.build();
     }
     
     /**
      * Create a smaller, simpler building for testing
      */
     public static NavigationGraph createSimpleTestMap() {
-        NavigationGraph graph = new NavigationGraph("Simple Test Building", 
-                                                   "Single floor building for testing");
+        GraphBuilder builder = new GraphBuilder("Simple Test Building", 
+                                                "Single floor building for testing");
         
         Room entrance = new Room("ENT", "Entrance", "Building entrance", RoomType.ENTRANCE, 1);
         Room hallway = new Room("HALL", "Main Hallway", "Central corridor", RoomType.CORRIDOR, 1);
@@ -267,22 +267,22 @@ public class EnhancedSampleDataInitializer {
         hallway.addLandmark("Directory Board");
         
         // Add rooms
-        graph.addRoom(entrance);
-        graph.addRoom(hallway);
-        graph.addRoom(office1);
-        graph.addRoom(office2);
-        graph.addRoom(restroom);
-        graph.addRoom(exit);
+        builder.addRoom(entrance);
+        builder.addRoom(hallway);
+        builder.addRoom(office1);
+        builder.addRoom(office2);
+        builder.addRoom(restroom);
+        builder.addRoom(exit);
         
         // Add paths
-        graph.addPath(new Path(entrance, hallway, 5.0, "Go straight down the main hallway", "corridor"));
-        graph.addPath(new Path(hallway, office1, 8.0, "Turn left, office A is on your right", "corridor"));
-        graph.addPath(new Path(hallway, office2, 10.0, "Turn right, office B is on your left", "corridor"));
-        graph.addPath(new Path(hallway, restroom, 6.0, "Walk straight, restroom is on your left", "corridor"));
-        graph.addPath(new Path(restroom, exit, 4.0, "Continue to the end of the hall, exit is on your right", "corridor"));
-        graph.addPath(new Path(office1, office2, 12.0, "Walk across the hallway to office B", "corridor"));
-        
-        return graph;
+        builder.addPath(new Path(entrance, hallway, 5.0, "Go straight down the main hallway", "corridor"));
+        builder.addPath(new Path(hallway, office1, 8.0, "Turn left, office A is on your right", "corridor"));
+        builder.addPath(new Path(hallway, office2, 10.0, "Turn right, office B is on your left", "corridor"));
+        builder.addPath(new Path(hallway, restroom, 6.0, "Walk straight, restroom is on your left", "corridor"));
+        builder.addPath(new Path(restroom, exit, 4.0, "Continue to the end of the hall, exit is on your right", "corridor"));
+        builder.addPath(new Path(office1, office2, 12.0, "Walk across the hallway to office B", "corridor"));
+        
+        return builder.build();
     }
     
     /**
@@ -312,7 +312,7 @@ public class EnhancedSampleDataInitializer {
                         pathToBlock.getFromRoom().getId(),
                         pathToBlock.getToRoom().getId(),
                         obstacle,
-                        30000L + random.nextInt(120000L) // 30 seconds to 2.5 minutes
+                        30000L + random.nextInt(120000) // 30 seconds to 2.5 minutes
                     );
                     
                     System.out.printf("🚧 Simulated obstacle: %s blocking path %s → %s%n",
@@ -0,0 +1,147 @@
+package com.indoor.navigation.algorithm;
+
+import com.indoor.navigation.algorithm.EnhancedDijkstraPathfinder.PathResult;
+import com.indoor.navigation.model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A capacity overlay must route like a full search over a graph holding only the paths that
+ * fit the capacity class
+ */
+class CapacityOverlaysTest {
+    private static final int SIZE = 24;
+    
+    private CapacityOverlays overlays;
+    
+    @AfterEach
+    void tearDown() {
+        if (overlays != null) overlays.close();
+    }
+    
+    @Test
+    void overlayRoutesMatchFilteredFullSearch() {
+        for (CapacityClass capacityClass : CapacityClass.values()) {
+            Random random = new Random(5);
+            NavigationGraph graph = new NavigationGraph();
+            NavigationGraph fitting = new NavigationGraph();
+            buildGrids(random, graph, fitting, capacityClass);
+            
+            overlays = new CapacityOverlays(graph);
+            EnhancedDijkstraPathfinder pathfinder = new EnhancedDijkstraPathfinder();
+            NavigationMode[] modes = NavigationMode.values();
+            for (int query = 0; query < 150; query++) {
+                String from = randomRoom(random);
+                String to = randomRoom(random);
+                NavigationMode mode = modes[query % modes.length];
+                PathResult overlay = overlays.findShortestPath(from, to, capacityClass, mode, null);
+                PathResult full = pathfinder.findShortestPath(fitting, from, to, mode, null);
+                
+                String label = capacityClass + " " + from + " -> " + to + " " + mode;
+                assertEquals(full.isEmpty(), overlay.isEmpty(), label);
+                assertEquals(!full.isEmpty(), overlays.canReach(from, to, capacityClass), label);
+                if (full.isEmpty()) continue;
+                
+                assertEquals(full.getTotalDistance(), overlay.getTotalDistance(),
+                             1e-6 * Math.max(1, full.getTotalDistance()), label);
+                for (Path segment : overlay.getPathSegments()) {
+                    assertTrue(capacityClass.fits(segment), label);
+                }
+            }
+            overlays.close();
+            overlays = null;
+        }
+    }
+    
+    @Test
+    void overlaysFollowBlocksAndRemovals() throws InterruptedException {
+        NavigationGraph graph = new NavigationGraph();
+        for (String id : new String[] {"A", "B", "C"}) {
+            graph.addRoom(new Room(id, "Room " + id, "Test room " + id, RoomType.OFFICE, 1));
+        }
+        graph.addPath(new Path(graph.getRoomById("A"), graph.getRoomById("B"), 10, "x", "corridor", 2.4));
+        graph.addPath(new Path(graph.getRoomById("B"), graph.getRoomById("C"), 10, "x", "corridor", 2.4));
+        graph.addPath(new Path(graph.getRoomById("A"), graph.getRoomById("C"), 5, "x", "corridor", 0.8));
+        
+        overlays = new CapacityOverlays(graph);
+        PathResult route = overlays.findShortestPath("A", "C", CapacityClass.BED, NavigationMode.STANDARD, null);
+        assertEquals(3, route.getPath().size());
+        
+        // A block is honoured per query without a rebuild; reachability ignores it
+        graph.blockPath("A", "B", true);
+        assertTrue(overlays.canReach("A", "C", CapacityClass.BED));
+        assertTrue(overlays.findShortestPath("A", "C", CapacityClass.BED, NavigationMode.STANDARD, null).isEmpty());
+        
+        // Removing the path skips its edge at once; the overlay is rebuilt once the change feed delivers
+        graph.removePath("A", "B");
+        assertTrue(overlays.findShortestPath("A", "C", CapacityClass.BED, NavigationMode.STANDARD, null).isEmpty());
+        assertTrue(await(() -> !overlays.canReach("A", "C", CapacityClass.BED)), "overlay should be rebuilt");
+        assertTrue(overlays.canReach("A", "C", CapacityClass.PEDESTRIAN));
+    }
+    
+    /**
+     * The same two-floor grid into both graphs; fitting only receives the paths that fit
+     */
+    private static void buildGrids(Random random, NavigationGraph graph, NavigationGraph fitting, CapacityClass capacityClass) {
+        for (int floor = 0; floor < 2; floor++) {
+            for (int i = 0; i < SIZE; i++) {
+                for (int j = 0; j < SIZE; j++) {
+                    double width = random.nextInt(10) == 0 ? 1.4 : 2.0;
+                    for (NavigationGraph target : new NavigationGraph[] {graph, fitting}) {
+                        Room room = new Room(id(floor, i, j), "Room " + i + "-" + j, "Grid room", RoomType.OFFICE, floor);
+                        room.setWidth(width);
+                        target.addRoom(room);
+                    }
+                }
+            }
+        }
+        for (int floor = 0; floor < 2; floor++) {
+            for (int i = 0; i < SIZE; i++) {
+                for (int j = 0; j < SIZE; j++) {
+                    if (i + 1 < SIZE && random.nextInt(5) > 0) {
+                        addPath(random, graph, fitting, capacityClass, id(floor, i, j), id(floor, i + 1, j), "corridor");
+                    }
+                    if (j + 1 < SIZE && random.nextInt(5) > 0) {
+                        addPath(random, graph, fitting, capacityClass, id(floor, i, j), id(floor, i, j + 1), "corridor");
+                    }
+                }
+            }
+        }
+        for (int k = 0; k < 12; k++) {
+            int i = random.nextInt(SIZE);
+            int j = random.nextInt(SIZE);
+            addPath(random, graph, fitting, capacityClass, id(0, i, j), id(1, i, j), k % 3 == 0 ? "stairs" : "elevator");
+        }
+    }
+    
+    private static void addPath(Random random, NavigationGraph graph, NavigationGraph fitting, CapacityClass capacityClass,
+                                String fromId, String toId, String pathType) {
+        double distance = pathType.equals("corridor") ? 1 + random.nextInt(9) : 15;
+        double width = pathType.equals("corridor") && random.nextInt(4) == 0 ? 1.2 : 2.4;
+        graph.addPath(new Path(graph.getRoomById(fromId), graph.getRoomById(toId), distance, "x", pathType, width));
+        Path copy = new Path(fitting.getRoomById(fromId), fitting.getRoomById(toId), distance, "x", pathType, width);
+        if (capacityClass.fits(copy)) fitting.addPath(copy);
+    }
+    
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 3000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) return false;
+            Thread.sleep(20);
+        }
+        return true;
+    }
+    
+    private static String randomRoom(Random random) {
+        return id(random.nextInt(2), random.nextInt(SIZE), random.nextInt(SIZE));
+    }
+    
+    private static String id(int floor, int i, int j) {
+        return "R" + floor + "_" + i + "_" + j;
+    }
+}
\ No newline at end of file
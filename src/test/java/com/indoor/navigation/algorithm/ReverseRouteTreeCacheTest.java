@@ -0,0 +1,79 @@
+package com.indoor.navigation.algorithm;
+
+import com.indoor.navigation.algorithm.EnhancedDijkstraPathfinder.PathResult;
+import com.indoor.navigation.model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cached trees must never route to or through a room that was removed
+ */
+class ReverseRouteTreeCacheTest {
+    private NavigationGraph graph;
+    private ReverseRouteTreeCache cache;
+    
+    @BeforeEach
+    void setUp() {
+        // A - B - C is short, A - D - C the detour
+        graph = new NavigationGraph();
+        for (String id : new String[] {"A", "B", "C", "D"}) {
+            graph.addRoom(new Room(id, "Room " + id, "Test room " + id, RoomType.OFFICE, 1));
+        }
+        graph.addPath(path("A", "B", 10));
+        graph.addPath(path("B", "C", 10));
+        graph.addPath(path("A", "D", 30));
+        graph.addPath(path("D", "C", 30));
+        cache = new ReverseRouteTreeCache(graph);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        cache.close();
+    }
+    
+    @Test
+    void removedRoomDropsTreesThroughIt() throws InterruptedException {
+        cache.warmUp(List.of("C"), NavigationMode.STANDARD);
+        assertEquals(List.of("A", "B", "C"), route(cache.recover("A", "C", NavigationMode.STANDARD)));
+        
+        graph.removeRoom("B");
+        assertTrue(await(() -> cache.size() == 0), "tree through the removed room should be dropped");
+        assertEquals(List.of("A", "D", "C"), route(cache.recover("A", "C", NavigationMode.STANDARD)));
+    }
+    
+    @Test
+    void removedRoomDropsTreesBuiltToIt() throws InterruptedException {
+        cache.warmUp(List.of("B", "D"), NavigationMode.STANDARD);
+        assertEquals(2, cache.size());
+        
+        graph.removeRoom("B");
+        assertTrue(await(() -> cache.size() == 1), "tree built to the removed room should be dropped");
+        assertNull(cache.recover("A", "B", NavigationMode.STANDARD));
+        assertEquals(List.of("A", "D"), route(cache.recover("A", "D", NavigationMode.STANDARD)));
+    }
+    
+    private static List<String> route(PathResult result) {
+        assertNotNull(result);
+        return result.getPath().stream().map(Room::getId).collect(Collectors.toList());
+    }
+    
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 3000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) return false;
+            Thread.sleep(20);
+        }
+        return true;
+    }
+    
+    private Path path(String fromId, String toId, double distance) {
+        return new Path(graph.getRoomById(fromId), graph.getRoomById(toId), distance, "Walk to " + toId);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.indoor.navigation.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A batch publishes one version with every change, or throws and changes nothing
+ */
+class BatchCommitTest {
+    private NavigationGraph graph;
+    
+    @BeforeEach
+    void setUp() {
+        graph = new NavigationGraph();
+        graph.addRoom(new Room("A", "Atrium", "Main atrium", RoomType.LOBBY, 1));
+        graph.addRoom(new Room("B", "Bookshop", "Ground floor shop", RoomType.OFFICE, 1));
+        graph.addPath(new Path(graph.getRoomById("A"), graph.getRoomById("B"), 20, "Walk to the bookshop"));
+    }
+    
+    @Test
+    void committedBatchIsOneVersion() {
+        long before = graph.getVersion();
+        long version = graph.batch()
+                            .addRoom(new Room("C", "Cafe", "Corner cafe", RoomType.CAFETERIA, 1))
+                            .addPath(new Path(graph.getRoomById("B"), new Room("C", "Cafe", "", RoomType.CAFETERIA, 1),
+                                              15, "Walk to the cafe"))
+                            .updateRoom("A", room -> room.setName("Grand Atrium"))
+                            .blockPath("A", "B", true, "Cleaning")
+                            .commit();
+        
+        assertEquals(before + 1, version);
+        assertEquals(version, graph.getVersion());
+        assertNotNull(graph.getPath("C", "B"));
+        assertEquals("Grand Atrium", graph.getRoomById("A").getName());
+        assertEquals(1, graph.searchRooms("grand").size());
+        assertTrue(graph.getSnapshot().isPathBlocked(graph.getPath("A", "B")));
+    }
+    
+    @Test
+    void missingEndpointRejectsWholeBatch() {
+        NavigationGraph.Batch batch = graph.batch()
+                                           .addRoom(new Room("C", "Cafe", "Corner cafe", RoomType.CAFETERIA, 1))
+                                           .updateRoom("A", room -> room.setName("Grand Atrium"))
+                                           .blockPath("A", "B", true, "Cleaning")
+                                           .removePath("A", "B")
+                                           .addPath(new Path(graph.getRoomById("B"),
+                                                             new Room("Z", "Nowhere", "", RoomType.OFFICE, 1), 5, ""));
+        
+        assertRejectedWithoutChanges(batch, IllegalArgumentException.class);
+    }
+    
+    @Test
+    void throwingEditRejectsWholeBatch() {
+        NavigationGraph.Batch batch = graph.batch()
+                                           .addRoom(new Room("C", "Cafe", "Corner cafe", RoomType.CAFETERIA, 1))
+                                           .blockPath("A", "B", true, "Cleaning")
+                                           .blockRoom("B", true)
+                                           .updateRoom("A", room -> {
+                                               room.setName("Grand Atrium");
+                                               throw new IllegalStateException("bad edit");
+                                           });
+        
+        assertRejectedWithoutChanges(batch, IllegalStateException.class);
+    }
+    
+    @Test
+    void editsSeeEarlierChangesInTheBatch() {
+        graph.batch()
+             .addRoom(new Room("C", "Cafe", "Corner cafe", RoomType.CAFETERIA, 1))
+             .blockRoom("C", true)
+             .updateRoom("C", room -> room.addLandmark("Blue door"))
+             .commit();
+        
+        Room cafe = graph.getRoomById("C");
+        assertTrue(cafe.isBlocked());
+        assertTrue(graph.getSnapshot().isRoomBlocked("C"));
+        assertEquals("Blue door", cafe.getLandmarks().get(0));
+    }
+    
+    private void assertRejectedWithoutChanges(NavigationGraph.Batch batch, Class<? extends Throwable> expected) {
+        GraphSnapshot before = graph.getSnapshot();
+        long feedVersion = graph.getChangeFeed().getLatestVersion();
+        int feedEvents = graph.getChangeFeed().getRetainedCount();
+        
+        assertThrows(expected, batch::commit);
+        
+        assertSame(before, graph.getSnapshot());
+        assertEquals(feedVersion, graph.getChangeFeed().getLatestVersion());
+        assertEquals(feedEvents, graph.getChangeFeed().getRetainedCount());
+        assertNull(graph.getRoomById("C"));
+        assertEquals("Atrium", graph.getRoomById("A").getName());
+        assertTrue(graph.searchRooms("grand").isEmpty());
+        assertTrue(graph.searchRooms("cafe").isEmpty());
+        assertFalse(graph.getSnapshot().isRoomBlocked("B"));
+        assertFalse(graph.getSnapshot().isPathBlocked(graph.getPath("A", "B")));
+        assertEquals(0, graph.getSnapshot().getTemporarilyBlockedCount());
+        
+        // Nothing leaks into the next version either
+        graph.addRoom(new Room("D", "Dock", "Loading dock", RoomType.OFFICE, 1));
+        assertEquals(before.getVersion() + 1, graph.getVersion());
+        assertEquals(feedEvents + 1, graph.getChangeFeed().getRetainedCount());
+        assertNull(graph.getRoomById("C"));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,108 @@
+package com.indoor.navigation.model;
+
+import com.indoor.navigation.algorithm.EnhancedDijkstraPathfinder;
+import com.indoor.navigation.algorithm.EnhancedDijkstraPathfinder.PathResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Changes publish new versions; a snapshot pinned before a change must keep answering as before
+ */
+class GraphSnapshotIsolationTest {
+    private NavigationGraph graph;
+    private final EnhancedDijkstraPathfinder pathfinder = new EnhancedDijkstraPathfinder();
+    
+    @BeforeEach
+    void setUp() {
+        // A - B - C is short, A - D - C the detour
+        graph = new NavigationGraph();
+        for (String id : new String[] {"A", "B", "C", "D"}) {
+            graph.addRoom(new Room(id, "Room " + id, "Test room " + id, RoomType.OFFICE, 1));
+        }
+        graph.addPath(path("A", "B", 10));
+        graph.addPath(path("B", "C", 10));
+        graph.addPath(path("A", "D", 30));
+        graph.addPath(path("D", "C", 30));
+    }
+    
+    @Test
+    void blockingRoomLeavesPinnedSnapshotUntouched() {
+        GraphSnapshot pinned = graph.getSnapshot();
+        graph.blockRoom("B", true);
+        
+        assertFalse(pinned.isRoomBlocked("B"));
+        assertFalse(pinned.getRoomById("B").isBlocked());
+        assertTrue(graph.getSnapshot().isRoomBlocked("B"));
+        assertTrue(graph.getSnapshot().getRoomById("B").isBlocked());
+        
+        assertEquals(List.of("A", "B", "C"), route(pinned));
+        assertEquals(List.of("A", "D", "C"), route(graph.getSnapshot()));
+    }
+    
+    @Test
+    void updatingRoomEditsACopy() {
+        GraphSnapshot pinned = graph.getSnapshot();
+        Room before = pinned.getRoomById("B");
+        graph.updateRoom("B", room -> {
+            room.setName("Renamed");
+            room.addLandmark("Fountain");
+        });
+        
+        assertEquals("Room B", before.getName());
+        assertTrue(before.getLandmarks().isEmpty());
+        assertEquals("Room B", pinned.getPath("A", "B").getToRoom().getName());
+        
+        GraphSnapshot current = graph.getSnapshot();
+        assertEquals("Renamed", current.getRoomById("B").getName());
+        assertEquals("Renamed", current.getPath("A", "B").getToRoom().getName());
+        assertEquals("Renamed", current.getPath("B", "C").getFromRoom().getName());
+        assertEquals(List.of("Fountain"), current.getRoomById("B").getLandmarks());
+    }
+    
+    @Test
+    void accessGroupsApplyToNewVersionOnly() {
+        int staff = AccessGroup.maskOf(AccessGroup.STAFF_ONLY);
+        GraphSnapshot pinned = graph.getSnapshot();
+        graph.setRoomAccessGroups("B", staff);
+        graph.setPathAccessGroups("A", "D", staff);
+        
+        assertEquals(AccessGroup.PUBLIC, pinned.getRoomById("B").getAccessGroups());
+        assertEquals(AccessGroup.PUBLIC, pinned.getPath("A", "B").getRequiredAccess());
+        assertEquals(AccessGroup.PUBLIC, pinned.getPath("A", "D").getAccessGroups());
+        assertEquals(AccessGroup.PUBLIC, pinned.getPath("D", "A").getAccessGroups());
+        
+        GraphSnapshot current = graph.getSnapshot();
+        assertEquals(staff, current.getRoomById("B").getAccessGroups());
+        assertEquals(staff, current.getPath("A", "B").getRequiredAccess());
+        assertEquals(staff, current.getPath("A", "D").getAccessGroups());
+        assertEquals(staff, current.getPath("D", "A").getAccessGroups());
+    }
+    
+    @Test
+    void pathsFromOlderVersionStillResolve() {
+        Path before = graph.getSnapshot().getPath("A", "B");
+        graph.updateRoom("B", room -> room.setDescription("Edited"));
+        
+        GraphSnapshot current = graph.getSnapshot();
+        assertNotSame(before, current.getPath("A", "B"));
+        assertFalse(current.isPathBlocked(before));
+        assertEquals("Not blocked", current.getBlockageInfo(before));
+        
+        graph.blockPath("A", "B", true, "Spill");
+        assertTrue(graph.getSnapshot().isPathBlocked(before));
+    }
+    
+    private List<String> route(GraphSnapshot snapshot) {
+        PathResult result = pathfinder.findShortestPath(snapshot, "A", "C", NavigationMode.STANDARD, new UserPreferences());
+        return result.getPath().stream().map(Room::getId).collect(Collectors.toList());
+    }
+    
+    private Path path(String fromId, String toId, double distance) {
+        return new Path(graph.getRoomById(fromId), graph.getRoomById(toId), distance, "Walk to " + toId);
+    }
+}
\ No newline at end of file
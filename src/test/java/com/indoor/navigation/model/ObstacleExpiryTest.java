@@ -0,0 +1,85 @@
+package com.indoor.navigation.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Simulated obstacles lift themselves through the shared timing wheel, unless something newer
+ * on the same path took over first
+ */
+class ObstacleExpiryTest {
+    private static final long SHORT_MILLIS = 200;
+    private static final long WAIT_MILLIS = 3000;
+    
+    private NavigationGraph graph;
+    
+    @BeforeEach
+    void setUp() {
+        graph = new NavigationGraph();
+        graph.addRoom(new Room("A", "Atrium", "Main atrium", RoomType.LOBBY, 1));
+        graph.addRoom(new Room("B", "Bookshop", "Ground floor shop", RoomType.OFFICE, 1));
+        graph.addRoom(new Room("C", "Cafe", "Corner cafe", RoomType.CAFETERIA, 1));
+        graph.addPath(new Path(graph.getRoomById("A"), graph.getRoomById("B"), 20, "Walk to the bookshop"));
+        graph.addPath(new Path(graph.getRoomById("B"), graph.getRoomById("C"), 15, "Walk to the cafe"));
+    }
+    
+    @Test
+    void obstacleClearsBothDirectionsWhenItExpires() throws InterruptedException {
+        long before = graph.getVersion();
+        graph.simulateDynamicObstacle("A", "B", "Cleaning", SHORT_MILLIS);
+        
+        assertTrue(blocked("A", "B"));
+        assertTrue(blocked("B", "A"));
+        assertEquals(1, graph.getPendingObstacleCount());
+        assertEquals("Cleaning", graph.getSnapshot().getBlockageReason(graph.getPath("A", "B")));
+        
+        assertTrue(await(() -> !blocked("A", "B")), "obstacle should expire");
+        assertFalse(blocked("B", "A"));
+        assertEquals(0, graph.getPendingObstacleCount());
+        assertTrue(graph.getVersion() >= before + 2, "expiry publishes a version");
+    }
+    
+    @Test
+    void manualBlockCancelsPendingExpiry() throws InterruptedException {
+        graph.simulateDynamicObstacle("A", "B", "Cleaning", SHORT_MILLIS);
+        graph.blockPath("B", "A", true, "Closed for works");
+        assertEquals(0, graph.getPendingObstacleCount());
+        
+        Thread.sleep(SHORT_MILLIS * 4);
+        assertTrue(blocked("A", "B"));
+        assertEquals("Closed for works", graph.getSnapshot().getBlockageReason(graph.getPath("A", "B")));
+    }
+    
+    @Test
+    void newerObstacleOutlivesEarlierExpiry() throws InterruptedException {
+        graph.simulateDynamicObstacle("A", "B", "Cleaning", SHORT_MILLIS);
+        graph.simulateDynamicObstacle("A", "B", "Spill", 60_000);
+        assertEquals(1, graph.getPendingObstacleCount());
+        
+        Thread.sleep(SHORT_MILLIS * 4);
+        assertTrue(blocked("A", "B"));
+        assertEquals(1, graph.getPendingObstacleCount());
+        
+        graph.clearAllTemporaryBlocks();
+        assertFalse(blocked("A", "B"));
+        assertEquals(0, graph.getPendingObstacleCount());
+    }
+    
+    private boolean blocked(String fromRoomId, String toRoomId) {
+        GraphSnapshot snapshot = graph.getSnapshot();
+        return snapshot.isEdgeBlocked(snapshot.getEdgeId(fromRoomId, toRoomId));
+    }
+    
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) return false;
+            Thread.sleep(20);
+        }
+        return true;
+    }
+}
\ No newline at end of file
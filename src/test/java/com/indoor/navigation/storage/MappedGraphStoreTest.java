@@ -0,0 +1,128 @@
+package com.indoor.navigation.storage;
+
+import com.indoor.navigation.algorithm.EnhancedDijkstraPathfinder;
+import com.indoor.navigation.algorithm.EnhancedDijkstraPathfinder.PathResult;
+import com.indoor.navigation.model.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Routes searched over a mapped image must cost the same as routes over the heap graph it was
+ * written from
+ */
+class MappedGraphStoreTest {
+    private static final int SIZE = 20;
+    private static final String[] PATH_TYPES = {"corridor", "corridor", "ramp", "stairs"};
+    
+    @TempDir
+    java.nio.file.Path directory;
+    
+    @Test
+    void mappedRoutesMatchHeapRoutes() throws IOException {
+        Random random = new Random(7);
+        NavigationGraph graph = grid(random);
+        java.nio.file.Path file = directory.resolve("graph.img");
+        MappedGraphStore.write(graph, file);
+        MappedGraphStore store = MappedGraphStore.open(file);
+        
+        assertEquals(graph.getVersion(), store.getGraphVersion());
+        assertEquals(graph.getAllRooms().size(), store.getRoomCount());
+        assertEquals(graph.getSnapshot().getEdgeCount(), store.getEdgeCount());
+        
+        EnhancedDijkstraPathfinder pathfinder = new EnhancedDijkstraPathfinder();
+        NavigationMode[] modes = NavigationMode.values();
+        int found = 0;
+        for (int query = 0; query < 200; query++) {
+            String from = randomRoom(random);
+            String to = randomRoom(random);
+            NavigationMode mode = modes[query % modes.length];
+            PathResult heap = pathfinder.findShortestPath(graph, from, to, mode, null);
+            PathResult mapped = store.findShortestPath(from, to, mode, null);
+            
+            String label = from + " -> " + to + " " + mode;
+            assertEquals(heap.isEmpty(), mapped.isEmpty(), label);
+            if (heap.isEmpty()) continue;
+            
+            found++;
+            double heapCost = 0;
+            for (Path segment : heap.getPathSegments()) {
+                heapCost += mode.calculatePathWeight(segment, segment.getFromRoom(), segment.getToRoom());
+            }
+            assertEquals(heapCost, mapped.getTotalDistance(), 1e-6, label);
+            assertEquals(from, mapped.getPath().get(0).getId(), label);
+            assertEquals(to, mapped.getPath().get(mapped.getPath().size() - 1).getId(), label);
+        }
+        assertTrue(found > 100, "most queries should find a route");
+    }
+    
+    @Test
+    void mappedRoomsMatchHeapRooms() throws IOException {
+        NavigationGraph graph = grid(new Random(11));
+        java.nio.file.Path file = directory.resolve("graph.img");
+        MappedGraphStore.write(graph, file);
+        MappedGraphStore store = MappedGraphStore.open(file);
+        
+        for (Room room : graph.getAllRooms()) {
+            Room view = store.getRoomById(room.getId());
+            assertEquals(room.getName(), view.getName());
+            assertEquals(room.getRoomType(), view.getRoomType());
+            assertEquals(room.getFloor(), view.getFloor());
+            assertEquals(room.getLandmarks(), view.getLandmarks());
+            assertEquals(room.getFeatures(), view.getFeatures());
+            assertEquals(graph.getPathsFromRoom(room.getId()).size(), store.getPathsFromRoom(room.getId()).size());
+        }
+        assertEquals(-1, store.indexOf("missing"));
+    }
+    
+    /**
+     * Two floors of rooms on a grid with random gaps, weights and path types, linked by a few
+     * elevators
+     */
+    private static NavigationGraph grid(Random random) {
+        NavigationGraph graph = new NavigationGraph();
+        RoomType[] types = RoomType.values();
+        for (int floor = 0; floor < 2; floor++) {
+            for (int i = 0; i < SIZE; i++) {
+                for (int j = 0; j < SIZE; j++) {
+                    Room room = new Room(id(floor, i, j), "Room " + i + "-" + j, "Grid room", types[random.nextInt(types.length)], floor);
+                    if (random.nextInt(5) == 0) room.addLandmark("Plant " + i);
+                    if (random.nextInt(7) == 0) room.addFeature("braille", "yes");
+                    graph.addRoom(room);
+                }
+            }
+        }
+        for (int floor = 0; floor < 2; floor++) {
+            for (int i = 0; i < SIZE; i++) {
+                for (int j = 0; j < SIZE; j++) {
+                    Room room = graph.getRoomById(id(floor, i, j));
+                    if (i + 1 < SIZE && random.nextInt(4) > 0) {
+                        graph.addPath(new Path(room, graph.getRoomById(id(floor, i + 1, j)), 1 + random.nextInt(9),
+                                               "Turn left", PATH_TYPES[random.nextInt(PATH_TYPES.length)]));
+                    }
+                    if (j + 1 < SIZE && random.nextInt(4) > 0) {
+                        graph.addPath(new Path(room, graph.getRoomById(id(floor, i, j + 1)), 1 + random.nextInt(9), "Go straight"));
+                    }
+                }
+            }
+        }
+        for (int k = 0; k < 8; k++) {
+            int i = random.nextInt(SIZE);
+            int j = random.nextInt(SIZE);
+            graph.addPath(new Path(graph.getRoomById(id(0, i, j)), graph.getRoomById(id(1, i, j)), 12, "Take the elevator", "elevator"));
+        }
+        return graph;
+    }
+    
+    private static String randomRoom(Random random) {
+        return id(random.nextInt(2), random.nextInt(SIZE), random.nextInt(SIZE));
+    }
+    
+    private static String id(int floor, int i, int j) {
+        return "R" + floor + "_" + i + "_" + j;
+    }
+}
\ No newline at end of file